@@ -0,0 +1,550 @@
+package Game;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import Game.ImageFactory.Direction;
+import Game.ImageFactory.Player;
+
+/**
+ * Microbenchmarks of the hot paths of the game engine, run by the benchmark script. Each case is
+ * set up on square boards of each size being measured, warmed up, then timed over a number of
+ * iterations of a fixed length, printing the average time per operation, its spread over the
+ * iterations and the bytes allocated per operation by every thread, so a change that makes the
+ * move path slower or makes it allocate shows up as numbers, including allocations made on the
+ * threads of a pool the operation hands work to.
+ * Usage: benchmark [-sizes 16,64,256] [-warmup 5] [-iterations 5] [-time 200] [name filter]
+ * @field sink: Written with the results of operations so the JIT cannot drop them
+ * @field sizes: The side lengths of the boards to measure on
+ * @field warmups: The number of iterations run before measuring
+ * @field iterations: The number of iterations measured
+ * @field iterationMillis: The length of each iteration in milliseconds
+ */
+public class EngineBenchmarks
+{
+	static volatile int sink;
+
+	private int[] sizes = {16, 64, 256};
+	private int warmups = 5;
+	private int iterations = 5;
+	private long iterationMillis = 200;
+
+	/**
+	 * A benchmarked operation. setUp is called before every iteration on a fresh board, op is
+	 * called as many times as fit in the iteration and tearDown is called once it is measured.
+	 * Cases that do not depend on the board size are only run once, with a size of 0.
+	 */
+	private static abstract class Case
+	{
+		final String name;
+		final boolean sized;
+
+		Case(String name)
+		{
+			this(name, true);
+		}
+
+		Case(String name, boolean sized)
+		{
+			this.name = name;
+			this.sized = sized;
+		}
+
+		abstract void setUp(int size);
+
+		abstract void op();
+
+		/**
+		 * Frees what setUp started, such as threads
+		 */
+		void tearDown()
+		{
+		}
+	}
+
+	public static void main(String[] args)
+	{
+		EngineBenchmarks benchmarks = new EngineBenchmarks();
+		String filter = "";
+		for(int i = 0; i < args.length; i++)
+		{
+			switch(args[i])
+			{
+				case "-sizes":
+					String[] parts = args[++i].split(",");
+					benchmarks.sizes = new int[parts.length];
+					for(int j = 0; j < parts.length; j++)
+					{
+						benchmarks.sizes[j] = Integer.parseInt(parts[j].trim());
+					}
+					break;
+				case "-warmup":		benchmarks.warmups = Integer.parseInt(args[++i]); break;
+				case "-iterations":	benchmarks.iterations = Integer.parseInt(args[++i]); break;
+				case "-time":		benchmarks.iterationMillis = Long.parseLong(args[++i]); break;
+				default:			filter = args[i];
+			}
+		}
+		benchmarks.runAll(filter);
+	}
+
+	private void runAll(String filter)
+	{
+		System.out.printf("%-28s %6s %14s %12s %12s%n", "Benchmark", "size", "ns/op", "error", "B/op");
+		for(Case c : cases())
+		{
+			if(!c.name.contains(filter))
+			{
+				continue;
+			}
+			if(!c.sized)
+			{
+				run(c, 0);
+				continue;
+			}
+			for(int size : sizes)
+			{
+				run(c, size);
+			}
+		}
+	}
+
+	/**
+	 * Warms up and measures one case on one board size, printing a line of results
+	 */
+	private void run(Case c, int size)
+	{
+		for(int i = 0; i < warmups; i++)
+		{
+			iteration(c, size);
+		}
+		double[] times = new double[iterations];
+		double bytes = 0;
+		for(int i = 0; i < iterations; i++)
+		{
+			double[] result = iteration(c, size);
+			times[i] = result[0];
+			bytes += result[1] / iterations;
+		}
+		double mean = 0;
+		for(double time : times)
+		{
+			mean += time / iterations;
+		}
+		double variance = 0;
+		for(double time : times)
+		{
+			variance += (time - mean)*(time - mean) / Math.max(1, iterations - 1);
+		}
+		System.out.printf("%-28s %6d %14.1f %12.1f %12s%n", c.name, size, mean, Math.sqrt(variance), bytes < 0 ? "n/a" : String.format("%.1f", bytes));
+	}
+
+	/**
+	 * Sets up a case and calls its operation in batches until the iteration time is up
+	 * @return: The nanoseconds and the bytes allocated per operation, or -1 bytes if allocations cannot be measured
+	 */
+	private double[] iteration(Case c, int size)
+	{
+		c.setUp(size);
+		long deadline = System.nanoTime() + iterationMillis*1000000;
+		long operations = 0;
+		int batch = 1;
+		HashMap<Long, Long> startBytes = allocatedBytes();
+		if(startBytes != null)
+		{
+			startBytes.put(Thread.currentThread().getId(), callerAllocatedBytes());
+		}
+		long start = System.nanoTime();
+		long now;
+		do
+		{
+			for(int i = 0; i < batch; i++)
+			{
+				c.op();
+			}
+			operations += batch;
+			batch = Math.min(batch*2, 1 << 16);
+			now = System.nanoTime();
+		}
+		while(now < deadline);
+		HashMap<Long, Long> endBytes = allocatedBytes();
+		c.tearDown();
+		if(startBytes == null)
+		{
+			return new double[] {(now - start) / (double)operations, -1};
+		}
+		long bytes = 0;
+		for(Map.Entry<Long, Long> thread : endBytes.entrySet())
+		{
+			Long before = startBytes.get(thread.getKey());
+			bytes += thread.getValue() - (before == null ? 0 : before);
+		}
+		return new double[] {(now - start) / (double)operations, bytes / (double)operations};
+	}
+
+	/**
+	 * @return: The bytes allocated by this thread so far, read again once the snapshot of every
+	 * thread is built so the snapshot itself is not counted
+	 */
+	private static long callerAllocatedBytes()
+	{
+		return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Threads started during the iteration are counted from zero, so the pool threads an
+	 * operation starts on first use are counted in full.
+	 * @return: The bytes allocated so far by each live thread by its id, or null if the JVM cannot tell
+	 */
+	private static HashMap<Long, Long> allocatedBytes()
+	{
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean)
+		{
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)bean;
+			if(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled())
+			{
+				long[] ids = threads.getAllThreadIds();
+				long[] bytes = threads.getThreadAllocatedBytes(ids);
+				HashMap<Long, Long> allocated = new HashMap<Long, Long>();
+				for(int i = 0; i < ids.length; i++)
+				{
+					if(bytes[i] >= 0)
+					{
+						allocated.put(ids[i], bytes[i]);
+					}
+				}
+				return allocated;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Builds a square single player board walled around the edge, with a box on every fifth
+	 * cell of every third row and a goal beside each box, and the player in the middle
+	 * @param size: The number of rows and columns
+	 * @return: The board
+	 */
+	static PuzzleBoard board(int size)
+	{
+		byte[] cells = new byte[size*size];
+		for(int row = 0; row < size; row++)
+		{
+			for(int column = 0; column < size; column++)
+			{
+				int index = row*size + column;
+				if(row == 0 || column == 0 || row == size - 1 || column == size - 1)
+				{
+					cells[index] = PuzzleBoard.WALL;
+				}
+				else if(row % 3 == 1 && column % 5 == 2 && column < size - 2)
+				{
+					cells[index] = PuzzleBoard.BOX;
+					cells[index + 1] = PuzzleBoard.GOAL;
+				}
+			}
+		}
+		int middle = (size/2)*size + size/2;
+		cells[middle] = (byte)(cells[middle] & PuzzleBoard.STATIC_MASK | PuzzleBoard.PLAYER);
+		return new PuzzleBoard(size, size, false, cells);
+	}
+
+	/**
+	 * @return: A fixed sequence of random directions, of a length that is a power of two
+	 */
+	static Direction[] directions()
+	{
+		Direction[] values = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+		Direction[] directions = new Direction[1 << 12];
+		Random random = new Random(2911);
+		for(int i = 0; i < directions.length; i++)
+		{
+			directions[i] = values[random.nextInt(values.length)];
+		}
+		return directions;
+	}
+
+	/**
+	 * @return: Every benchmark case
+	 */
+	private static ArrayList<Case> cases()
+	{
+		final Direction[] directions = directions();
+		final int mask = directions.length - 1;
+		ArrayList<Case> cases = new ArrayList<Case>();
+
+		cases.add(new Case("board.move")
+		{
+			PuzzleBoard board;
+			MoveJournal journal;
+			int i;
+
+			void setUp(int size)
+			{
+				board = board(size);
+				journal = new MoveJournal();
+				board.setJournal(journal);
+				board.trackChanges();
+			}
+
+			void op()
+			{
+				journal.beginStep();
+				sink += board.move(Player.ONE, directions[i++ & mask]);
+				journal.endStep();
+				board.clearChanged();
+				if((i & 0x3FFF) == 0)
+				{
+					journal.clear();
+				}
+			}
+		});
+
+		cases.add(new Case("manager.move")
+		{
+			PuzzleManager manager;
+			int i;
+
+			void setUp(int size)
+			{
+				PuzzleBoard board = board(size);
+				PuzzleGrid grid = new PuzzleGrid(false, 0, "bench", board);
+				PuzzleDisplayPanel panel = new PuzzleDisplayPanel(size, size);
+				manager = new PuzzleManager(panel, grid, null);
+			}
+
+			void op()
+			{
+				sink += manager.move(Player.ONE, directions[i++ & mask]);
+				if((i & 0x3FFF) == 0)
+				{
+					manager.resetGame();
+				}
+			}
+		});
+
+		cases.add(new Case("journal.undoRedo")
+		{
+			PuzzleBoard board;
+			MoveJournal journal;
+
+			void setUp(int size)
+			{
+				board = board(size);
+				journal = new MoveJournal();
+				board.setJournal(journal);
+				board.trackChanges();
+				for(int i = 0; i < 1024 || !journal.canUndo(); i++)
+				{
+					journal.beginStep();
+					board.move(Player.ONE, directions[i & mask]);
+					journal.endStep();
+				}
+			}
+
+			void op()
+			{
+				journal.undo(board);
+				journal.redo(board);
+				board.clearChanged();
+			}
+		});
+
+		cases.add(new Case("board.copy")
+		{
+			PuzzleBoard board;
+
+			void setUp(int size)
+			{
+				board = board(size);
+			}
+
+			void op()
+			{
+				sink += board.copy().getSize();
+			}
+		});
+
+		cases.add(new Case("board.start")
+		{
+			PuzzleBoard template;
+
+			void setUp(int size)
+			{
+				template = board(size).freeze();
+			}
+
+			void op()
+			{
+				sink += template.copy().getSize();
+			}
+		});
+
+		cases.add(new Case("board.reset")
+		{
+			PuzzleBoard board;
+			int i;
+
+			void setUp(int size)
+			{
+				board = board(size).freeze().copy();
+				board.trackChanges();
+			}
+
+			void op()
+			{
+				for(int step = 0; step < 8; step++)
+				{
+					sink += board.move(Player.ONE, directions[i++ & mask]);
+				}
+				board.reset();
+				board.clearChanged();
+			}
+		});
+
+		cases.add(new Case("batch.step")
+		{
+			BatchEnvironment environment;
+			int[] actions;
+			int i;
+
+			void setUp(int size)
+			{
+				int count = Math.max(16, (1 << 20)/(size*size));
+				environment = new BatchEnvironment(board(size), count, BatchEnvironment.DEFAULT_STEP_LIMIT, Runtime.getRuntime().availableProcessors());
+				actions = new int[count];
+			}
+
+			void op()
+			{
+				for(int board = 0; board < actions.length; board++)
+				{
+					actions[board] = directions[(i + board) & mask].ordinal();
+				}
+				i++;
+				environment.step(actions);
+				sink += environment.getDone().length;
+			}
+
+			void tearDown()
+			{
+				environment.close();
+			}
+		});
+
+		cases.add(new Case("board.isSolved")
+		{
+			PuzzleBoard board;
+
+			void setUp(int size)
+			{
+				board = board(size);
+			}
+
+			void op()
+			{
+				sink += board.isSolved() ? 1 : 0;
+			}
+		});
+
+		cases.add(new Case("panel.reload")
+		{
+			PuzzleDisplayPanel panel;
+			PuzzleBoard board;
+
+			void setUp(int size)
+			{
+				board = board(size);
+				panel = new PuzzleDisplayPanel(size, size);
+			}
+
+			void op()
+			{
+				panel.reloadPanelLabels(board, false);
+			}
+		});
+
+		cases.add(new Case("panel.reloadShadow")
+		{
+			PuzzleDisplayPanel panel;
+			PuzzleBoard board;
+
+			void setUp(int size)
+			{
+				board = board(size);
+				panel = new PuzzleDisplayPanel(size, size);
+			}
+
+			void op()
+			{
+				panel.reloadPanelLabels(board, true);
+			}
+		});
+
+		cases.add(new Case("panel.refreshShadow")
+		{
+			PuzzleDisplayPanel panel;
+			PuzzleBoard board;
+			int i;
+
+			void setUp(int size)
+			{
+				board = board(size);
+				board.trackChanges();
+				panel = new PuzzleDisplayPanel(size, size);
+				panel.reloadPanelLabels(board, true);
+			}
+
+			void op()
+			{
+				board.move(Player.ONE, directions[i++ & mask]);
+				panel.refreshPanelLabels(board.getChangedCells(), board.getChangedCount(), true);
+				board.clearChanged();
+			}
+		});
+
+		cases.add(new Case("replayer.replay")
+		{
+			PuzzleBoard board;
+			String moves;
+
+			void setUp(int size)
+			{
+				board = board(size);
+				PuzzleBoard walk = board.copy();
+				StringBuilder recording = new StringBuilder();
+				for(Direction direction : directions)
+				{
+					int result = walk.move(Player.ONE, direction);
+					if(result != PuzzleBoard.BLOCKED)
+					{
+						recording.append(result == PuzzleBoard.PUSHED ? Character.toUpperCase(direction.letter) : direction.letter);
+					}
+				}
+				moves = recording.toString();
+			}
+
+			void op()
+			{
+				sink += PuzzleReplayer.replay(board, moves).getMoves();
+			}
+		});
+
+		cases.add(new Case("generator.new", false)
+		{
+			void setUp(int size)
+			{
+			}
+
+			void op()
+			{
+				sink += new PuzzleGridGenerator().getNumberOfSinglePlayerLevels();
+			}
+		});
+
+		return cases;
+	}
+}
@@ -0,0 +1,427 @@
+package Game;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import Game.ImageFactory.Direction;
+import Game.ImageFactory.Player;
+
+/**
+ * Headless environment for bots and reinforcement learning that steps many independent boards of
+ * the same level in one call, with the same move, push and win rules as a PuzzleBoard played by a
+ * PuzzleManager, or by a PuzzleManagerMultiplayer on a multiplayer level. Nothing is drawn and
+ * nothing is allocated by a step.
+ * The boards are stored as a structure of arrays. The static layer of the level is held once and
+ * shared by every board, and the dynamic layers of all the boards lie one after another in a
+ * single array, which is also what is handed out as the observations. The player positions, box
+ * counts and step counts of every board lie in arrays of their own. Each step the boards are
+ * split between the workers of a ForkJoinPool in ranges of SPLIT_SIZE boards, so each worker walks
+ * a contiguous part of the arrays.
+ * An action is a Direction ordinal for player one, or 4 plus a Direction ordinal for player two on
+ * a multiplayer level, and any other action leaves the board unchanged. Each step gives a reward of
+ * STEP_REWARD, plus BOX_ON_GOAL_REWARD for a box pushed onto a goal of its owner, BOX_OFF_GOAL_REWARD
+ * for one pushed off, and SOLVED_REWARD when the level is solved. A board is done once it is solved
+ * or has taken its limit of steps. The observations of a board that is done show how it ended, and
+ * the board is reset to the start of the level at its next step before the action is applied.
+ * @field STEP_REWARD: The reward for every step
+ * @field BOX_ON_GOAL_REWARD: The reward for pushing a box onto a goal of its owner
+ * @field BOX_OFF_GOAL_REWARD: The reward for pushing a box off a goal of its owner
+ * @field SOLVED_REWARD: The reward for solving the level
+ * @field ACTION_COUNT: The number of actions, of which single player levels only use the first 4
+ * @field DEFAULT_STEP_LIMIT: The number of steps a board may take before it is done unless another is given
+ * @field SPLIT_SIZE: Ranges of more boards than this are split in half between workers
+ * @field DIRECTIONS: cached Direction values used to decode actions
+ * @field count: The number of boards
+ * @field rows: The number of rows of the level
+ * @field columns: The number of columns of the level
+ * @field cells: The number of cells of each board
+ * @field multiplayer: boolean for if the level is a multiplayer level
+ * @field stepLimit: The number of steps a board may take before it is done
+ * @field statics: The static bits of each cell of the level, shared by every board
+ * @field start: The dynamic bits of each cell at the start of the level
+ * @field startPlayers: The index of the cell each player starts on, player one then two, or -1
+ * @field startUnplaced: The number of boxes of each player not on a goal at the start, player one then two
+ * @field neighbours: The index of the neighbour of each cell in each Direction, cell by cell, or -1 outside the grid
+ * @field dynamic: The dynamic bits of each cell of every board, board by board
+ * @field players: The index of the cell each player of every board is on, two per board
+ * @field unplaced: The number of boxes of each player of every board not on a goal, two per board
+ * @field steps: The number of steps every board has taken since it was last reset
+ * @field rewards: The reward every board got in the last step
+ * @field done: boolean for every board that is done
+ * @field pool: The ForkJoinPool the boards are stepped on, or null to step them on the calling thread
+ */
+public class BatchEnvironment
+{
+	public static final float STEP_REWARD = -0.1f;
+	public static final float BOX_ON_GOAL_REWARD = 1f;
+	public static final float BOX_OFF_GOAL_REWARD = -1f;
+	public static final float SOLVED_REWARD = 10f;
+	public static final int ACTION_COUNT = 8;
+	public static final int DEFAULT_STEP_LIMIT = 500;
+	private static final int SPLIT_SIZE = 512;
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private final int count;
+	private final int rows;
+	private final int columns;
+	private final int cells;
+	private final boolean multiplayer;
+	private final int stepLimit;
+	private final byte[] statics;
+	private final byte[] start;
+	private final int[] startPlayers = new int[2];
+	private final int[] startUnplaced = new int[2];
+	private final int[] neighbours;
+	private final byte[] dynamic;
+	private final int[] players;
+	private final int[] unplaced;
+	private final int[] steps;
+	private final float[] rewards;
+	private final boolean[] done;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Makes the boards of a level with the default step limit, stepped on every core
+	 * @param grid: The level to play
+	 * @param count: The number of boards
+	 */
+	public BatchEnvironment(PuzzleGrid grid, int count)
+	{
+		this(grid.getBoard(), count, DEFAULT_STEP_LIMIT, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Makes the boards, each in the state of a starting board
+	 * @precondition: count >= 1, threads >= 1
+	 * @param board: The starting state of the level, which is only read
+	 * @param count: The number of boards
+	 * @param stepLimit: The number of steps a board may take before it is done
+	 * @param threads: The number of threads to step the boards on
+	 */
+	public BatchEnvironment(PuzzleBoard board, int count, int stepLimit, int threads)
+	{
+		if(count < 1 || threads < 1)
+		{
+			throw new IllegalArgumentException("count and threads must be at least 1: " + count + ", " + threads);
+		}
+		this.count = count;
+		this.rows = board.getRows();
+		this.columns = board.getColumns();
+		this.cells = board.getSize();
+		this.multiplayer = board.isMultiplayer();
+		this.stepLimit = stepLimit;
+		this.statics = new byte[cells];
+		this.start = new byte[cells];
+		this.neighbours = new int[cells*DIRECTIONS.length];
+		for(int index = 0; index < cells; index++)
+		{
+			statics[index] = (byte)(board.getCell(index) & PuzzleBoard.STATIC_MASK);
+			start[index] = (byte)(board.getCell(index) & PuzzleBoard.DYNAMIC_MASK);
+			for(Direction direction : DIRECTIONS)
+			{
+				neighbours[index*DIRECTIONS.length + direction.ordinal()] = board.getNeighbour(index, direction);
+			}
+		}
+		startPlayers[0] = board.getPlayerIndex(Player.ONE);
+		startPlayers[1] = board.getPlayerIndex(Player.TWO);
+		startUnplaced[0] = board.getUnplacedBoxes(Player.ONE);
+		startUnplaced[1] = board.getUnplacedBoxes(Player.TWO);
+
+		this.dynamic = new byte[count*cells];
+		this.players = new int[count*2];
+		this.unplaced = new int[count*2];
+		this.steps = new int[count];
+		this.rewards = new float[count];
+		this.done = new boolean[count];
+		this.pool = threads > 1 && count > SPLIT_SIZE ? new ForkJoinPool(threads) : null;
+		reset();
+	}
+
+	/**
+	 * @param player: The player to move
+	 * @param direction: The direction to move in
+	 * @return: The action that moves the player in the direction
+	 */
+	public static int action(Player player, Direction direction)
+	{
+		return (player == Player.TWO ? DIRECTIONS.length : 0) + direction.ordinal();
+	}
+
+	/**
+	 * Puts every board back to the start of the level
+	 */
+	public void reset()
+	{
+		for(int board = 0; board < count; board++)
+		{
+			reset(board);
+			rewards[board] = 0;
+			done[board] = false;
+		}
+	}
+
+	private void reset(int board)
+	{
+		System.arraycopy(start, 0, dynamic, board*cells, cells);
+		players[board*2] = startPlayers[0];
+		players[board*2 + 1] = startPlayers[1];
+		unplaced[board*2] = startUnplaced[0];
+		unplaced[board*2 + 1] = startUnplaced[1];
+		steps[board] = 0;
+	}
+
+	/**
+	 * Applies one action to every board, after first resetting the boards that were done. The
+	 * observations, rewards and done flags are then read from their getters.
+	 * @param actions: The action for each board
+	 */
+	public void step(int[] actions)
+	{
+		if(actions.length != count)
+		{
+			throw new IllegalArgumentException("Expected " + count + " actions but got " + actions.length);
+		}
+		if(pool == null)
+		{
+			step(actions, 0, count);
+		}
+		else
+		{
+			pool.invoke(new StepTask(actions, 0, count));
+		}
+	}
+
+	/**
+	 * Steps a range of boards on the calling thread
+	 * @param actions: The action for each board
+	 * @param from: The first board
+	 * @param to: The board after the last
+	 */
+	private void step(int[] actions, int from, int to)
+	{
+		for(int board = from; board < to; board++)
+		{
+			if(done[board])
+			{
+				reset(board);
+			}
+			float reward = STEP_REWARD + move(board, actions[board]);
+			steps[board]++;
+			boolean solved = unplaced[board*2] == 0 && unplaced[board*2 + 1] == 0;
+			if(solved)
+			{
+				reward += SOLVED_REWARD;
+			}
+			rewards[board] = reward;
+			done[board] = solved || steps[board] >= stepLimit;
+		}
+	}
+
+	/**
+	 * Moves a player of a board by the same rules as PuzzleBoard.move, without turning the player
+	 * @param board: The board
+	 * @param action: The action to apply
+	 * @return: The reward for any box pushed onto or off a goal
+	 */
+	private float move(int board, int action)
+	{
+		int player = action >>> 2;
+		if(action < 0 || player >= (multiplayer ? 2 : 1))
+		{
+			return 0;
+		}
+		int base = board*cells;
+		int playerIndex = players[board*2 + player];
+		if(playerIndex == -1)
+		{
+			return 0;
+		}
+		int direction = action & 3;
+		int destinationIndex = neighbours[playerIndex*DIRECTIONS.length + direction];
+		if(destinationIndex == -1)
+		{
+			return 0;
+		}
+		byte destination = (byte)(statics[destinationIndex] | dynamic[base + destinationIndex]);
+		if((destination & (PuzzleBoard.WALL | PuzzleBoard.PLAYER)) != 0)
+		{
+			return 0;
+		}
+
+		float reward = 0;
+		if((destination & PuzzleBoard.BOX) != 0)
+		{
+			int beyondIndex = neighbours[destinationIndex*DIRECTIONS.length + direction];
+			if(beyondIndex == -1 || !PuzzleBoard.isFree((byte)(statics[beyondIndex] | dynamic[base + beyondIndex])))
+			{
+				return 0;
+			}
+			byte box = dynamic[base + destinationIndex];
+			byte pushed = (byte)(statics[beyondIndex] | box);
+			int owner = board*2 + ((box & PuzzleBoard.OWNER_TWO) != 0 ? 1 : 0);
+			if(PuzzleBoard.isPlaced(destination))
+			{
+				unplaced[owner]++;
+				reward += BOX_OFF_GOAL_REWARD;
+			}
+			if(PuzzleBoard.isPlaced(pushed))
+			{
+				unplaced[owner]--;
+				reward += BOX_ON_GOAL_REWARD;
+			}
+			dynamic[base + beyondIndex] = box;
+		}
+		dynamic[base + destinationIndex] = dynamic[base + playerIndex];
+		dynamic[base + playerIndex] = 0;
+		players[board*2 + player] = destinationIndex;
+		return reward;
+	}
+
+	/**
+	 * Stops the threads stepping the boards
+	 */
+	public void close()
+	{
+		if(pool != null)
+		{
+			pool.shutdown();
+		}
+	}
+
+	public int getRows()
+	{
+		return rows;
+	}
+
+	public int getColumns()
+	{
+		return columns;
+	}
+
+	public int getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * @return: The number of cells of each board
+	 */
+	public int getCellCount()
+	{
+		return cells;
+	}
+
+	public boolean isMultiplayer()
+	{
+		return multiplayer;
+	}
+
+	/**
+	 * @return: The static bits of each cell of the level, shared by every board, which must not be changed
+	 */
+	public byte[] getStatics()
+	{
+		return statics;
+	}
+
+	/**
+	 * The dynamic bits of every cell of every board, board by board, so a cell of a board is at
+	 * board*getCellCount() + index. ORed with the static bits of the cell they give the packed
+	 * code a PuzzleBoard would have. The array is changed by every step and must not be changed
+	 * by the caller.
+	 * @return: The observations
+	 */
+	public byte[] getObservations()
+	{
+		return dynamic;
+	}
+
+	/**
+	 * @return: The reward of each board in the last step, overwritten by the next step
+	 */
+	public float[] getRewards()
+	{
+		return rewards;
+	}
+
+	/**
+	 * @return: boolean for each board that is done after the last step, overwritten by the next step
+	 */
+	public boolean[] getDone()
+	{
+		return done;
+	}
+
+	/**
+	 * @param board: The board
+	 * @param player: The player
+	 * @return: The index of the cell the player is on, or -1 if the player is not on the board
+	 */
+	public int getPlayerIndex(int board, Player player)
+	{
+		return player == Player.ONE || player == Player.TWO ? players[board*2 + player.ordinal() - Player.ONE.ordinal()] : -1;
+	}
+
+	/**
+	 * @param board: The board
+	 * @return: The number of steps the board has taken since it was last reset
+	 */
+	public int getSteps(int board)
+	{
+		return steps[board];
+	}
+
+	/**
+	 * @param board: The board
+	 * @return: boolean for if every box of the board is on a goal of its owner
+	 */
+	public boolean isSolved(int board)
+	{
+		return unplaced[board*2] == 0 && unplaced[board*2 + 1] == 0;
+	}
+
+	/**
+	 * Copies the state of one board into a PuzzleBoard, such as to show it. The players face
+	 * right, as the environment does not keep which way they face.
+	 * @param board: The board
+	 * @return: The PuzzleBoard
+	 */
+	public PuzzleBoard toBoard(int board)
+	{
+		byte[] codes = new byte[cells];
+		for(int index = 0; index < cells; index++)
+		{
+			codes[index] = (byte)(statics[index] | dynamic[board*cells + index]);
+		}
+		return new PuzzleBoard(rows, columns, multiplayer, codes);
+	}
+
+	/**
+	 * Steps a range of boards, splitting it in half between workers while it is larger than SPLIT_SIZE
+	 */
+	private class StepTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		private final int[] actions;
+		private final int from;
+		private final int to;
+
+		StepTask(int[] actions, int from, int to)
+		{
+			this.actions = actions;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(to - from > SPLIT_SIZE)
+			{
+				int middle = (from + to) >>> 1;
+				invokeAll(new StepTask(actions, from, middle), new StepTask(actions, middle, to));
+				return;
+			}
+			step(actions, from, to);
+		}
+	}
+}
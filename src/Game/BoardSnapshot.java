@@ -0,0 +1,93 @@
+package Game;
+
+import java.util.Arrays;
+
+import Game.ImageFactory.Player;
+
+/**
+ * An immutable copy of a game at one moment, taken on the thread running the game and drawn on
+ * the Event Dispatch Thread. Along with a copy of the board it holds the cells that changed since
+ * the snapshot before it, including the changes of any snapshot that was replaced before it could
+ * be drawn, so drawing only the newest snapshot still redraws every changed cell. If that many
+ * changes add up to more cells than the board has, the snapshot asks for every cell to be redrawn.
+ * @field board: The copy of the board, which nothing changes
+ * @field moves: The number of moves taken
+ * @field changedCells: The indices of the cells changed since the last snapshot drawn, or null if every cell should be redrawn
+ * @field changedCount: The number of cells in changedCells
+ */
+public class BoardSnapshot
+{
+	private final PuzzleBoard board;
+	private final int moves;
+	private final int[] changedCells;
+	private final int changedCount;
+
+	/**
+	 * @param board: The board to copy, whose changed cells are read
+	 * @param moves: The number of moves taken
+	 * @param previous: The last snapshot if it has not been drawn, or null
+	 */
+	BoardSnapshot(PuzzleBoard board, int moves, BoardSnapshot previous)
+	{
+		this.board = board.copy();
+		this.moves = moves;
+		int carried = previous == null ? 0 : previous.changedCount;
+		if((previous != null && previous.changedCells == null) || carried + board.getChangedCount() > board.getSize())
+		{
+			this.changedCells = null;
+			this.changedCount = 0;
+			return;
+		}
+		this.changedCells = previous == null ? new int[board.getChangedCount()] : Arrays.copyOf(previous.changedCells, carried + board.getChangedCount());
+		System.arraycopy(board.getChangedCells(), 0, changedCells, carried, board.getChangedCount());
+		this.changedCount = changedCells.length;
+	}
+
+	/**
+	 * @return: The copy of the board, which must not be changed
+	 */
+	PuzzleBoard getBoard()
+	{
+		return board;
+	}
+
+	public int getMoves()
+	{
+		return moves;
+	}
+
+	/**
+	 * @param player: The owner of the boxes
+	 * @return: The number of boxes of the player still to be put on a goal
+	 */
+	public int getUnplacedBoxes(Player player)
+	{
+		return board.getUnplacedBoxes(player);
+	}
+
+	public boolean isSolved()
+	{
+		return board.isSolved();
+	}
+
+	/**
+	 * @return: True if every cell should be redrawn rather than only the changed cells
+	 */
+	public boolean isFullRefresh()
+	{
+		return changedCells == null;
+	}
+
+	/**
+	 * @return: The indices of the changed cells in the first getChangedCount() positions, or null
+	 */
+	public int[] getChangedCells()
+	{
+		return changedCells;
+	}
+
+	public int getChangedCount()
+	{
+		return changedCount;
+	}
+}
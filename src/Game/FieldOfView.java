@@ -0,0 +1,276 @@
+package Game;
+
+import java.util.Arrays;
+
+import Game.ImageFactory.Player;
+
+/**
+ * Works out which cells of a PuzzleBoard the players can see in shadow mode. A player sees the
+ * cells within a radius of them that are not hidden behind a wall, found by recursive
+ * shadowcasting over the eight octants around the player. Walls never move, so what can be seen
+ * from a cell never changes and is worked out once, the first time a player stands there, and kept
+ * in a table. Each cell counts how many players can see it, and moving a player only takes away
+ * the table of the cell it left and adds the table of the cell it arrived at, noting the cells that
+ * went from seen to unseen or the other way, so only those have to be redrawn.
+ * With a radius of one every neighbour of a player is seen, as shadow mode has always shown.
+ * @field DEFAULT_RADIUS: The radius used unless the SIGHT_PROPERTY system property is set
+ * @field SIGHT_PROPERTY: system property giving the radius players can see
+ * @field VIEWERS: The players that can see
+ * @field OCTANTS: The transform from octant coordinates to columns and rows for each octant
+ * @field board: The board being looked at
+ * @field rows: The number of rows of the board
+ * @field columns: The number of columns of the board
+ * @field radius: How many cells away a player can see
+ * @field tables: The cells seen from each cell, or null if no player has stood there yet
+ * @field seen: The number of players that see each cell
+ * @field viewers: The cell each player was on when the view was last updated, or -1
+ * @field marks: Marks the cells already added to the table being built, so each is only listed once
+ * @field mark: The mark of the table being built
+ * @field table: The table being built
+ * @field tableSize: The number of cells in the table being built
+ * @field changedCells: The cells that became seen or unseen in the last update
+ * @field changedCount: The number of cells in changedCells
+ */
+public class FieldOfView
+{
+	public static final int DEFAULT_RADIUS = 1;
+	public static final String SIGHT_PROPERTY = "warehouseboss.sight";
+	private static final Player[] VIEWERS = {Player.ONE, Player.TWO};
+	private static final int[][] OCTANTS =
+	{
+		{1, 0, 0, 1}, {0, 1, 1, 0}, {0, -1, 1, 0}, {-1, 0, 0, 1},
+		{-1, 0, 0, -1}, {0, -1, -1, 0}, {0, 1, -1, 0}, {1, 0, 0, -1},
+	};
+
+	private PuzzleBoard board;
+	private final int rows;
+	private final int columns;
+	private final int radius;
+	private final int[][] tables;
+	private final byte[] seen;
+	private final int[] viewers;
+	private final int[] marks;
+	private int mark;
+	private int[] table;
+	private int tableSize;
+	private int[] changedCells;
+	private int changedCount;
+
+	/**
+	 * @param board: The board being looked at
+	 * @param radius: How many cells away a player can see
+	 */
+	public FieldOfView(PuzzleBoard board, int radius)
+	{
+		this.board = board;
+		this.rows = board.getRows();
+		this.columns = board.getColumns();
+		this.radius = Math.max(1, radius);
+		this.tables = new int[board.getSize()][];
+		this.seen = new byte[board.getSize()];
+		this.viewers = new int[VIEWERS.length];
+		this.marks = new int[board.getSize()];
+		this.table = new int[64];
+		this.changedCells = new int[64];
+		Arrays.fill(viewers, -1);
+	}
+
+	/**
+	 * Looks at another copy of the same level from now on, such as a newer snapshot of the game.
+	 * The walls must be the same, so the tables already worked out still hold.
+	 * @param board: The board to look at
+	 */
+	public void setBoard(PuzzleBoard board)
+	{
+		this.board = board;
+	}
+
+	/**
+	 * @return: The radius set by the SIGHT_PROPERTY system property, or DEFAULT_RADIUS
+	 */
+	public static int getConfiguredRadius()
+	{
+		return Integer.getInteger(SIGHT_PROPERTY, DEFAULT_RADIUS);
+	}
+
+	public int getRadius()
+	{
+		return radius;
+	}
+
+	/**
+	 * @param index: The index of the cell
+	 * @return: True if a player can see the cell
+	 */
+	public boolean isVisible(int index)
+	{
+		return seen[index] != 0;
+	}
+
+	/**
+	 * Moves the view of every player that has moved since the last update
+	 * @return: The number of cells that became seen or unseen, listed in getChangedCells
+	 */
+	public int update()
+	{
+		changedCount = 0;
+		for(int i = 0; i < VIEWERS.length; i++)
+		{
+			int at = board.getPlayerIndex(VIEWERS[i]);
+			if(at == viewers[i])
+			{
+				continue;
+			}
+			if(viewers[i] != -1)
+			{
+				for(int cell : getTable(viewers[i]))
+				{
+					if(--seen[cell] == 0)
+					{
+						addChanged(cell);
+					}
+				}
+			}
+			if(at != -1)
+			{
+				for(int cell : getTable(at))
+				{
+					if(seen[cell]++ == 0)
+					{
+						addChanged(cell);
+					}
+				}
+			}
+			viewers[i] = at;
+		}
+		return changedCount;
+	}
+
+	/**
+	 * @return: The cells that became seen or unseen in the last update, of which the first
+	 * update() are filled in. A cell may be listed twice.
+	 */
+	public int[] getChangedCells()
+	{
+		return changedCells;
+	}
+
+	private void addChanged(int index)
+	{
+		if(changedCount == changedCells.length)
+		{
+			changedCells = Arrays.copyOf(changedCells, changedCount*2);
+		}
+		changedCells[changedCount++] = index;
+	}
+
+	/**
+	 * @param index: The index of a cell
+	 * @return: The cells seen from the cell, working them out if no player has stood there before
+	 */
+	private int[] getTable(int index)
+	{
+		if(tables[index] == null)
+		{
+			mark++;
+			tableSize = 0;
+			int column = index % columns;
+			int row = index / columns;
+			addVisible(index);
+			for(int[] octant : OCTANTS)
+			{
+				castLight(column, row, 1, 1.0, 0.0, octant[0], octant[1], octant[2], octant[3]);
+			}
+			tables[index] = Arrays.copyOf(table, tableSize);
+		}
+		return tables[index];
+	}
+
+	/**
+	 * Scans one octant a row at a time going out from the player, between two slopes. When a wall
+	 * starts in a row the part of the octant beyond it is scanned separately with the slopes
+	 * narrowed to go around the wall.
+	 * @param originColumn: The column of the player
+	 * @param originRow: The row of the player
+	 * @param distance: How far out the first row to scan is
+	 * @param start: The slope the scan starts from
+	 * @param end: The slope the scan ends at
+	 * @param xx: Change in column for a step along the row of the octant
+	 * @param xy: Change in column for a step out from the player
+	 * @param yx: Change in row for a step along the row of the octant
+	 * @param yy: Change in row for a step out from the player
+	 */
+	private void castLight(int originColumn, int originRow, int distance, double start, double end, int xx, int xy, int yx, int yy)
+	{
+		if(start < end)
+		{
+			return;
+		}
+		double newStart = 0;
+		for(int j = distance; j <= radius; j++)
+		{
+			int dy = -j;
+			boolean blocked = false;
+			for(int dx = -j; dx <= 0; dx++)
+			{
+				double leftSlope = (dx - 0.5)/(dy + 0.5);
+				double rightSlope = (dx + 0.5)/(dy - 0.5);
+				if(start < rightSlope)
+				{
+					continue;
+				}
+				if(end > leftSlope)
+				{
+					break;
+				}
+
+				int column = originColumn + dx*xx + dy*xy;
+				int row = originRow + dx*yx + dy*yy;
+				boolean inside = column >= 0 && column < columns && row >= 0 && row < rows;
+				int index = row*columns + column;
+				if(inside && dx*dx + dy*dy <= radius*radius + radius)
+				{
+					addVisible(index);
+				}
+
+				boolean wall = !inside || (board.getCell(index) & PuzzleBoard.WALL) != 0;
+				if(blocked)
+				{
+					if(wall)
+					{
+						newStart = rightSlope;
+					}
+					else
+					{
+						blocked = false;
+						start = newStart;
+					}
+				}
+				else if(wall && j < radius)
+				{
+					blocked = true;
+					castLight(originColumn, originRow, j + 1, start, leftSlope, xx, xy, yx, yy);
+					newStart = rightSlope;
+				}
+			}
+			if(blocked)
+			{
+				break;
+			}
+		}
+	}
+
+	private void addVisible(int index)
+	{
+		if(marks[index] == mark)
+		{
+			return;
+		}
+		marks[index] = mark;
+		if(tableSize == table.length)
+		{
+			table = Arrays.copyOf(table, tableSize*2);
+		}
+		table[tableSize++] = index;
+	}
+}
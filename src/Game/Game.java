@@ -5,6 +5,10 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.swing.BoxLayout;
 import javax.swing.JFrame;
@@ -12,25 +16,40 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.ScrollPaneConstants;
+import javax.swing.SwingUtilities;
+
+import Game.ImageFactory.Media;
 
 /**
  * Main class that stores the various JFrames used in navigation and playing of the game. 
  * Handles the construction of these JFrames and the methods to display them. 
  * @field psg: The puzzle generator object for making puzzles
+ * @field scores: The ScoreStore keeping the best results of each level on disk
  * @field gameFrame: JFrame that holds the actual puzzle game screen and its associated JPanels
  * @field menuFrame: JFrame that holds the main menu screen
  * @field levelFrame: JFrame that holds the level select screen
  * @field winFrame: JFrame that holds the win screen
- * @field tutorialFrame: JFrame that holds the tutorial screen
+ * @field tutorialFrame: JFrame that holds the tutorial screen, or null until the tutorial is first shown
+ * @field SERVER_PROPERTY: system property giving the host:port of a GameServer that multiplayer levels are played on
+ * @field shadowMode: boolean for if shadow mode is enabled for the levels this Game shows
+ * @field levelPages: The page of the level select last shown for single player and multiplayer, so returning to it shows the same page
+ * @field simulation: PuzzleSimulation running the level being played, or null
+ * @field joining: GameClient waiting for a second player to join a networked game, or null
  */
 public class Game
 {
 	private static PuzzleGridGenerator psg = new PuzzleGridGenerator();
+	private static ScoreStore scores = new ScoreStore(ScoreStore.DEFAULT_FILE);
 	private JFrame gameFrame;
 	private JFrame menuFrame;
 	private JFrame levelFrame;
 	private JFrame winFrame;
 	private JFrame tutorialFrame;
+	private static final String SERVER_PROPERTY = "warehouseboss.server";
+	private boolean shadowMode;
+	private int[] levelPages = new int[2];
+	private PuzzleSimulation simulation;
+	private GameClient joining;
 	
 	public Game()
 	{
@@ -38,19 +57,6 @@ public class Game
 		this.levelFrame = new JFrame();
 		this.winFrame = new JFrame();
 		
-		this.tutorialFrame = new JFrame();
-		JPanel tutorialPanel = new TutorialPanel(this);
-		JScrollPane scrollPane = new JScrollPane(tutorialPanel);
-		scrollPane.setVerticalScrollBarPolicy(ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS);
-		scrollPane.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
-		
-		tutorialFrame.add(scrollPane);
-		tutorialFrame.setTitle("Tutorial");
-		tutorialFrame.setResizable(true);
-		tutorialFrame.setVisible(true);
-		tutorialFrame.setSize(460, 600);
-		tutorialFrame.setLocationRelativeTo(null);
-		
 		this.menuFrame = new JFrame();
 		TitleMenuPanel menuPanel = new TitleMenuPanel(this, psg);
 		setDefaultLayout(menuPanel, menuFrame);	
@@ -59,12 +65,17 @@ public class Game
 	/**
 	 * The main method which creates a game object and from there
 	 * shows the menu screen and allows the user to open more screens.
+	 * The tile images start loading in the background first, so the menu does not wait for them,
+	 * and the time from the start of the JVM to the menu being shown is logged.
 	 * @param args: Any command line arguments
 	 */
 	public static void main(String[] args)
 	{
+		ImageFactory.startLoading();
 		Game g = new Game();
 		g.showMenuScreen();
+		long startup = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+		Logger.getLogger(Game.class.getName()).log(Level.INFO, "Menu shown " + startup + " ms after start");
 	}
 	
 	/**
@@ -73,7 +84,11 @@ public class Game
 	 */
 	public void showMenuScreen() 
 	{
-		tutorialFrame.setVisible(false);
+		if(tutorialFrame != null)
+		{
+			tutorialFrame.setVisible(false);
+		}
+		stopSimulation();
 		levelFrame.setVisible(false);
 		gameFrame.setVisible(false);
 		winFrame.setVisible(false);
@@ -88,6 +103,7 @@ public class Game
 	 */
 	public void showLevelSelect(boolean multiPlayer) 
 	{
+		stopSimulation();
 		gameFrame.setVisible(false);
 		menuFrame.setVisible(false);
 		winFrame.setVisible(false);
@@ -100,30 +116,130 @@ public class Game
 	/**
 	 * Method that fills the gameFrame with a PuzzleDisplayPanel to display the puzzle grid,
 	 * and a PuzzleControlPanel which displays information and has access buttons.
-	 * Also either creates a PuzzleManager that handles the backend of the actual game logic. 
+	 * Also either creates a PuzzleManager that handles the backend of the actual game logic, 
+	 * run on its own thread by a PuzzleSimulation that the keys and buttons send their input to.
+	 * A multiplayer level is played on the server given by the warehouseboss.server property if it is set.
 	 * @param grid: PuzzleGrid object that is the specified level puzzle that will be used
 	 */
 	public void showGameScreen(PuzzleGrid grid)
 	{
+		String server = System.getProperty(SERVER_PROPERTY);
+		if(grid.isMultiplayer() && server != null)
+		{
+			joinServer(grid, server);
+			return;
+		}
+		PuzzleDisplayPanel panel = new PuzzleDisplayPanel(grid.getRows(), grid.getColumns());
+		PuzzleManager manager = !grid.isMultiplayer() ? new PuzzleManager(null, grid, this) : new PuzzleManagerMultiplayer(null, grid, this);
+		showGameScreen(grid, panel, new PuzzleSimulation(manager, grid, panel, shadowMode));
+	}
+
+	/**
+	 * Connects to a server and waits on another thread for a second player to join the level,
+	 * then shows the game screen of the networked game. Goes back to the level select if the
+	 * address of the server cannot be read, the server cannot be reached or it does not have the level.
+	 * @param grid: PuzzleGrid object of the multiplayer level
+	 * @param server: The host of the server, followed by :port unless the default port is used
+	 */
+	private void joinServer(PuzzleGrid grid, String server)
+	{
+		stopSimulation();
+		levelFrame.setTitle("Waiting for the other player...");
+		Game game = this;
+		Thread connect = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				GameClient client = null;
+				boolean joined = false;
+				try
+				{
+					int colon = server.lastIndexOf(':');
+					String host = colon == -1 ? server : server.substring(0, colon);
+					int port = colon == -1 ? GameServer.DEFAULT_PORT : Integer.parseInt(server.substring(colon + 1));
+					client = new GameClient(host, port);
+					synchronized(game)
+					{
+						joining = client;
+					}
+					joined = client.join(grid.getName());
+				}
+				catch(IOException | IllegalArgumentException e)
+				{
+					Logger.getLogger(Game.class.getName()).log(Level.SEVERE, null, e);
+				}
+				GameClient started = joined ? client : null;
+				GameClient failed = client;
+				SwingUtilities.invokeLater(new Runnable()
+				{
+					public void run()
+					{
+						synchronized(game)
+						{
+							if(failed != null && joining != failed)
+							{
+								return; // left the level select while waiting
+							}
+							joining = null;
+						}
+						if(started == null)
+						{
+							if(failed != null)
+							{
+								failed.close();
+							}
+							showLevelSelect(true);
+							return;
+						}
+						PuzzleDisplayPanel panel = new PuzzleDisplayPanel(grid.getRows(), grid.getColumns());
+						showGameScreen(grid, panel, new PuzzleSimulation(started, game, grid, panel, shadowMode));
+					}
+				});
+			}
+		}, "GameClient");
+		connect.setDaemon(true);
+		connect.start();
+	}
+
+	/**
+	 * Shows the game screen of a level, starting the simulation running it
+	 * @param grid: PuzzleGrid object of the level
+	 * @param panel: PuzzleDisplayPanel the simulation shows the game on
+	 * @param running: PuzzleSimulation of the level, not yet started
+	 */
+	private void showGameScreen(PuzzleGrid grid, PuzzleDisplayPanel panel, PuzzleSimulation running)
+	{
+		stopSimulation();
 		gameFrame.setVisible(false);
 		levelFrame.setVisible(false);
 		menuFrame.setVisible(false);
 		winFrame.setVisible(false);
 		gameFrame = new JFrame();
 		
-		PuzzleDisplayPanel panel = new PuzzleDisplayPanel(grid.getRows(), grid.getColumns());
-		PuzzleManager manager = !grid.isMultiplayer() ? new PuzzleManager(panel, grid, this) : new PuzzleManagerMultiplayer(panel, grid, this);
-		PuzzleControlPanel buttons = new PuzzleControlPanel(manager, grid, this);
+		ScoreStore.Score best = scores.get(grid.isMultiplayer(), grid.getName());
+		if(best != null && (grid.getHighScore() == -1 || best.getMoves() < grid.getHighScore()))
+		{
+			grid.setHighScore(best.getMoves());
+		}
+		
+		PuzzleControlPanel buttons = new PuzzleControlPanel(running, grid, this);
 
 		panel.addKeyListener(new KeyAction()
 		{
 			@Override
 			public void keyPressed(KeyEvent e)
 			{
-				manager.handleKeyPress(e, grid);
-				buttons.updateMoves(manager.getnMoves());
+				running.keyPressed(e.getKeyCode());
+			}
+
+			@Override
+			public void keyReleased(KeyEvent e)
+			{
+				running.keyReleased(e.getKeyCode());
 			}
 		});
+		simulation = running;
+		running.start(buttons);
 
 		gameFrame.add(buttons, BorderLayout.SOUTH);
 		gameFrame.add(panel, BorderLayout.CENTER);
@@ -137,6 +253,60 @@ public class Game
 	}
 	
 
+	/**
+	 * Stops the simulation of the level being played, if there is one, and stops waiting for a
+	 * networked game to start
+	 */
+	private void stopSimulation()
+	{
+		synchronized(this)
+		{
+			if(joining != null)
+			{
+				joining.close();
+				joining = null;
+			}
+		}
+		if(simulation != null)
+		{
+			simulation.stop();
+			simulation = null;
+		}
+	}
+
+	public boolean isShadowMode()
+	{
+		return shadowMode;
+	}
+
+	public void setShadowMode(boolean shadowMode)
+	{
+		this.shadowMode = shadowMode;
+	}
+
+	/**
+	 * @param multiPlayer: boolean for if the page is of the multiplayer levels
+	 * @return: The page of the level select last shown for the mode
+	 */
+	public int getLevelPage(boolean multiPlayer)
+	{
+		return levelPages[multiPlayer ? 1:0];
+	}
+
+	/**
+	 * @param multiPlayer: boolean for if the page is of the multiplayer levels
+	 * @param page: The page of the level select being shown for the mode
+	 */
+	public void setLevelPage(boolean multiPlayer, int page)
+	{
+		levelPages[multiPlayer ? 1:0] = page;
+	}
+
+	public ScoreStore getScoreStore()
+	{
+		return scores;
+	}
+	
 	/**
 	 * Method that fills the winFrame with a panel to display the win screen and allow you to return
 	 * back to the main menu or continue on to complete the next level.
@@ -161,10 +331,25 @@ public class Game
 	
 	/**
 	 * Method that fills the tutorialFrame with a TutorialPanel that gives the user
-	 * instructions on how to play single and multiplayer.
+	 * instructions on how to play single and multiplayer. The frame and its gifs are only
+	 * created the first time the tutorial is shown.
 	 */
 	public void showTutorialScreen() 
 	{
+		if(tutorialFrame == null)
+		{
+			tutorialFrame = new JFrame();
+			JPanel tutorialPanel = new TutorialPanel(this);
+			JScrollPane scrollPane = new JScrollPane(tutorialPanel);
+			scrollPane.setVerticalScrollBarPolicy(ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS);
+			scrollPane.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+			
+			tutorialFrame.add(scrollPane);
+			tutorialFrame.setTitle("Tutorial");
+			tutorialFrame.setResizable(true);
+			tutorialFrame.setSize(460, 600);
+			tutorialFrame.setLocationRelativeTo(null);
+		}
 		tutorialFrame.setVisible(true);
 	}
 	
@@ -177,7 +362,7 @@ public class Game
 	private void setDefaultLayout (JPanel targetPanel, JFrame targetFrame) 
 	{
 		JPanel topWall = new JPanel(new BorderLayout());
-		JLabel topWallLabel = new JLabel(ImageFactory.topWall, JLabel.CENTER);
+		JLabel topWallLabel = new JLabel(ImageFactory.getMedia(Media.TOP_WALL), JLabel.CENTER);
 		topWall.setBackground(ImageFactory.Colors.customOrange);
 		topWall.add(topWallLabel);
 		topWall.setVisible(true);
@@ -191,7 +376,7 @@ public class Game
 		titlePanel.setVisible(true);
 		
 		JPanel bottomWall = new JPanel(new BorderLayout());
-		JLabel bottomWallLabel = new JLabel("", ImageFactory.bottomWall, JLabel.CENTER);
+		JLabel bottomWallLabel = new JLabel("", ImageFactory.getMedia(Media.BOTTOM_WALL), JLabel.CENTER);
 		bottomWall.setBackground(ImageFactory.Colors.customOrange);
 		bottomWall.add(bottomWallLabel);
 		bottomWall.setVisible(true);
@@ -0,0 +1,226 @@
+package Game;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import Game.ImageFactory.Direction;
+import Game.ImageFactory.Player;
+
+/**
+ * One player's connection to a GameServer. The client keeps a copy of the board that is only
+ * changed by the cells the server sends, so it always shows what the server decided rather than
+ * guessing at the result of its own moves. Moves are written straight to the socket, and every
+ * move the server has not answered yet is counted as pending. The board is only changed on the
+ * thread calling receive, which is also the thread that should take snapshots of it.
+ * @field CONNECT_TIMEOUT: The number of milliseconds to wait for the server to answer a connection
+ * @field DIRECTIONS: cached Direction values used to decode facings
+ * @field socket: The socket connected to the server
+ * @field input: The stream messages are read from
+ * @field output: The stream moves are written to
+ * @field move: The frame of a move, reused for every move
+ * @field player: The player this client controls, or null until the match starts
+ * @field board: The copy of the board, or null until the match starts
+ * @field moves: The number of moves taken in the match
+ * @field pending: The number of moves sent that the server has not answered yet
+ */
+public class GameClient
+{
+	private static final int CONNECT_TIMEOUT = 5000;
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private final Socket socket;
+	private final DataInputStream input;
+	private final OutputStream output;
+	private final byte[] move = new byte[2];
+	private Player player;
+	private PuzzleBoard board;
+	private int moves;
+	private final AtomicInteger pending = new AtomicInteger();
+
+	/**
+	 * Connects to a server
+	 * @param host: The name or address of the server
+	 * @param port: The port of the server
+	 * @throws IOException: if the server cannot be reached
+	 */
+	public GameClient(String host, int port) throws IOException
+	{
+		this.socket = new Socket();
+		this.socket.setTcpNoDelay(true);
+		this.socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+		this.input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		this.output = socket.getOutputStream();
+	}
+
+	/**
+	 * Asks to play a multiplayer level and waits for a second player to join it
+	 * @param level: The name of the level
+	 * @return: False if the server has no multiplayer level with the name
+	 * @throws IOException: if the connection fails
+	 */
+	public boolean join(String level) throws IOException
+	{
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+		out.writeByte(GameServer.JOIN);
+		out.writeUTF(level);
+		out.flush();
+
+		byte message = input.readByte();
+		if(message != GameServer.WELCOME)
+		{
+			return false;
+		}
+		player = Player.values()[input.readByte()];
+		int rows = input.readShort();
+		int columns = input.readShort();
+		byte[] cells = new byte[rows*columns];
+		input.readFully(cells);
+		board = new PuzzleBoard(rows, columns, true, cells);
+		readFacings();
+		board.trackChanges();
+		return true;
+	}
+
+	/**
+	 * Sends a move to the server without waiting for the answer
+	 * @param direction: The direction to move in
+	 * @throws IOException: if the connection fails
+	 */
+	public void send(Direction direction) throws IOException
+	{
+		synchronized(move)
+		{
+			move[0] = GameServer.MOVE;
+			move[1] = (byte)direction.ordinal();
+			pending.incrementAndGet();
+			output.write(move);
+		}
+	}
+
+	/**
+	 * Waits for the answer to a move and puts the changed cells onto the board
+	 * @return: False once the match is over
+	 * @throws IOException: if the connection fails
+	 */
+	public boolean receive() throws IOException
+	{
+		byte message;
+		try
+		{
+			message = input.readByte();
+		}
+		catch(EOFException | SocketException e)
+		{
+			return false;
+		}
+		if(message != GameServer.DELTA)
+		{
+			return false;
+		}
+		Player mover = Player.values()[input.readByte()];
+		moves = input.readInt();
+		int count = input.readShort();
+		for(int i = 0; i < count; i++)
+		{
+			int index = input.readInt();
+			board.restoreCell(index, input.readByte());
+		}
+		readFacings();
+		if(mover == player)
+		{
+			pending.decrementAndGet();
+		}
+		return true;
+	}
+
+	private void readFacings() throws IOException
+	{
+		Direction one = DIRECTIONS[input.readByte()];
+		Direction two = DIRECTIONS[input.readByte()];
+		if(board.getFacing(Player.ONE) != one)
+		{
+			board.restoreFacing(Player.ONE, one);
+		}
+		if(board.getFacing(Player.TWO) != two)
+		{
+			board.restoreFacing(Player.TWO, two);
+		}
+	}
+
+	/**
+	 * Takes an immutable copy of the board for drawing, along with the cells changed since the last snapshot
+	 * @param previous: The last snapshot if it has not been drawn yet, whose changed cells are carried over, or null
+	 * @return: The snapshot
+	 */
+	public BoardSnapshot takeSnapshot(BoardSnapshot previous)
+	{
+		BoardSnapshot snapshot = new BoardSnapshot(board, moves, previous);
+		board.clearChanged();
+		return snapshot;
+	}
+
+	/**
+	 * Converts the code of a key into a move of this client's player. Either the arrow keys or
+	 * the WASD keys can be used, as each player has a keyboard of their own.
+	 * @param keyCode: the code of the key pressed
+	 * @return: The PuzzleManager move command, or -1 if the key does nothing
+	 */
+	public int translateKey(int keyCode)
+	{
+		Direction direction = PuzzleManager.translateKeyCode(keyCode);
+		return direction == null ? -1 : PuzzleManager.moveCommand(player, direction);
+	}
+
+	public Player getPlayer()
+	{
+		return player;
+	}
+
+	/**
+	 * @return: The copy of the board, only to be read on the thread calling receive
+	 */
+	PuzzleBoard getBoard()
+	{
+		return board;
+	}
+
+	public int getMoves()
+	{
+		return moves;
+	}
+
+	/**
+	 * @return: The number of moves sent that the server has not answered yet
+	 */
+	public int getPending()
+	{
+		return pending.get();
+	}
+
+	public boolean isSolved()
+	{
+		return board != null && board.isSolved();
+	}
+
+	public void close()
+	{
+		try
+		{
+			socket.close();
+		}
+		catch(IOException e)
+		{
+			Logger.getLogger(GameClient.class.getName()).log(Level.SEVERE, null, e);
+		}
+	}
+}
@@ -0,0 +1,527 @@
+package Game;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import Game.ImageFactory.Direction;
+import Game.ImageFactory.Player;
+
+/**
+ * Authoritative server for multiplayer games played over a network, each player on their own
+ * GameClient. A client joins a level by name and is paired with the next client to join the same
+ * level, the first becoming player one and the second player two. The server owns the board of
+ * every match and is the only one to move pieces on it. A client only sends the direction it wants
+ * to move in, and after every move both clients are sent the cells that changed with their new
+ * codes, the direction each player faces and the move count, rather than the whole board. Every
+ * move is answered, even a blocked one, so a client can tell when its input has been dealt with.
+ * Each connection is served by its own thread, a virtual thread when the JVM has them, so
+ * thousands of players can be connected at once, and the moves of a match are applied and sent one
+ * at a time under the lock of the match, so both clients see the same order of changes. Messages
+ * are small binary frames written in one go with Nagle's algorithm off, to keep the round trip of
+ * a move short. Running the server in the same process on the loopback address is enough to test
+ * clients against it.
+ * Usage: server [port]
+ * @field DEFAULT_PORT: The port the server listens on unless another is given
+ * @field JOIN: message from a client asking to play a level, followed by the name of the level
+ * @field MOVE: message from a client moving its player, followed by the Direction ordinal
+ * @field WELCOME: message starting a match, followed by the client's Player ordinal, the size of the board, every cell and the facings
+ * @field DELTA: message after a move, followed by the Player ordinal of the mover, the move count, the changed cells and the facings
+ * @field END: message ending a match, because it was solved, the other player left or the level does not exist
+ * @field DIRECTIONS: cached Direction values used to decode moves
+ * @field server: The socket connections are accepted on
+ * @field generator: The PuzzleGridGenerator the levels are read from
+ * @field connections: The threads serving the connections
+ * @field waiting: The match of each level waiting for a second player, by level name
+ * @field open: The connections being served
+ * @field matches: The number of matches being played
+ * @field moveCount: The number of moves handled so far
+ */
+public class GameServer
+{
+	public static final int DEFAULT_PORT = 29110;
+	public static final byte JOIN = 1;
+	public static final byte MOVE = 2;
+	public static final byte WELCOME = 3;
+	public static final byte DELTA = 4;
+	public static final byte END = 5;
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	private final ServerSocket server;
+	private final PuzzleGridGenerator generator;
+	private final ExecutorService connections;
+	private final HashMap<String, Match> waiting = new HashMap<String, Match>();
+	private final HashSet<Connection> open = new HashSet<Connection>();
+	private final AtomicInteger matches = new AtomicInteger();
+	private final LongAdder moveCount = new LongAdder();
+
+	/**
+	 * Listens on a port of every address of this machine
+	 * @param port: The port, or 0 for any free port
+	 * @throws IOException: if the port cannot be listened on
+	 */
+	public GameServer(int port) throws IOException
+	{
+		this(new InetSocketAddress(port), new PuzzleGridGenerator());
+	}
+
+	/**
+	 * @param address: The address to listen on
+	 * @param generator: The PuzzleGridGenerator to read the levels from
+	 * @throws IOException: if the address cannot be listened on
+	 */
+	public GameServer(InetSocketAddress address, PuzzleGridGenerator generator) throws IOException
+	{
+		this.server = new ServerSocket();
+		this.server.bind(address, 256);
+		this.generator = generator;
+		this.connections = SessionManager.newThreadPerTaskExecutor("GameServer connection");
+	}
+
+	/**
+	 * Starts a server in this process on a free port of the loopback address, accepting
+	 * connections on a background thread
+	 * @return: The server
+	 * @throws IOException: if no port can be listened on
+	 */
+	public static GameServer startLoopback() throws IOException
+	{
+		GameServer server = new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), new PuzzleGridGenerator());
+		server.start();
+		return server;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		GameServer server = new GameServer(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT);
+		Logger.getLogger(GameServer.class.getName()).log(Level.INFO, "Listening on port " + server.getPort());
+		server.serve();
+	}
+
+	public int getPort()
+	{
+		return server.getLocalPort();
+	}
+
+	/**
+	 * @return: The number of matches being played
+	 */
+	public int getMatchCount()
+	{
+		return matches.get();
+	}
+
+	/**
+	 * @return: The number of moves handled by every match so far
+	 */
+	public long getMoveCount()
+	{
+		return moveCount.sum();
+	}
+
+	/**
+	 * Accepts connections on a background thread
+	 */
+	public void start()
+	{
+		Thread thread = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				serve();
+			}
+		}, "GameServer accept");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Accepts connections until the server is closed, serving each on its own thread
+	 */
+	public void serve()
+	{
+		while(!server.isClosed())
+		{
+			try
+			{
+				Socket socket = server.accept();
+				socket.setTcpNoDelay(true);
+				connections.execute(new Connection(socket));
+			}
+			catch(SocketException e)
+			{
+				// the server was closed
+			}
+			catch(IOException e)
+			{
+				Logger.getLogger(GameServer.class.getName()).log(Level.SEVERE, null, e);
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting connections and closes every connection being served
+	 */
+	public void close()
+	{
+		try
+		{
+			server.close();
+		}
+		catch(IOException e)
+		{
+			Logger.getLogger(GameServer.class.getName()).log(Level.SEVERE, null, e);
+		}
+		Connection[] connected;
+		synchronized(open)
+		{
+			connected = open.toArray(new Connection[open.size()]);
+		}
+		for(Connection connection : connected)
+		{
+			connection.close();
+		}
+		connections.shutdown();
+	}
+
+	/**
+	 * Puts a connection into a match of a level, starting the match if it was waiting for a player.
+	 * Only the waiting list is changed under the lock of the server. The match is started after
+	 * the lock is let go, so a player that stops reading cannot hold up every other join.
+	 * @param connection: The connection joining
+	 * @param level: The name of the level
+	 * @return: The match, or null if there is no multiplayer level with the name
+	 */
+	private Match join(Connection connection, String level) throws IOException
+	{
+		Match match;
+		do
+		{
+			synchronized(this)
+			{
+				match = waiting.remove(level);
+				if(match == null)
+				{
+					return openMatch(connection, level);
+				}
+			}
+		}
+		while(!match.start(connection));
+		return match;
+	}
+
+	/**
+	 * Makes a match of a level for a connection to wait in for a second player. Called under the
+	 * lock of the server.
+	 * @param connection: The connection waiting
+	 * @param level: The name of the level
+	 * @return: The match, or null if there is no multiplayer level with the name
+	 */
+	private Match openMatch(Connection connection, String level)
+	{
+		PuzzleGrid grid;
+		synchronized(generator)
+		{
+			grid = generator.getLevel(true, level);
+		}
+		if(grid == null)
+		{
+			return null;
+		}
+		Match match = new Match(grid.getBoard().copy(), connection);
+		waiting.put(level, match);
+		return match;
+	}
+
+	/**
+	 * Takes a match off the waiting list if it is still waiting for a second player
+	 * @param match: The match
+	 */
+	private synchronized void cancel(Match match)
+	{
+		waiting.values().remove(match);
+	}
+
+	/**
+	 * The board of one match and the connections of its players. The changes of each move are
+	 * written into one frame, which is then sent to both players.
+	 * @field board: The board the match is played on
+	 * @field players: The connection of each player, indexed by Player ordinal
+	 * @field moves: The number of moves taken
+	 * @field started: boolean for if both players have joined
+	 * @field finished: boolean for if the match is over
+	 * @field frame: The frame being written
+	 * @field out: Writes into frame
+	 */
+	private class Match
+	{
+		private final PuzzleBoard board;
+		private final Connection[] players = new Connection[Player.values().length];
+		private int moves;
+		private boolean started;
+		private boolean finished;
+		private final ByteArrayOutputStream frame = new ByteArrayOutputStream(256);
+		private final DataOutputStream out = new DataOutputStream(frame);
+
+		Match(PuzzleBoard board, Connection first)
+		{
+			this.board = board;
+			this.board.trackChanges();
+			this.players[Player.ONE.ordinal()] = first;
+			first.player = Player.ONE;
+		}
+
+		/**
+		 * Adds player two and sends both players the whole board. If the board cannot be sent to
+		 * either player the match is ended before the error is passed on, since the thread of
+		 * player two has no match to end yet.
+		 * @param second: The connection of player two
+		 * @return: False if player one has already left
+		 * @throws IOException: If the board could not be sent, after the match has been ended
+		 */
+		synchronized boolean start(Connection second) throws IOException
+		{
+			if(finished)
+			{
+				return false;
+			}
+			players[Player.TWO.ordinal()] = second;
+			second.player = Player.TWO;
+			started = true;
+			matches.incrementAndGet();
+			try
+			{
+				for(Player player : new Player[] {Player.ONE, Player.TWO})
+				{
+					frame.reset();
+					out.writeByte(WELCOME);
+					out.writeByte(player.ordinal());
+					out.writeShort(board.getRows());
+					out.writeShort(board.getColumns());
+					for(int i = 0; i < board.getSize(); i++)
+					{
+						out.writeByte(board.getCell(i));
+					}
+					writeFacings();
+					players[player.ordinal()].send(frame);
+				}
+			}
+			catch(IOException e)
+			{
+				end();
+				throw e;
+			}
+			board.clearChanged();
+			return true;
+		}
+
+		/**
+		 * Moves a player and sends the changes to both players, ending the match once it is solved
+		 * @param player: The player moving
+		 * @param direction: The direction to move in
+		 */
+		synchronized void move(Player player, Direction direction)
+		{
+			if(!started || finished)
+			{
+				return;
+			}
+			moveCount.increment();
+			if(board.move(player, direction) != PuzzleBoard.BLOCKED)
+			{
+				moves++;
+			}
+			try
+			{
+				frame.reset();
+				out.writeByte(DELTA);
+				out.writeByte(player.ordinal());
+				out.writeInt(moves);
+				out.writeShort(board.getChangedCount());
+				int[] changed = board.getChangedCells();
+				for(int i = 0; i < board.getChangedCount(); i++)
+				{
+					out.writeInt(changed[i]);
+					out.writeByte(board.getCell(changed[i]));
+				}
+				writeFacings();
+			}
+			catch(IOException e)
+			{
+				// never thrown when writing to memory
+			}
+			board.clearChanged();
+			broadcast();
+			if(board.isSolved())
+			{
+				end();
+			}
+		}
+
+		private void writeFacings() throws IOException
+		{
+			out.writeByte(board.getFacing(Player.ONE).ordinal());
+			out.writeByte(board.getFacing(Player.TWO).ordinal());
+		}
+
+		/**
+		 * Sends the frame to every player still connected
+		 */
+		private void broadcast()
+		{
+			for(Connection connection : players)
+			{
+				if(connection != null)
+				{
+					try
+					{
+						connection.send(frame);
+					}
+					catch(IOException e)
+					{
+						connection.close();
+					}
+				}
+			}
+		}
+
+		/**
+		 * Tells both players the match is over and disconnects them
+		 */
+		synchronized void end()
+		{
+			if(finished)
+			{
+				return;
+			}
+			finished = true;
+			if(started)
+			{
+				matches.decrementAndGet();
+			}
+			frame.reset();
+			frame.write(END);
+			broadcast();
+			for(Connection connection : players)
+			{
+				if(connection != null)
+				{
+					connection.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * One client, read on its own thread
+	 * @field socket: The socket of the client
+	 * @field output: The stream frames are written to, one frame at a time
+	 * @field player: The player the client controls, set when it joins a match
+	 */
+	private class Connection implements Runnable
+	{
+		private final Socket socket;
+		private final OutputStream output;
+		private Player player;
+
+		Connection(Socket socket) throws IOException
+		{
+			this.socket = socket;
+			this.output = socket.getOutputStream();
+		}
+
+		/**
+		 * Reads the level to join, then every move until the client disconnects or the match ends
+		 */
+		public void run()
+		{
+			synchronized(open)
+			{
+				open.add(this);
+			}
+			Match match = null;
+			try
+			{
+				DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				if(input.readByte() != JOIN)
+				{
+					return;
+				}
+				match = join(this, input.readUTF());
+				if(match == null)
+				{
+					output.write(END);
+					return;
+				}
+				while(true)
+				{
+					byte message = input.readByte();
+					int direction = input.readByte();
+					if(message != MOVE || direction < 0 || direction >= DIRECTIONS.length)
+					{
+						return;
+					}
+					match.move(player, DIRECTIONS[direction]);
+				}
+			}
+			catch(EOFException | SocketException e)
+			{
+				// the client disconnected or the match ended
+			}
+			catch(IOException e)
+			{
+				Logger.getLogger(GameServer.class.getName()).log(Level.SEVERE, null, e);
+			}
+			finally
+			{
+				if(match != null)
+				{
+					cancel(match);
+					match.end();
+				}
+				close();
+				synchronized(open)
+				{
+					open.remove(this);
+				}
+			}
+		}
+
+		/**
+		 * Writes a whole frame to the client
+		 * @param frame: The frame
+		 */
+		synchronized void send(ByteArrayOutputStream frame) throws IOException
+		{
+			frame.writeTo(output);
+		}
+
+		void close()
+		{
+			try
+			{
+				socket.close();
+			}
+			catch(IOException e)
+			{
+				Logger.getLogger(GameServer.class.getName()).log(Level.SEVERE, null, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,228 @@
+package Game;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import Game.ImageFactory.Direction;
+import Game.ImageFactory.Player;
+
+/**
+ * One game run by a SessionManager, independent of every other session. A session has its own
+ * PuzzleManager, made without a panel or a Game, so it shares nothing with other sessions but the
+ * PuzzleGrid it was started from, which it only reads. Its settings are its own as well, rather
+ * than read from anything global. Commands are the PuzzleManager commands, put on a small bounded
+ * queue by whoever drives the session, such as a bot, and carried out on the session's own thread,
+ * which publishes a BoardSnapshot after every batch of commands waiting.
+ * A session ends once its level is solved, once it has taken its limit of moves, or when it is
+ * closed. The limit keeps the memory of a session bounded, as the moves taken are recorded so
+ * they can be undone.
+ * @field RUNNING: state of a session still taking commands
+ * @field SOLVED: state of a session whose level was solved
+ * @field LIMIT: state of a session that took its limit of moves
+ * @field CLOSED: state of a session that was closed
+ * @field INPUT_CAPACITY: The number of commands that can wait on the queue
+ * @field STOP: command put on the queue to wake the session thread when it is closed, which does nothing
+ * @field PLAYERS: cached Player values used to decode move commands
+ * @field DIRECTIONS: cached Direction values used to decode move commands
+ * @field id: The number of the session, unique in its SessionManager
+ * @field grid: The level being played, which is only read
+ * @field shadowMode: boolean for if shadow mode is enabled when the session is shown
+ * @field moveLimit: The number of moves the session may take
+ * @field manager: The PuzzleManager the commands are carried out by, only used on the session thread
+ * @field metrics: The SessionManager counting the commands carried out
+ * @field input: The commands waiting to be carried out
+ * @field published: The newest snapshot of the game
+ * @field state: The state of the session, which leaves RUNNING only once, by compareAndSet
+ * @field ended: Released once the session has ended
+ */
+public class GameSession implements Runnable
+{
+	public static final int RUNNING = 0;
+	public static final int SOLVED = 1;
+	public static final int LIMIT = 2;
+	public static final int CLOSED = 3;
+	private static final int INPUT_CAPACITY = 16;
+	private static final int STOP = -1;
+	private static final Player[] PLAYERS = Player.values();
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private final int id;
+	private final PuzzleGrid grid;
+	private final boolean shadowMode;
+	private final int moveLimit;
+	private final PuzzleManager manager;
+	private final SessionManager metrics;
+	private final ArrayBlockingQueue<Integer> input = new ArrayBlockingQueue<Integer>(INPUT_CAPACITY);
+	private final AtomicReference<BoardSnapshot> published = new AtomicReference<BoardSnapshot>();
+	private final AtomicInteger state = new AtomicInteger(RUNNING);
+	private final CountDownLatch ended = new CountDownLatch(1);
+
+	/**
+	 * @param id: The number of the session
+	 * @param grid: The level to play
+	 * @param shadowMode: boolean for if shadow mode is enabled when the session is shown
+	 * @param moveLimit: The number of moves the session may take
+	 * @param metrics: The SessionManager to count the commands carried out in
+	 */
+	GameSession(int id, PuzzleGrid grid, boolean shadowMode, int moveLimit, SessionManager metrics)
+	{
+		this.id = id;
+		this.grid = grid;
+		this.shadowMode = shadowMode;
+		this.moveLimit = moveLimit;
+		this.metrics = metrics;
+		this.manager = !grid.isMultiplayer() ? new PuzzleManager(null, grid, null) : new PuzzleManagerMultiplayer(null, grid, null);
+		this.published.set(manager.takeSnapshot(null));
+	}
+
+	/**
+	 * Carries out commands as they arrive until the session ends
+	 */
+	public void run()
+	{
+		try
+		{
+			while(state.get() == RUNNING)
+			{
+				Integer command = input.take();
+				int count = 0;
+				while(command != null && state.get() == RUNNING)
+				{
+					carryOut(command);
+					count++;
+					command = input.poll();
+				}
+				metrics.countCommands(count);
+				published.set(manager.takeSnapshot(null));
+			}
+		}
+		catch(InterruptedException e)
+		{
+			state.compareAndSet(RUNNING, CLOSED);
+		}
+		finally
+		{
+			input.clear();
+			metrics.sessionEnded(this);
+			ended.countDown();
+		}
+	}
+
+	/**
+	 * Carries out one command on the session thread, ending the session once the level is solved
+	 * or the move limit is reached
+	 * @param command: The PuzzleManager command
+	 */
+	private void carryOut(int command)
+	{
+		switch(command)
+		{
+			case PuzzleManager.UNDO:	manager.reloadLastLabelState(); break;
+			case PuzzleManager.REDO:	manager.redoLastLabelState(); break;
+			case PuzzleManager.RESET:	manager.resetGame(); break;
+			default:
+				int move = command - PuzzleManager.MOVE;
+				if(move < 0 || move >= PuzzleManager.COMMAND_COUNT - PuzzleManager.MOVE)
+				{
+					return;
+				}
+				manager.move(PLAYERS[Player.ONE.ordinal() + move / DIRECTIONS.length], DIRECTIONS[move % DIRECTIONS.length]);
+		}
+		if(manager.isSolved())
+		{
+			state.compareAndSet(RUNNING, SOLVED);
+		}
+		else if(manager.getnMoves() >= moveLimit)
+		{
+			state.compareAndSet(RUNNING, LIMIT);
+		}
+	}
+
+	/**
+	 * Queues a command without waiting, dropping it if the queue is full or the session has ended
+	 * @param command: The PuzzleManager command
+	 * @return: boolean for if the command was queued
+	 */
+	public boolean offer(int command)
+	{
+		return state.get() == RUNNING && input.offer(command);
+	}
+
+	/**
+	 * Queues a command, waiting for room on the queue
+	 * @param command: The PuzzleManager command
+	 * @return: boolean for if the command was queued, false if the session has ended
+	 * @throws InterruptedException: if the calling thread is interrupted while waiting
+	 */
+	public boolean submit(int command) throws InterruptedException
+	{
+		while(state.get() == RUNNING)
+		{
+			if(input.offer(command, 10, TimeUnit.MILLISECONDS))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Ends the session, dropping any commands still waiting
+	 */
+	public void close()
+	{
+		if(state.compareAndSet(RUNNING, CLOSED))
+		{
+			input.offer(STOP);
+		}
+	}
+
+	/**
+	 * Waits for the session to end
+	 * @param millis: The longest time to wait in milliseconds
+	 * @return: boolean for if the session ended in time
+	 * @throws InterruptedException: if the calling thread is interrupted while waiting
+	 */
+	public boolean awaitEnd(long millis) throws InterruptedException
+	{
+		return ended.await(millis, TimeUnit.MILLISECONDS);
+	}
+
+	public int getId()
+	{
+		return id;
+	}
+
+	public PuzzleGrid getGrid()
+	{
+		return grid;
+	}
+
+	public boolean isShadowMode()
+	{
+		return shadowMode;
+	}
+
+	public int getMoveLimit()
+	{
+		return moveLimit;
+	}
+
+	/**
+	 * @return: RUNNING, SOLVED, LIMIT or CLOSED
+	 */
+	public int getState()
+	{
+		return state.get();
+	}
+
+	/**
+	 * @return: The newest snapshot of the game, taken after the last batch of commands carried out
+	 */
+	public BoardSnapshot getSnapshot()
+	{
+		return published.get();
+	}
+}
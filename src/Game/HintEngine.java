@@ -0,0 +1,259 @@
+package Game;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Finds hints for the player by solving the puzzle from the position being shown, on a background
+ * thread so the Event Dispatch Thread never waits for a search. Only the newest request matters:
+ * asking for a hint cancels the search still running for an older position by interrupting it,
+ * and a result that arrives for a position the player has already left is thrown away.
+ * Solutions are cached by a hash of the state they start from, and each cached plan keeps the
+ * cells of its state so a plan is only used for the state it was found for, never for another
+ * state with the same hash. Every state along a solution found is cached with the rest of the
+ * solution, so a player following the hints, or undoing back to a position seen before, gets the
+ * next hint straight away without another search. Positions the solver proved to have no
+ * solution, and positions it gave up on, are cached with no solution, so asking again from a
+ * position too hard to solve answers straight away instead of searching until the time limit again.
+ * @field CACHE_SIZE: The number of states kept in the cache, the least recently used being dropped first
+ * @field TIME_LIMIT: The number of milliseconds a search may take before it gives up
+ * @field searches: The thread the searches run on
+ * @field solver: The PuzzleSolver, only used on the search thread
+ * @field cache: The plans found so far by the hash of the state they start from, only used under its lock
+ * @field running: The search running or waiting to run, or null
+ * @field generation: Counts the requests, so results of old requests can be told apart
+ */
+public class HintEngine
+{
+	private static final int CACHE_SIZE = 4096;
+	private static final long TIME_LIMIT = 10000;
+	private final ExecutorService searches;
+	private final PuzzleSolver solver = new PuzzleSolver();
+	private final LinkedHashMap<Long, Plan> cache = new LinkedHashMap<Long, Plan>(64, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Plan> eldest)
+		{
+			return size() > CACHE_SIZE;
+		}
+	};
+	private Future<?> running;
+	private int generation;
+
+	public HintEngine()
+	{
+		this.solver.setTimeLimit(TIME_LIMIT);
+		this.searches = Executors.newSingleThreadExecutor(new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, "HintEngine");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Asks for a hint from a position, cancelling the hint being searched for, if any. Called on
+	 * the Event Dispatch Thread, and the hint is handed over on it too: straight away if the
+	 * position is in the cache, otherwise once the search finishes.
+	 * @param board: The position, which must not be changed afterwards, such as the board of a BoardSnapshot
+	 * @param onHint: Given the steps that solve the puzzle from the position, or null if none were found, now or by an earlier search
+	 * @return: boolean for if the hint was already known and has been handed over
+	 */
+	public boolean request(PuzzleBoard board, Consumer<PuzzleSolution> onHint)
+	{
+		cancel();
+		long key = hash(board);
+		Plan known;
+		synchronized(cache)
+		{
+			known = cache.get(key);
+		}
+		if(known != null && known.isFor(board))
+		{
+			onHint.accept(known.getRemaining());
+			return true;
+		}
+
+		int requested = generation;
+		running = searches.submit(new Runnable()
+		{
+			public void run()
+			{
+				PuzzleSolution solution = solver.solve(board);
+				if(Thread.currentThread().isInterrupted())
+				{
+					return;
+				}
+				if(solution != null)
+				{
+					remember(board, solution);
+				}
+				else
+				{
+					synchronized(cache)
+					{
+						cache.put(key, new Plan(board, null, 0));
+					}
+				}
+				SwingUtilities.invokeLater(new Runnable()
+				{
+					public void run()
+					{
+						if(requested == generation)
+						{
+							running = null;
+							onHint.accept(solution);
+						}
+					}
+				});
+			}
+		});
+		return false;
+	}
+
+	/**
+	 * Caches every state along a solution with the steps left from it
+	 * @param board: The state the solution starts from
+	 * @param solution: The solution
+	 */
+	private void remember(PuzzleBoard board, PuzzleSolution solution)
+	{
+		PuzzleBoard walk = board.copy();
+		long[] keys = new long[solution.getMoveCount() + 1];
+		Plan[] plans = new Plan[keys.length];
+		keys[0] = hash(walk);
+		plans[0] = new Plan(walk, solution, 0);
+		for(int i = 0; i < solution.getMoveCount(); i++)
+		{
+			walk.move(solution.getPlayer(i), solution.getDirection(i));
+			keys[i + 1] = hash(walk);
+			plans[i + 1] = new Plan(walk, solution, i + 1);
+		}
+		synchronized(cache)
+		{
+			for(int i = 0; i < keys.length; i++)
+			{
+				cache.put(keys[i], plans[i]);
+			}
+		}
+	}
+
+	/**
+	 * Cancels the hint being searched for, so its result is never handed over. Called on the
+	 * Event Dispatch Thread, such as when the player moves.
+	 */
+	public void cancel()
+	{
+		generation++;
+		if(running != null)
+		{
+			running.cancel(true);
+			running = null;
+		}
+	}
+
+	/**
+	 * @return: boolean for if a hint is being searched for
+	 */
+	public boolean isSearching()
+	{
+		return running != null;
+	}
+
+	/**
+	 * Cancels the search running and stops the search thread
+	 */
+	public void close()
+	{
+		cancel();
+		searches.shutdownNow();
+	}
+
+	/**
+	 * Hashes the packed code of every cell of a board with FNV-1a, along with its width, so the
+	 * same boxes and players on another level hash differently
+	 * @param board: The board
+	 * @return: The hash
+	 */
+	static long hash(PuzzleBoard board)
+	{
+		long hash = 0xcbf29ce484222325L ^ board.getColumns();
+		for(int index = 0; index < board.getSize(); index++)
+		{
+			hash = (hash ^ board.getCell(index)) * 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * A solution and the position in it that a cached state was reached at
+	 * @field columns: The number of columns of the board of the state
+	 * @field cells: The packed code of every cell of the state
+	 * @field solution: The solution, or null for a state no solution was found from
+	 * @field from: The number of steps of the solution taken to reach the state
+	 */
+	private static class Plan
+	{
+		private final int columns;
+		private final byte[] cells;
+		private final PuzzleSolution solution;
+		private final int from;
+
+		/**
+		 * @param board: The state, whose cells are copied
+		 * @param solution: The solution, or null if none was found
+		 * @param from: The number of steps of the solution taken to reach the state
+		 */
+		Plan(PuzzleBoard board, PuzzleSolution solution, int from)
+		{
+			this.columns = board.getColumns();
+			this.cells = new byte[board.getSize()];
+			for(int index = 0; index < cells.length; index++)
+			{
+				cells[index] = board.getCell(index);
+			}
+			this.solution = solution;
+			this.from = from;
+		}
+
+		/**
+		 * @param board: A state with the same hash
+		 * @return: boolean for if the plan was made for the state, rather than for another with the same hash
+		 */
+		boolean isFor(PuzzleBoard board)
+		{
+			if(board.getColumns() != columns || board.getSize() != cells.length)
+			{
+				return false;
+			}
+			for(int index = 0; index < cells.length; index++)
+			{
+				if(board.getCell(index) != cells[index])
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @return: The steps left from the state, or null if no solution was found from it
+		 */
+		PuzzleSolution getRemaining()
+		{
+			return solution == null ? null : solution.getRemaining(from);
+		}
+	}
+}
@@ -1,10 +1,16 @@
 package Game;
 
 import java.awt.Color;
-import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -13,24 +19,24 @@ import javax.swing.ImageIcon;
 
 /**
  * Class used for storing fixed values, enums, as well as images. 
- * @field DESIRED_HEIGHT: desired height of images
+ * Nothing is loaded when the class is first used. The tile images are decoded, and scaled to
+ * DESIRED_HEIGHT in the SpriteCache, in parallel on background threads once startLoading is
+ * called, which the game does before building the menu, and asking for a tile only waits for that
+ * tile. The menu and tutorial media are each loaded the first time they are asked for.
+ * @field DESIRED_HEIGHT: default height of tiles, used by PuzzleLabels and as the largest tile a board is fitted with
  * @field Player: enum for the player
  * @field Type: enum for the tiles type
+ * @field Direction: enum for the four directions a player can move in
+ * @field Media: enum for the menu and tutorial images
  * @field images: array of strings corresponding to the file names of images
- * @field puzzleIcons: array of ImageIcons
- * @field topWall: image used for the top section of menus
- * @field bottomWall: image used for the bottom section of menus
- * @field tutorialGif: gif used in the tutorial section
- * @field undoGif: gif showing the undo functionality in tutorial
- * @field resetGif: gif showing the reset functionality in tutorial
- * @field shadowGif1: first gif showing off shadow feature
- * @field shadowGif2: second gif showing off shadow feature
- * @field multiPlayerGif: gif showing how multiplayer works
+ * @field tileLoads: The decoding of each full size tile image, indexed by Type ordinal, or null before loading has started
+ * @field icons: The ImageIcon of each tile at DESIRED_HEIGHT, indexed by Type ordinal, created on first use
+ * @field media: The menu and tutorial images loaded so far, indexed by Media ordinal
  *
  */
 public class ImageFactory
 {
-	private static final int DESIRED_HEIGHT = 50;
+	public static final int DESIRED_HEIGHT = 50;
 	public static enum Player
 	{
 		NONE,
@@ -58,6 +64,59 @@ public class ImageFactory
 		P2_LEFT,
 		P2_RIGHT,
 	}
+	public static enum Direction
+	{
+		UP(-1, 0, 'u'),
+		DOWN(1, 0, 'd'),
+		LEFT(0, -1, 'l'),
+		RIGHT(0, 1, 'r');
+		
+		public final int rowStep;
+		public final int columnStep;
+		public final char letter;
+		
+		private Direction(int rowStep, int columnStep, char letter)
+		{
+			this.rowStep = rowStep;
+			this.columnStep = columnStep;
+			this.letter = letter;
+		}
+		
+		/**
+		 * Reads a direction from the lower or upper case letter used for it in LURD move strings
+		 * @param c: The letter
+		 * @return: The direction or null if the letter is not one of l, u, r or d
+		 */
+		public static Direction fromLetter(char c)
+		{
+			switch(Character.toLowerCase(c))
+			{
+				case 'u':	return UP;
+				case 'd':	return DOWN;
+				case 'l':	return LEFT;
+				case 'r':	return RIGHT;
+			}
+			return null;
+		}
+	}
+	public static enum Media
+	{
+		TOP_WALL("src/menu/topwall.jpg"),
+		BOTTOM_WALL("src/menu/bottomwall.jpg"),
+		TUTORIAL("src/tutorial/tutorial.gif"),
+		UNDO("src/tutorial/UndoButton.gif"),
+		RESET("src/tutorial/ResetButton.gif"),
+		SHADOW_ONE("src/tutorial/shadow1.gif"),
+		SHADOW_TWO("src/tutorial/shadow2.gif"),
+		MULTIPLAYER("src/tutorial/multiplayer.gif");
+		
+		public final String path;
+		
+		private Media(String path)
+		{
+			this.path = path;
+		}
+	}
 	private static String[] images =
 	{
 		"Empty.png",
@@ -79,21 +138,9 @@ public class ImageFactory
 		"P2_Left.png",
 		"P2_Right.png",
 	};
-	public static final ImageIcon[] puzzleIcons = loadImages();
-	
-	//Images for the title menu panel
-	public static final ImageIcon topWall = new ImageIcon("src/menu/topwall.jpg");
-	public static final ImageIcon bottomWall = new ImageIcon("src/menu/bottomwall.jpg");
-
-	//Images for the tutorial panel
-	public static final ImageIcon tutorialGif = new ImageIcon("src/tutorial/tutorial.gif");
-	public static final ImageIcon undoGif = new ImageIcon("src/tutorial/UndoButton.gif");
-	public static final ImageIcon resetGif = new ImageIcon("src/tutorial/ResetButton.gif");
-	public static final ImageIcon shadowGif1 = new ImageIcon("src/tutorial/shadow1.gif");
-	public static final ImageIcon shadowGif2 = new ImageIcon("src/tutorial/shadow2.gif");
-	
-	//Images for multiplayer tutorial panel
-	public static final ImageIcon multiplayerGif = new ImageIcon("src/tutorial/multiplayer.gif");
+	private static ArrayList<Future<BufferedImage>> tileLoads;
+	private static final ImageIcon[] icons = new ImageIcon[Type.values().length];
+	private static final ImageIcon[] media = new ImageIcon[Media.values().length];
 	
 	static class Colors
 	{
@@ -101,52 +148,110 @@ public class ImageFactory
 	}
 
 	/**
-	 * Initializes the images array with the ImageIcons from the filenames
-	 * @return an array of ImageIcons from the type enums
+	 * Starts decoding every tile image on background threads, one thread per processor, each
+	 * then putting its tile at DESIRED_HEIGHT into the SpriteCache. Does nothing if loading has
+	 * already started.
 	 */
- 	private static ImageIcon[] loadImages()
+	public static synchronized void startLoading()
 	{
- 		ImageIcon[] icons = new ImageIcon[images.length];
-		for(Type t : Type.values())
+		if(tileLoads != null)
+		{
+			return;
+		}
+		ExecutorService loaders = Executors.newFixedThreadPool(Math.min(images.length, Runtime.getRuntime().availableProcessors()), new ThreadFactory()
 		{
-			int index = t.ordinal();
-			icons[index] =loadIcon(images[index]);
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, "ImageFactory loader");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		tileLoads = new ArrayList<Future<BufferedImage>>(images.length);
+		for(final Type t : Type.values())
+		{
+			tileLoads.add(loaders.submit(new Callable<BufferedImage>()
+			{
+				public BufferedImage call()
+				{
+					BufferedImage source = loadImage(images[t.ordinal()]);
+					SpriteCache.getDefault().prepare(t, source, DESIRED_HEIGHT, 1.0);
+					return source;
+				}
+			}));
 		}
-		return icons;
+		loaders.shutdown();
 	}
 
- 	/**
- 	 * Converts an image file loaded from a filename into an ImageIcon
- 	 * @param filename: The name of the file to convert
- 	 * @return: The converted ImageIcon
- 	 */
-	private static ImageIcon loadIcon(String filename)
+	/**
+	 * Gets the full size image of a tile as it was decoded, starting the loading if it has not
+	 * been started and waiting for the tile if it is still being loaded
+	 * @param type: The type of the tile
+	 * @return: The image of the tile, or null if it could not be loaded or the thread was interrupted while waiting
+	 */
+	public static BufferedImage getSource(Type type)
 	{
-		return new ImageIcon(resizeImage(filename));
+		ArrayList<Future<BufferedImage>> loads;
+		synchronized(ImageFactory.class)
+		{
+			startLoading();
+			loads = tileLoads;
+		}
+		try
+		{
+			return loads.get(type.ordinal()).get();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		catch(ExecutionException e)
+		{
+			Logger.getLogger(ImageFactory.class.getName()).log(Level.SEVERE, "Could not load " + images[type.ordinal()], e);
+			return null;
+		}
 	}
 
 	/**
-	 * Loads an image of the given filename and resizes its dimensions
-	 * to have the same height as DESIRED_HEIGHT
-	 * @param filename: The name of the image file to load and resize
-	 * @return: The resized image
+	 * Gets the image of a tile at DESIRED_HEIGHT, waiting for the tile if it is still being loaded.
+	 * A blank image handed out because the wait was interrupted is not kept.
+	 * @param type: The type of the tile
+	 * @return: The ImageIcon of the tile
 	 */
-	private static BufferedImage resizeImage(String filename)
+	public static ImageIcon getIcon(Type type)
 	{
-		BufferedImage originalImage = loadImage(filename);
-
-		int originalHeight = originalImage.getHeight();
-		int originalWidth = originalImage.getWidth();
-		int newHeight = DESIRED_HEIGHT;
-		int newWidth = newHeight * (originalWidth/originalHeight);
-
-		BufferedImage resizedImage = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_ARGB);
-		Graphics2D g = resizedImage.createGraphics();
-
-		g.drawImage(originalImage, 0, 0, newWidth, newHeight, null);
-		g.dispose();
+		ImageIcon icon;
+		synchronized(icons)
+		{
+			icon = icons[type.ordinal()];
+		}
+		if(icon == null)
+		{
+			icon = new ImageIcon(SpriteCache.getDefault().getSprite(type, DESIRED_HEIGHT, 1.0));
+			if(!Thread.currentThread().isInterrupted())
+			{
+				synchronized(icons)
+				{
+					icons[type.ordinal()] = icon;
+				}
+			}
+		}
+		return icon;
+	}
 
-		return resizedImage;
+	/**
+	 * Gets a menu or tutorial image, loading it the first time it is asked for
+	 * @param m: The image to get
+	 * @return: The ImageIcon of the image
+	 */
+	public static synchronized ImageIcon getMedia(Media m)
+	{
+		if(media[m.ordinal()] == null)
+		{
+			media[m.ordinal()] = new ImageIcon(m.path);
+		}
+		return media[m.ordinal()];
 	}
 
 	/**
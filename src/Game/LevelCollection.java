@@ -0,0 +1,387 @@
+package Game;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A collection of levels in the XSB text format used by most Sokoban level packs. Opening a
+ * collection makes one pass over the file that only notes where each level starts and how long
+ * it is, and a level is parsed from the file the first time it is asked for, so opening a pack of
+ * thousands of levels costs a few bytes per level rather than a PuzzleGrid per level.
+ * A level is a run of lines made of the board characters below, the first of which contains a
+ * wall, ended by a blank line or any other line. Its name is taken from a "Title:" line after the
+ * board or, failing that, from the last other line before it, without any leading ';'.
+ * Multiplayer levels extend the format with characters for player two.
+ * Run length encoded boards are not supported.
+ * <pre>
+ * #  wall              (space) - _  floor
+ * @  player           +  player on a goal
+ * $  box              *  box on a goal
+ * .  goal
+ * &  player two       !  player two on a goal of player two
+ * %  box of player two
+ * =  box of player two on a goal of player two
+ * :  goal of player two
+ * </pre>
+ * @field TITLE: The start of a line naming the level above it
+ * @field INITIAL_CAPACITY: The number of levels allocated for up front
+ * @field file: The file the levels are read from
+ * @field multiplayer: boolean for if the levels are multiplayer levels
+ * @field offsets: The byte offset in the file of the first line of each level
+ * @field lengths: The number of bytes from the first line to the end of the last line of each level
+ * @field names: The name of each level, or null when it has none
+ * @field size: The number of levels in the collection
+ * @field loaded: The levels parsed so far, by index
+ * @field byName: The index of each named level by its name, built the first time a name is looked up
+ */
+public class LevelCollection
+{
+	private static final String TITLE = "Title:";
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final File file;
+	private final boolean multiplayer;
+	private long[] offsets = new long[INITIAL_CAPACITY];
+	private int[] lengths = new int[INITIAL_CAPACITY];
+	private String[] names = new String[INITIAL_CAPACITY];
+	private int size;
+	private final HashMap<Integer, PuzzleGrid> loaded = new HashMap<Integer, PuzzleGrid>();
+	private HashMap<String, Integer> byName;
+
+	/**
+	 * Opens a collection and notes where each of its levels is. A file that cannot be read is
+	 * logged and gives an empty collection.
+	 * @param file: The XSB file to read
+	 * @param multiplayer: boolean for if the levels are multiplayer levels
+	 */
+	public LevelCollection(File file, boolean multiplayer)
+	{
+		this.file = file;
+		this.multiplayer = multiplayer;
+		try
+		{
+			index();
+		}
+		catch(IOException e)
+		{
+			Logger.getLogger(LevelCollection.class.getName()).log(Level.SEVERE, "Could not read levels from " + file, e);
+			size = 0;
+		}
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isMultiplayer()
+	{
+		return multiplayer;
+	}
+
+	public File getFile()
+	{
+		return file;
+	}
+
+	/**
+	 * @param index: The index of the level
+	 * @return: The name of the level, or "Level " and its number counting from one if it has none
+	 */
+	public String getName(int index)
+	{
+		return names[index] != null ? names[index] : "Level " + (index + 1);
+	}
+
+	/**
+	 * Finds a level by its name. The names are only put into a table the first time this is
+	 * called, so collections that are only ever browsed by index do not pay for it.
+	 * @param name: The name of the level
+	 * @return: The index of the first level with the name, or -1 if there is none
+	 */
+	public int indexOf(String name)
+	{
+		if(byName == null)
+		{
+			byName = new HashMap<String, Integer>(size*2);
+			for(int i = size - 1; i >= 0; i--)
+			{
+				byName.put(getName(i), i);
+			}
+		}
+		Integer index = byName.get(name);
+		return index != null ? index : -1;
+	}
+
+	/**
+	 * @param page: The page, counting from zero
+	 * @param pageSize: The number of levels on each page
+	 * @return: The index of the first level on the page
+	 */
+	public int getPageStart(int page, int pageSize)
+	{
+		return Math.min(page*pageSize, size);
+	}
+
+	/**
+	 * @param page: The page, counting from zero
+	 * @param pageSize: The number of levels on each page
+	 * @return: The index after the last level on the page
+	 */
+	public int getPageEnd(int page, int pageSize)
+	{
+		return Math.min((page + 1)*pageSize, size);
+	}
+
+	/**
+	 * @param pageSize: The number of levels on each page
+	 * @return: The number of pages the levels fill, at least one
+	 */
+	public int getPageCount(int pageSize)
+	{
+		return Math.max(1, (size + pageSize - 1) / pageSize);
+	}
+
+	/**
+	 * Gets a level, reading it from the file the first time it is asked for. The same PuzzleGrid
+	 * is returned every time after that, so its high score is kept.
+	 * @param index: The index of the level
+	 * @return: The level, or null if there is no level with the index or it could not be read
+	 */
+	public PuzzleGrid getLevel(int index)
+	{
+		if(index < 0 || index >= size)
+		{
+			return null;
+		}
+		PuzzleGrid level = loaded.get(index);
+		if(level == null)
+		{
+			try
+			{
+				level = parse(index, read(index));
+			}
+			catch(IOException | IllegalArgumentException e)
+			{
+				Logger.getLogger(LevelCollection.class.getName()).log(Level.SEVERE, "Could not load level " + index + " of " + file, e);
+				return null;
+			}
+			loaded.put(index, level);
+		}
+		return level;
+	}
+
+	/**
+	 * @param c: A character of an XSB board
+	 * @return: True if the character can be part of a board
+	 */
+	public static boolean isBoardCharacter(int c)
+	{
+		return encodeCell(c) != -1;
+	}
+
+	/**
+	 * @param c: A character of an XSB board
+	 * @return: The packed cell code of the character, or -1 if it is not a board character
+	 */
+	public static int encodeCell(int c)
+	{
+		switch(c)
+		{
+			case '#': return PuzzleBoard.WALL;
+			case ' ':
+			case '-':
+			case '_': return 0;
+			case '@': return PuzzleBoard.PLAYER;
+			case '+': return PuzzleBoard.PLAYER | PuzzleBoard.GOAL;
+			case '$': return PuzzleBoard.BOX;
+			case '*': return PuzzleBoard.BOX | PuzzleBoard.GOAL;
+			case '.': return PuzzleBoard.GOAL;
+			case '&': return PuzzleBoard.PLAYER | PuzzleBoard.OWNER_TWO;
+			case '!': return PuzzleBoard.PLAYER | PuzzleBoard.OWNER_TWO | PuzzleBoard.GOAL | PuzzleBoard.GOAL_TWO;
+			case '%': return PuzzleBoard.BOX | PuzzleBoard.OWNER_TWO;
+			case '=': return PuzzleBoard.BOX | PuzzleBoard.OWNER_TWO | PuzzleBoard.GOAL | PuzzleBoard.GOAL_TWO;
+			case ':': return PuzzleBoard.GOAL | PuzzleBoard.GOAL_TWO;
+		}
+		return -1;
+	}
+
+	/**
+	 * Makes the one pass over the file, reading it a line at a time without keeping the lines
+	 */
+	private void index() throws IOException
+	{
+		try(InputStream in = new BufferedInputStream(new FileInputStream(file)))
+		{
+			byte[] line = new byte[256];
+			long offset = 0;
+			long lineStart = 0;
+			int length = 0;
+			long levelStart = -1;
+			long levelEnd = 0;
+			String before = null;
+			int c;
+			do
+			{
+				c = in.read();
+				if(c != '\n' && c != -1)
+				{
+					if(length == line.length)
+					{
+						line = Arrays.copyOf(line, length*2);
+					}
+					line[length++] = (byte)c;
+					offset++;
+					continue;
+				}
+
+				int end = length;
+				while(end > 0 && (line[end - 1] == '\r' || line[end - 1] == ' ' || line[end - 1] == '\t'))
+				{
+					end--;
+				}
+				if(isBoardLine(line, end, levelStart != -1))
+				{
+					if(levelStart == -1)
+					{
+						levelStart = lineStart;
+						add(levelStart, before);
+						before = null;
+					}
+					levelEnd = lineStart + length;
+				}
+				else
+				{
+					if(levelStart != -1)
+					{
+						lengths[size - 1] = (int)(levelEnd - levelStart);
+						levelStart = -1;
+					}
+					String text = new String(line, 0, end, StandardCharsets.UTF_8).trim();
+					if(text.startsWith(TITLE))
+					{
+						if(size > 0)
+						{
+							names[size - 1] = text.substring(TITLE.length()).trim();
+						}
+					}
+					else if(!text.isEmpty())
+					{
+						before = text.replaceFirst("^;+", "").trim();
+					}
+				}
+				offset++;
+				lineStart = offset;
+				length = 0;
+			}
+			while(c != -1);
+			if(levelStart != -1)
+			{
+				lengths[size - 1] = (int)(levelEnd - levelStart);
+			}
+		}
+	}
+
+	/**
+	 * @param line: The bytes of the line
+	 * @param length: The length of the line without trailing whitespace
+	 * @param inBoard: boolean for if the line above is part of a board
+	 * @return: True if the line is part of a board
+	 */
+	private static boolean isBoardLine(byte[] line, int length, boolean inBoard)
+	{
+		boolean wall = inBoard && length > 0;
+		for(int i = 0; i < length; i++)
+		{
+			if(!isBoardCharacter(line[i]))
+			{
+				return false;
+			}
+			wall |= line[i] == '#';
+		}
+		return wall;
+	}
+
+	private void add(long offset, String name)
+	{
+		if(size == offsets.length)
+		{
+			offsets = Arrays.copyOf(offsets, size*2);
+			lengths = Arrays.copyOf(lengths, size*2);
+			names = Arrays.copyOf(names, size*2);
+		}
+		offsets[size] = offset;
+		names[size] = name != null && !name.isEmpty() ? name : null;
+		size++;
+	}
+
+	/**
+	 * @param index: The index of the level
+	 * @return: The lines of the board of the level
+	 */
+	private String[] read(int index) throws IOException
+	{
+		byte[] bytes = new byte[lengths[index]];
+		try(RandomAccessFile in = new RandomAccessFile(file, "r"))
+		{
+			in.seek(offsets[index]);
+			in.readFully(bytes);
+		}
+		String[] lines = new String(bytes, StandardCharsets.UTF_8).split("\n");
+		ArrayList<String> board = new ArrayList<String>(lines.length);
+		for(String line : lines)
+		{
+			board.add(line.replaceAll("\\s+$", ""));
+		}
+		return board.toArray(new String[board.size()]);
+	}
+
+	/**
+	 * Builds a level from the lines of its board, padding short lines with floor
+	 * @param index: The index of the level
+	 * @param lines: The lines of the board
+	 * @return: The level
+	 */
+	private PuzzleGrid parse(int index, String[] lines)
+	{
+		int rows = lines.length;
+		int columns = 0;
+		for(String line : lines)
+		{
+			columns = Math.max(columns, line.length());
+		}
+		byte[] cells = new byte[rows*columns];
+		int[] players = new int[2];
+		for(int r = 0; r < rows; r++)
+		{
+			for(int c = 0; c < lines[r].length(); c++)
+			{
+				int code = encodeCell(lines[r].charAt(c));
+				if(code == -1)
+				{
+					throw new IllegalArgumentException("Unexpected '" + lines[r].charAt(c) + "' in level " + index);
+				}
+				cells[r*columns + c] = (byte)code;
+				if((code & PuzzleBoard.PLAYER) != 0)
+				{
+					players[(code & PuzzleBoard.OWNER_TWO) != 0 ? 1 : 0]++;
+				}
+			}
+		}
+		if(players[0] != 1 || players[1] != (multiplayer ? 1 : 0))
+		{
+			throw new IllegalArgumentException("Level " + index + " has the wrong number of players");
+		}
+		return new PuzzleGrid(multiplayer, index, names[index], new PuzzleBoard(rows, columns, multiplayer, cells));
+	}
+}
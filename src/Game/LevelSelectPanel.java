@@ -15,20 +15,36 @@ import javax.swing.JCheckBox;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 /**
  * JPanel class that is used to display JButtons to select what level to play.
  * Displays different levels dependent upon whether multiplayer was selected or not.
+ * Levels are shown a page at a time with buttons to move between pages, so a collection of any
+ * size only ever has a page of level buttons, and a level is only loaded once its button is clicked.
  * Also has a checkbox to enable "shadow mode" for the levels.
  * @field serialVersionID: needed to prevent bugs when extending JComponents
- *
+ * @field PAGE_SIZE: The number of level buttons on each page
+ * @field levels: The collection of levels being shown
+ * @field levelPanel: JPanel holding the level buttons of the current page
+ * @field pageLabel: JLabel showing which page is shown
+ * @field previousButton: JButton to show the page before
+ * @field nextButton: JButton to show the page after
  */
 public class LevelSelectPanel extends JPanel 
 {	
 	private static final long serialVersionUID = 1L;
+	private static final int PAGE_SIZE = 10;
+	
+	private final LevelCollection levels;
+	private final JPanel levelPanel = new JPanel(new GridBagLayout());
+	private final JLabel pageLabel = new JLabel();
+	private final JButton previousButton = new JButton("PREVIOUS");
+	private final JButton nextButton = new JButton("NEXT");
 	
 	public LevelSelectPanel (Game g, PuzzleGridGenerator psg, boolean multiPlayer)
 	{
+		this.levels = psg.getCollection(multiPlayer);
 		this.setBackground(ImageFactory.Colors.customOrange);
 		this.setLayout(new GridBagLayout());
 		
@@ -43,16 +59,35 @@ public class LevelSelectPanel extends JPanel
 	
 	private void populateComponents(Game g, PuzzleGridGenerator psg, boolean multiPlayer)
 	{
-		int numLevels = (multiPlayer) ? psg.getNumberOfMultiPlayerLevels():psg.getNumberOfSinglePlayerLevels();
-		int components;
-		for(components = 1; components < numLevels+1; components++)
+		int components = 1;
+		levelPanel.setOpaque(false);
+		addGridComponent(levelPanel, 0, components++);
+		
+		JPanel pagePanel = new JPanel();
+		pagePanel.setOpaque(false);
+		pageLabel.setFont(new Font("Tahoma", Font.BOLD, 12));
+		previousButton.setFocusable(false);
+		nextButton.setFocusable(false);
+		previousButton.addActionListener(new ActionListener()
 		{
-			String levelString = numberToWord(components);
-			JButton newLevel = new JButton("LEVEL " + levelString);
-			PuzzleGrid level = (multiPlayer) ? psg.getMultiLevel(components-1):psg.getLevel(components-1);
-			registerLevelClickToLoadPuzzle(g, newLevel, level);
-			addGridComponent(newLevel, 0, components);
-		}
+			public void actionPerformed(ActionEvent e)
+			{
+				showPage(g, multiPlayer, g.getLevelPage(multiPlayer) - 1);
+			}
+		});
+		nextButton.addActionListener(new ActionListener()
+		{
+			public void actionPerformed(ActionEvent e)
+			{
+				showPage(g, multiPlayer, g.getLevelPage(multiPlayer) + 1);
+			}
+		});
+		pagePanel.add(previousButton);
+		pagePanel.add(pageLabel);
+		pagePanel.add(nextButton);
+		pagePanel.setVisible(levels.getPageCount(PAGE_SIZE) > 1);
+		addGridComponent(pagePanel, 0, components++);
+		showPage(g, multiPlayer, g.getLevelPage(multiPlayer));
 		
 		JButton returnButton = new JButton("RETURN");
 		returnButton.setFont(new Font("Tahoma", Font.BOLD, 12));
@@ -67,12 +102,12 @@ public class LevelSelectPanel extends JPanel
 		
 		
 		JCheckBox checkBox = new JCheckBox("Shadow Mode");
-		checkBox.setSelected(PuzzleGridGenerator.shadowMode);
+		checkBox.setSelected(g.isShadowMode());
 		checkBox.addItemListener(new ItemListener() 
 		{
 		    public void itemStateChanged(ItemEvent e) 
 		    {
-	            PuzzleGridGenerator.shadowMode = checkBox.isSelected();
+	            g.setShadowMode(checkBox.isSelected());
 		    }
 		});
 		checkBox.setFocusable(false);
@@ -80,39 +115,94 @@ public class LevelSelectPanel extends JPanel
 	}
 	
 	/**
-	 * Method for assigning actionevents for a button 
+	 * Replaces the level buttons with the buttons of another page, and resizes the window to fit them
+	 * @param g: Game that will be used to show the game screen
+	 * @param multiPlayer: boolean for if the levels are multiplayer levels
+	 * @param page: The page to show, which is kept within the pages there are
+	 */
+	private void showPage(Game g, boolean multiPlayer, int page)
+	{
+		int pages = levels.getPageCount(PAGE_SIZE);
+		page = Math.max(0, Math.min(page, pages - 1));
+		g.setLevelPage(multiPlayer, page);
+		
+		levelPanel.removeAll();
+		int end = levels.getPageEnd(page, PAGE_SIZE);
+		for(int index = levels.getPageStart(page, PAGE_SIZE); index < end; index++)
+		{
+			JButton newLevel = new JButton(levelText(index));
+			registerLevelClickToLoadPuzzle(g, newLevel, index);
+			addGridComponent(levelPanel, newLevel, 0, index);
+		}
+		pageLabel.setText("PAGE " + (page + 1) + " OF " + pages);
+		previousButton.setEnabled(page > 0);
+		nextButton.setEnabled(page < pages - 1);
+		
+		levelPanel.revalidate();
+		levelPanel.repaint();
+		if(SwingUtilities.getWindowAncestor(this) != null)
+		{
+			SwingUtilities.getWindowAncestor(this).pack();
+		}
+	}
+	
+	/**
+	 * Method for assigning actionevents for a button. The level is only loaded once the button is clicked.
 	 * @param g: Game that will be used to show the game screen
 	 * @param button: Jbutton that will be passed through and be assigned action listener
-	 * @param level: PuzzleGrid level that will be assigned to the button
+	 * @param index: The index of the level that will be assigned to the button
 	 */
-	private void registerLevelClickToLoadPuzzle(Game g, JButton button, PuzzleGrid level)
+	private void registerLevelClickToLoadPuzzle(Game g, JButton button, int index)
 	{
 		button.addActionListener(new ActionListener()
 		{
 			public void actionPerformed(ActionEvent e)
 			{
-				g.showGameScreen(level);
+				PuzzleGrid level = levels.getLevel(index);
+				if(level != null)
+				{
+					g.showGameScreen(level);
+				}
 			}
 		});
 	}
 	
+	/**
+	 * @param index: The index of the level
+	 * @return: The text of the button of the level, its number in words unless it has a name of its own
+	 */
+	private String levelText(int index)
+	{
+		String name = levels.getName(index);
+		return name.equals("Level " + (index + 1)) ? "LEVEL " + numberToWord(index + 1) : name.toUpperCase();
+	}
+	
 	private void addGridComponent(JComponent component, int gridX, int gridY)
+	{
+		addGridComponent(this, component, gridX, gridY);
+	}
+	
+	private void addGridComponent(JPanel panel, JComponent component, int gridX, int gridY)
 	{
 		component.setFocusable(false);
 		GridBagConstraints gbc = new GridBagConstraints();
 		gbc.gridx = gridX;
 		gbc.gridy = gridY;
 		gbc.insets = new Insets (0,2,2,2);
-		this.add(component, gbc);
+		panel.add(component, gbc);
 	}
 	
 	/**
 	 * Creates a string that will be used to name the level buttons
 	 * @param num: the level number that is passed
-	 * @return String of the number level in a readable form
+	 * @return String of the number level in a readable form, or in digits from one hundred on
 	 */
 	private String numberToWord(int num) 
 	{
+        	if(num >= 100)
+        	{
+        		return " " + num;
+        	}
         	String ones[] = {" ", " ONE", " TWO", " THREE", " FOUR", " FIVE", " SIX", " SEVEN", " EIGHT", " NINE", " TEN", " ELEVEN", " TWELVE", " THIRTEEN", " FOURTEEN", " FIFTEEN", " SIXTEEN", " SEVENTEEN", " EIGHTEEN", " NINETEEN"};
         	String tens[] = {" ", " ", " TWENTY", " THIRTY", " FOURTY", " FIFTY", " SIXTY", " SEVENTY", " EIGHTY", " NINETY"};
         	return (num < 20) ? ones[num] : tens[num / 10] + " " + ones[num % 10];
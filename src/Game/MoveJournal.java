@@ -0,0 +1,221 @@
+package Game;
+
+import java.util.Arrays;
+
+import Game.ImageFactory.Direction;
+import Game.ImageFactory.Player;
+
+/**
+ * Undo and redo log for a PuzzleBoard. Instead of saving a copy of the whole board before every
+ * move, the journal records only the cells a move touched (at most three) along with their codes
+ * before and after the move, so the memory used per move does not depend on the size of the level.
+ * A change to the direction a player faces is recorded as an entry with a negative index of
+ * -1 - player ordinal, holding the Direction ordinals instead of cell codes.
+ * @field INITIAL_CAPACITY: number of entries and steps allocated up front
+ * @field PLAYERS: cached Player values used to decode facing entries
+ * @field DIRECTIONS: cached Direction values used to decode facing entries
+ * @field indices: The index of the cell changed by each entry
+ * @field before: The code of the cell before each entry
+ * @field after: The code of the cell after each entry
+ * @field stepStarts: The position in the entry arrays that each step starts at
+ * @field size: The number of entries recorded, including those of undone steps
+ * @field steps: The number of steps recorded, including undone steps that can be redone
+ * @field position: The number of steps currently applied to the board
+ * @field open: boolean for if a step has been started but not ended
+ */
+public class MoveJournal
+{
+	private static final int INITIAL_CAPACITY = 64;
+	private static final Player[] PLAYERS = Player.values();
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private int[] indices;
+	private byte[] before;
+	private byte[] after;
+	private int[] stepStarts;
+	private int size;
+	private int steps;
+	private int position;
+	private boolean open;
+
+	public MoveJournal()
+	{
+		this.indices = new int[INITIAL_CAPACITY];
+		this.before = new byte[INITIAL_CAPACITY];
+		this.after = new byte[INITIAL_CAPACITY];
+		this.stepStarts = new int[INITIAL_CAPACITY + 1];
+	}
+
+	/**
+	 * Starts a new step, written over the top of any steps that were undone
+	 */
+	public void beginStep()
+	{
+		size = stepStarts[position];
+		open = true;
+	}
+
+	/**
+	 * Reopens the last step so the changes that follow are added to it and undone along with it,
+	 * or starts a new step if there is no step to add to or the last step was undone
+	 */
+	public void continueStep()
+	{
+		if(position == 0 || position != steps)
+		{
+			beginStep();
+			return;
+		}
+		position--;
+		size = stepStarts[steps];
+		open = true;
+	}
+
+	/**
+	 * Ends the current step. If nothing on the board changed the step is dropped and any undone
+	 * steps can still be redone, otherwise the undone steps are forgotten.
+	 */
+	public void endStep()
+	{
+		open = false;
+		if(size == stepStarts[position])
+		{
+			size = stepStarts[steps];
+			return;
+		}
+		steps = position + 1;
+		if(steps == stepStarts.length)
+		{
+			stepStarts = Arrays.copyOf(stepStarts, steps*2);
+		}
+		stepStarts[steps] = size;
+		position = steps;
+	}
+
+	/**
+	 * Records that a cell changed code. Changes made outside of a step are ignored.
+	 * @param index: The index of the cell
+	 * @param oldCode: The code of the cell before the change
+	 * @param newCode: The code of the cell after the change
+	 */
+	void recordCell(int index, byte oldCode, byte newCode)
+	{
+		if(open)
+		{
+			add(index, oldCode, newCode);
+		}
+	}
+
+	/**
+	 * Records that a player turned to face a new direction
+	 * @param player: The player that turned
+	 * @param oldDirection: The direction faced before the change
+	 * @param newDirection: The direction faced after the change
+	 */
+	void recordFacing(Player player, Direction oldDirection, Direction newDirection)
+	{
+		if(open)
+		{
+			add(-1 - player.ordinal(), (byte)oldDirection.ordinal(), (byte)newDirection.ordinal());
+		}
+	}
+
+	private void add(int index, byte oldCode, byte newCode)
+	{
+		if(size == indices.length)
+		{
+			indices = Arrays.copyOf(indices, size*2);
+			before = Arrays.copyOf(before, size*2);
+			after = Arrays.copyOf(after, size*2);
+		}
+		indices[size] = index;
+		before[size] = oldCode;
+		after[size] = newCode;
+		size++;
+	}
+
+	public boolean canUndo()
+	{
+		return position > 0;
+	}
+
+	public boolean canRedo()
+	{
+		return position < steps;
+	}
+
+	/**
+	 * @return: The number of steps currently applied to the board
+	 */
+	public int getPosition()
+	{
+		return position;
+	}
+
+	/**
+	 * Reverts the last applied step on the board, restoring the entries in reverse order
+	 * @param board: The board the step was recorded from
+	 * @return: True if a step was undone
+	 */
+	public boolean undo(PuzzleBoard board)
+	{
+		if(!canUndo())
+		{
+			return false;
+		}
+		position--;
+		for(int i = stepStarts[position+1] - 1; i >= stepStarts[position]; i--)
+		{
+			restore(board, i, before[i]);
+		}
+		return true;
+	}
+
+	/**
+	 * Applies the next undone step to the board again
+	 * @param board: The board the step was recorded from
+	 * @return: True if a step was redone
+	 */
+	public boolean redo(PuzzleBoard board)
+	{
+		if(!canRedo())
+		{
+			return false;
+		}
+		for(int i = stepStarts[position]; i < stepStarts[position+1]; i++)
+		{
+			restore(board, i, after[i]);
+		}
+		position++;
+		return true;
+	}
+
+	/**
+	 * Forgets every recorded step without changing the board
+	 */
+	public void clear()
+	{
+		size = 0;
+		steps = 0;
+		position = 0;
+		open = false;
+	}
+
+	/**
+	 * Writes one side of an entry back to the board
+	 * @param board: The board to write to
+	 * @param entry: The position of the entry
+	 * @param value: The cell code or direction ordinal to write
+	 */
+	private void restore(PuzzleBoard board, int entry, byte value)
+	{
+		int index = indices[entry];
+		if(index >= 0)
+		{
+			board.restoreCell(index, value);
+		}
+		else
+		{
+			board.restoreFacing(PLAYERS[-1 - index], DIRECTIONS[value]);
+		}
+	}
+}
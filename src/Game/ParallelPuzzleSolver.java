@@ -0,0 +1,417 @@
+package Game;
+
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiFunction;
+
+/**
+ * Runs the same A* search as the PuzzleSolver, with the same rules for one and two players, on
+ * several cores. Each round the best states on the open list are taken off in one batch and
+ * expanded by the workers of a ForkJoinPool, which split the batch between them and steal halves
+ * from each other when they run out. The costly part of a step, generating the children, pruning
+ * deadlocks and working out the heuristic, runs in parallel, and the transposition table is a
+ * ConcurrentHashMap so workers can add states to it without a lock around the whole table.
+ * A solved state is only returned once every state with a smaller cost has been expanded, so the
+ * solution is as short as the one the PuzzleSolver finds.
+ * The open list is not shared out: between rounds one thread takes the batch off it, drops stale
+ * states, tests for a solution and adds every child found, while the workers wait. Measured with
+ * one worker on levels solved in one to five seconds, this serial part took 15 to 45 percent of
+ * the search, which caps the speedup at about 2 to 7 times however many cores there are. Going
+ * further needs an open list and transposition table per worker, with states sent to the worker
+ * their hash belongs to.
+ * @field DEFAULT_MEMORY_BUDGET: The default number of bytes the stored states may take up
+ * @field BATCH_PER_THREAD: The number of states taken off the open list each round for every thread
+ * @field SPLIT_SIZE: Batches larger than this are split in half between workers
+ * @field KEEP_CHEAPEST: Keeps whichever of two equal states was reached in fewer steps
+ * @field threads: The number of worker threads
+ * @field memoryBudget: The number of bytes the stored states may take up before the search gives up
+ * @field maxNodes: The number of states expanded before giving up
+ * @field timeLimit: The number of milliseconds searched before giving up
+ * @field weight: The weight on the heuristic, 1 finds optimal solutions and more trades length for speed
+ * @field nodesExpanded: The number of states expanded in the last search
+ * @field exhausted: boolean for if the last search explored every reachable state without finding a solution
+ * @field overBudget: boolean for if the last search stopped because the stored states filled the memory budget
+ * @field elapsed: The number of nanoseconds the last search took
+ * @field workerNodes: The number of states each worker expanded in the last search
+ * @field workerNanos: The number of nanoseconds each worker spent expanding in the last search
+ */
+public class ParallelPuzzleSolver
+{
+	public static final long DEFAULT_MEMORY_BUDGET = Runtime.getRuntime().maxMemory() / 2;
+	private static final int BATCH_PER_THREAD = 32;
+	private static final int SPLIT_SIZE = 4;
+	private static final BiFunction<SolverNode, SolverNode, SolverNode> KEEP_CHEAPEST = new BiFunction<SolverNode, SolverNode, SolverNode>()
+	{
+		@Override
+		public SolverNode apply(SolverNode known, SolverNode found)
+		{
+			return found.g < known.g ? found : known;
+		}
+	};
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+	private long maxNodes = PuzzleSolver.DEFAULT_MAX_NODES;
+	private long timeLimit = PuzzleSolver.DEFAULT_TIME_LIMIT;
+	private double weight = 1;
+	private long nodesExpanded;
+	private boolean exhausted;
+	private boolean overBudget;
+	private long elapsed;
+	private long[] workerNodes = new long[0];
+	private long[] workerNanos = new long[0];
+
+	/**
+	 * @precondition: threads >= 1
+	 * @param threads: The number of worker threads to search with
+	 */
+	public void setThreadCount(int threads)
+	{
+		if(threads < 1)
+		{
+			throw new IllegalArgumentException("threads must be at least 1: " + threads);
+		}
+		this.threads = threads;
+	}
+
+	public int getThreadCount()
+	{
+		return threads;
+	}
+
+	/**
+	 * @param memoryBudget: The number of bytes the stored states may take up before the search gives up
+	 */
+	public void setMemoryBudget(long memoryBudget)
+	{
+		this.memoryBudget = memoryBudget;
+	}
+
+	public long getMemoryBudget()
+	{
+		return memoryBudget;
+	}
+
+	public void setMaxNodes(long maxNodes)
+	{
+		this.maxNodes = maxNodes;
+	}
+
+	/**
+	 * @param timeLimit: The number of milliseconds to search for before giving up
+	 */
+	public void setTimeLimit(long timeLimit)
+	{
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * @precondition: weight >= 1
+	 * @param weight: The weight on the heuristic, above 1 solutions are found faster but may be longer
+	 */
+	public void setWeight(double weight)
+	{
+		if(weight < 1)
+		{
+			throw new IllegalArgumentException("weight must be at least 1: " + weight);
+		}
+		this.weight = weight;
+	}
+
+	public long getNodesExpanded()
+	{
+		return nodesExpanded;
+	}
+
+	/**
+	 * @return: True if the last search proved the puzzle has no solution, false if it found one or hit a limit
+	 */
+	public boolean isExhausted()
+	{
+		return exhausted;
+	}
+
+	/**
+	 * @return: True if the last search stopped because the stored states filled the memory budget
+	 */
+	public boolean isOverBudget()
+	{
+		return overBudget;
+	}
+
+	/**
+	 * @return: The number of states expanded per second across all workers in the last search
+	 */
+	public double getNodesPerSecond()
+	{
+		return elapsed == 0 ? 0 : nodesExpanded*1e9 / elapsed;
+	}
+
+	/**
+	 * @return: The number of worker threads that expanded states in the last search
+	 */
+	public int getWorkerCount()
+	{
+		return workerNodes.length;
+	}
+
+	/**
+	 * @param worker: The index of the worker, below getWorkerCount()
+	 * @return: The number of states the worker expanded in the last search
+	 */
+	public long getNodesExpanded(int worker)
+	{
+		return workerNodes[worker];
+	}
+
+	/**
+	 * @param worker: The index of the worker, below getWorkerCount()
+	 * @return: The number of states the worker expanded per second of the time it spent expanding
+	 */
+	public double getNodesPerSecond(int worker)
+	{
+		return workerNanos[worker] == 0 ? 0 : workerNodes[worker]*1e9 / workerNanos[worker];
+	}
+
+	/**
+	 * Solves a level from its start
+	 * @param grid: The level to solve
+	 * @return: The solution, or null if none was found
+	 */
+	public PuzzleSolution solve(PuzzleGrid grid)
+	{
+		return solve(grid.getBoard());
+	}
+
+	/**
+	 * Solves a puzzle from the current state of a board. The board is not changed.
+	 * @param board: The board to solve
+	 * @return: The solution, or null if none was found
+	 */
+	public PuzzleSolution solve(PuzzleBoard board)
+	{
+		long start = System.nanoTime();
+		nodesExpanded = 0;
+		exhausted = false;
+		overBudget = false;
+
+		SolverLevel level = new SolverLevel(board);
+		PuzzleSolver coordinator = createSolver(level);
+		ConcurrentHashMap<Thread, Worker> workers = new ConcurrentHashMap<Thread, Worker>();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		SolverNode goal;
+		try
+		{
+			goal = search(level, coordinator, pool, workers);
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+
+		int count = workers.size();
+		workerNodes = new long[count];
+		workerNanos = new long[count];
+		int i = 0;
+		for(Worker worker : workers.values())
+		{
+			workerNodes[i] = worker.nodes;
+			workerNanos[i] = worker.nanos;
+			i++;
+		}
+		elapsed = System.nanoTime() - start;
+		return goal == null ? null : coordinator.buildSolution(goal);
+	}
+
+	private PuzzleSolver createSolver(SolverLevel level)
+	{
+		PuzzleSolver solver = new PuzzleSolver();
+		solver.setWeight(weight);
+		solver.prepare(level);
+		return solver;
+	}
+
+	/**
+	 * Runs the A* search in rounds, expanding a batch of the best states each round
+	 * @param level: The level being searched
+	 * @param coordinator: The solver used for the start state and for checking states off the open list
+	 * @param pool: The pool the batches are expanded on
+	 * @param workers: The workers of the pool, added as they first run
+	 * @return: The first solved state taken off the open list, or null
+	 */
+	private SolverNode search(SolverLevel level, PuzzleSolver coordinator, ForkJoinPool pool, ConcurrentHashMap<Thread, Worker> workers)
+	{
+		SolverNode root = coordinator.createRoot();
+		if(root == null)
+		{
+			exhausted = true;
+			return null;
+		}
+
+		PriorityQueue<SolverNode> open = new PriorityQueue<SolverNode>(1024, PuzzleSolver.ORDER);
+		ConcurrentHashMap<SolverNode, SolverNode> visited = new ConcurrentHashMap<SolverNode, SolverNode>(1024, 0.75f, threads);
+		ConcurrentLinkedQueue<SolverNode> found = new ConcurrentLinkedQueue<SolverNode>();
+		open.add(root);
+		visited.put(root, root);
+		long deadline = System.currentTimeMillis() + timeLimit;
+		long nodeBytes = estimateNodeBytes(level);
+		SolverNode[] batch = new SolverNode[threads*BATCH_PER_THREAD];
+
+		while(!open.isEmpty())
+		{
+			int size = 0;
+			while(size < batch.length && !open.isEmpty())
+			{
+				SolverNode node = open.poll();
+				if(visited.get(node) != node)
+				{
+					continue;
+				}
+				if(coordinator.isSolved(node.boxes))
+				{
+					if(size == 0)
+					{
+						return node;
+					}
+					open.add(node);
+					break;
+				}
+				batch[size++] = node;
+			}
+			if(size == 0)
+			{
+				continue;
+			}
+
+			nodesExpanded += size;
+			pool.invoke(new ExpandTask(batch, 0, size, level, visited, found, workers));
+			for(SolverNode child = found.poll(); child != null; child = found.poll())
+			{
+				open.add(child);
+			}
+
+			if(nodesExpanded > maxNodes || System.currentTimeMillis() > deadline)
+			{
+				return null;
+			}
+			if(visited.size()*nodeBytes > memoryBudget)
+			{
+				overBudget = true;
+				return null;
+			}
+		}
+		exhausted = true;
+		return null;
+	}
+
+	/**
+	 * Estimates the bytes a stored state takes up: the node, its box and player arrays, the entry
+	 * in the transposition table and its place in the open list
+	 * @param level: The level being searched
+	 * @return: The estimated bytes per state
+	 */
+	private static long estimateNodeBytes(SolverLevel level)
+	{
+		long node = 56;
+		long boxes = 16 + 4L*level.startBoxes.length;
+		long players = 16 + 4L*level.players;
+		long entry = 40;
+		return node + boxes + players + entry;
+	}
+
+	/**
+	 * The PuzzleSolver a pool thread expands states with, along with how much it has done
+	 * @field solver: The solver holding the arrays this thread works in
+	 * @field children: List the children of each state are gathered in
+	 * @field nodes: The number of states expanded
+	 * @field nanos: The number of nanoseconds spent expanding
+	 */
+	private static class Worker
+	{
+		final PuzzleSolver solver;
+		final ArrayList<SolverNode> children = new ArrayList<SolverNode>();
+		long nodes;
+		long nanos;
+
+		Worker(PuzzleSolver solver)
+		{
+			this.solver = solver;
+		}
+	}
+
+	/**
+	 * Expands part of a batch, splitting it in half while it is large enough so idle workers can steal the other half
+	 * @field batch: The states to expand
+	 * @field from: The index of the first state of this part
+	 * @field to: The index after the last state of this part
+	 * @field level: The level being searched
+	 * @field visited: The transposition table
+	 * @field found: Collects the new states to add to the open list
+	 * @field workers: The workers of the pool
+	 */
+	private class ExpandTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		private final SolverNode[] batch;
+		private final int from;
+		private final int to;
+		private final SolverLevel level;
+		private final ConcurrentHashMap<SolverNode, SolverNode> visited;
+		private final ConcurrentLinkedQueue<SolverNode> found;
+		private final ConcurrentHashMap<Thread, Worker> workers;
+
+		ExpandTask(SolverNode[] batch, int from, int to, SolverLevel level, ConcurrentHashMap<SolverNode, SolverNode> visited, ConcurrentLinkedQueue<SolverNode> found, ConcurrentHashMap<Thread, Worker> workers)
+		{
+			this.batch = batch;
+			this.from = from;
+			this.to = to;
+			this.level = level;
+			this.visited = visited;
+			this.found = found;
+			this.workers = workers;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(to - from > SPLIT_SIZE)
+			{
+				int middle = (from + to) >>> 1;
+				invokeAll(new ExpandTask(batch, from, middle, level, visited, found, workers), new ExpandTask(batch, middle, to, level, visited, found, workers));
+				return;
+			}
+
+			Worker worker = workers.get(Thread.currentThread());
+			if(worker == null)
+			{
+				worker = new Worker(createSolver(level));
+				workers.put(Thread.currentThread(), worker);
+			}
+			long start = System.nanoTime();
+			for(int i = from; i < to; i++)
+			{
+				SolverNode node = batch[i];
+				worker.children.clear();
+				worker.solver.expand(node, worker.children);
+				for(SolverNode child : worker.children)
+				{
+					SolverNode known = visited.get(child);
+					if(known != null && known.g <= child.g)
+					{
+						continue;
+					}
+					if(worker.solver.evaluate(node, child) && visited.merge(child, child, KEEP_CHEAPEST) == child)
+					{
+						found.add(child);
+					}
+				}
+			}
+			worker.nodes += to - from;
+			worker.nanos += System.nanoTime() - start;
+		}
+	}
+}
@@ -0,0 +1,816 @@
+package Game;
+
+import java.util.Arrays;
+
+import Game.ImageFactory.Direction;
+import Game.ImageFactory.Player;
+import Game.ImageFactory.Type;
+
+/**
+ * Headless model of a puzzle in play. Every cell of the grid is packed into a single byte whose
+ * low bits hold the static layer (wall or goal) and whose high bits hold the dynamic layer (a box
+ * or a player and who owns it). All of the move, push and win rules operate on these codes, so the
+ * game can be simulated without creating any Swing components. PuzzleLabels are only views of it.
+ * The two layers are kept in separate arrays. The static layer is never written once the board is
+ * made, so it is shared by every copy of the board, and only the dynamic layer is copied.
+ * A board can be frozen into an immutable template of a level, which is how a PuzzleGrid holds its
+ * starting state, and anything that would change a template throws an IllegalStateException. A
+ * copy of a template is a board in play, made by placing only the boxes and players of the
+ * template onto an empty dynamic layer, and it can be reset to the template the same way after
+ * clearing the boxes and players where they stand now. Starting or restarting a level therefore
+ * takes time in the number of boxes and players rather than the number of cells, and one template
+ * can be shared by any number of boards in play.
+ * @field WALL: bit set for a wall cell
+ * @field GOAL: bit set for a goal cell
+ * @field GOAL_TWO: bit set when the goal belongs to player two
+ * @field BOX: bit set when a box is on the cell
+ * @field PLAYER: bit set when a player is on the cell
+ * @field OWNER_TWO: bit set when the box or player on the cell belongs to player two
+ * @field STATIC_MASK: mask of the bits that never change during play
+ * @field DYNAMIC_MASK: mask of the bits that are moved around by the players
+ * @field BLOCKED: result of a move that did not move the player
+ * @field MOVED: result of a move onto an empty floor or goal cell
+ * @field PUSHED: result of a move that pushed a box
+ * @field rows: The number of rows of the grid
+ * @field columns: The number of columns in the grid
+ * @field multiplayer: boolean for if the board is a multiplayer level
+ * @field statics: The static bits of each cell ordered from the top row, left to right, shared by every copy
+ * @field dynamic: The dynamic bits of each cell in the same order
+ * @field facing: The direction each player is facing, indexed by Player ordinal
+ * @field playerIndices: The index of the cell each player is on, indexed by Player ordinal, or -1 if the player is not on the board.
+ * Kept up to date by every change to a cell so a player never has to be searched for
+ * @field unplaced: The number of boxes not on a goal of their owner, indexed by the Player ordinal of the owner.
+ * Kept up to date the same way, so checking for a win never looks at the cells
+ * @field frozen: boolean for if the board is a template that cannot be changed
+ * @field objects: The indices of the cells holding a box or a player, only kept by a template
+ * @field template: The template the board was copied from, or null
+ * @field boxes: The index of the cell each box is on, by slot, or -1 for a slot that is free, or null if boxes are not followed
+ * @field boxSlots: The slot in boxes of the box on each cell, only meaningful for cells holding a box
+ * @field boxCount: The number of slots of boxes in use, including free slots
+ * @field freeSlots: The slots of boxes that are free to be reused
+ * @field freeCount: The number of slots in freeSlots
+ * @field journal: MoveJournal that every change to the board is recorded in, or null
+ * @field changedCells: The indices of the cells changed since the changes were last cleared, or null if not tracked
+ * @field changedFlags: Marks the cells already in changedCells so each is only listed once
+ * @field changedCount: The number of cells in changedCells
+ */
+public class PuzzleBoard
+{
+	public static final byte WALL = 1;
+	public static final byte GOAL = 2;
+	public static final byte GOAL_TWO = 4;
+	public static final byte BOX = 8;
+	public static final byte PLAYER = 16;
+	public static final byte OWNER_TWO = 32;
+	public static final byte STATIC_MASK = WALL | GOAL | GOAL_TWO;
+	public static final byte DYNAMIC_MASK = BOX | PLAYER | OWNER_TWO;
+
+	public static final int BLOCKED = 0;
+	public static final int MOVED = 1;
+	public static final int PUSHED = 2;
+
+	private final int rows;
+	private final int columns;
+	private final boolean multiplayer;
+	private final byte[] statics;
+	private final byte[] dynamic;
+	private final Direction[] facing;
+	private final int[] playerIndices;
+	private final int[] unplaced;
+	private boolean frozen;
+	private int[] objects;
+	private final PuzzleBoard template;
+	private int[] boxes;
+	private int[] boxSlots;
+	private int boxCount;
+	private int[] freeSlots;
+	private int freeCount;
+	private MoveJournal journal;
+	private int[] changedCells;
+	private boolean[] changedFlags;
+	private int changedCount;
+
+	/**
+	 * Constructs a board in its starting state from an array of Type enums
+	 * @param rows: number of rows in the grid
+	 * @param columns: number of columns in the grid
+	 * @param multiplayer: is multiplayer enabled
+	 * @param layout: Array of Type enums that specify what goes in each tile of the grid initially
+	 */
+	public PuzzleBoard(int rows, int columns, boolean multiplayer, Type[] layout)
+	{
+		this(rows, columns, multiplayer, encode(rows, columns, layout));
+		for(Player player : Player.values())
+		{
+			int index = playerIndices[player.ordinal()];
+			if(index != -1)
+			{
+				facing[player.ordinal()] = facingOf(layout[index]);
+			}
+		}
+	}
+
+	/**
+	 * Constructs a board in its starting state from packed cell codes, with every player facing
+	 * right as they do at the start of the built in levels
+	 * @param rows: number of rows in the grid
+	 * @param columns: number of columns in the grid
+	 * @param multiplayer: is multiplayer enabled
+	 * @param cells: The packed code of each cell, kept by the board as its static layer
+	 */
+	PuzzleBoard(int rows, int columns, boolean multiplayer, byte[] cells)
+	{
+		if(cells.length != rows*columns)
+		{
+			throw new IllegalArgumentException("Expected " + rows*columns + " tiles but got " + cells.length);
+		}
+		this.rows = rows;
+		this.columns = columns;
+		this.multiplayer = multiplayer;
+		this.statics = cells;
+		this.dynamic = new byte[cells.length];
+		this.facing = new Direction[Player.values().length];
+		this.playerIndices = new int[Player.values().length];
+		this.unplaced = new int[Player.values().length];
+		this.template = null;
+		Arrays.fill(playerIndices, -1);
+		for(int i = 0; i < cells.length; i++)
+		{
+			dynamic[i] = (byte)(cells[i] & DYNAMIC_MASK);
+			statics[i] &= STATIC_MASK;
+			if((dynamic[i] & PLAYER) != 0)
+			{
+				facing[ownerOf(dynamic[i]).ordinal()] = Direction.RIGHT;
+				playerIndices[ownerOf(dynamic[i]).ordinal()] = i;
+			}
+			countBox(getCell(i), 1);
+		}
+	}
+
+	/**
+	 * Constructor for copying a board. The copy shares only the static layer with the original and
+	 * is not attached to the journal of the original. A copy of a template is a board in play that
+	 * starts from the template and can be reset to it, and is made from the boxes and players of
+	 * the template alone.
+	 * @param other: The board to copy
+	 */
+	public PuzzleBoard(PuzzleBoard other)
+	{
+		this.rows = other.rows;
+		this.columns = other.columns;
+		this.multiplayer = other.multiplayer;
+		this.statics = other.statics;
+		this.facing = other.facing.clone();
+		this.playerIndices = other.playerIndices.clone();
+		this.unplaced = other.unplaced.clone();
+		if(other.frozen)
+		{
+			this.template = other;
+			this.dynamic = new byte[statics.length];
+			this.boxSlots = new int[statics.length];
+			this.boxes = new int[other.objects.length];
+			this.freeSlots = new int[4];
+			placeObjects();
+		}
+		else
+		{
+			this.template = other.template;
+			this.dynamic = other.dynamic.clone();
+		}
+	}
+
+	/**
+	 * Makes a board that can be played from this one, sharing its static layer
+	 * @return: The copy
+	 */
+	public PuzzleBoard copy()
+	{
+		return new PuzzleBoard(this);
+	}
+
+	/**
+	 * Turns this board into an immutable template of a level, listing the cells of its boxes and
+	 * players so that copies only have to place those
+	 * @return: This board
+	 */
+	public PuzzleBoard freeze()
+	{
+		if(!frozen)
+		{
+			int count = 0;
+			for(int i = 0; i < dynamic.length; i++)
+			{
+				if(dynamic[i] != 0)
+				{
+					count++;
+				}
+			}
+			objects = new int[count];
+			count = 0;
+			for(int i = 0; i < dynamic.length; i++)
+			{
+				if(dynamic[i] != 0)
+				{
+					objects[count++] = i;
+				}
+			}
+			journal = null;
+			changedCells = null;
+			changedFlags = null;
+			changedCount = 0;
+			frozen = true;
+		}
+		return this;
+	}
+
+	/**
+	 * @return: boolean for if the board is an immutable template of a level
+	 */
+	public boolean isTemplate()
+	{
+		return frozen;
+	}
+
+	/**
+	 * Puts the board back to the state of the template it was copied from, without recording
+	 * anything in the journal. Only the cells holding a box or a player now, and those that held
+	 * one in the template, are written and marked as changed.
+	 * @throws IllegalStateException: if the board was not copied from a template
+	 */
+	public void reset()
+	{
+		checkWritable();
+		if(template == null)
+		{
+			throw new IllegalStateException("Only a board copied from a template can be reset");
+		}
+		if(boxes == null)
+		{
+			// a copy of a board in play does not follow its boxes until its first reset
+			for(int i = 0; i < dynamic.length; i++)
+			{
+				clearObject(i);
+			}
+			boxSlots = new int[statics.length];
+			boxes = new int[template.objects.length];
+			freeSlots = new int[4];
+		}
+		else
+		{
+			for(int index : playerIndices)
+			{
+				clearObject(index);
+			}
+			for(int slot = 0; slot < boxCount; slot++)
+			{
+				clearObject(boxes[slot]);
+			}
+		}
+		System.arraycopy(template.facing, 0, facing, 0, facing.length);
+		System.arraycopy(template.playerIndices, 0, playerIndices, 0, playerIndices.length);
+		System.arraycopy(template.unplaced, 0, unplaced, 0, unplaced.length);
+		placeObjects();
+	}
+
+	/**
+	 * Empties the dynamic layer of a cell during a reset
+	 * @param index: The index of the cell, or -1
+	 */
+	private void clearObject(int index)
+	{
+		if(index >= 0 && dynamic[index] != 0)
+		{
+			dynamic[index] = 0;
+			markChanged(index);
+		}
+	}
+
+	/**
+	 * Puts the boxes and players of the template onto an empty dynamic layer, giving each box
+	 * a slot. The facings, player positions and counts are already those of the template.
+	 */
+	private void placeObjects()
+	{
+		boxCount = 0;
+		freeCount = 0;
+		for(int index : template.objects)
+		{
+			byte code = template.dynamic[index];
+			dynamic[index] = code;
+			if((code & BOX) != 0)
+			{
+				boxSlots[index] = boxCount;
+				boxes[boxCount++] = index;
+			}
+			markChanged(index);
+		}
+	}
+
+	/**
+	 * Gives a box arriving on a cell a slot, reusing a free one if there is one
+	 * @param index: The index of the cell
+	 */
+	private void holdBox(int index)
+	{
+		int slot;
+		if(freeCount > 0)
+		{
+			slot = freeSlots[--freeCount];
+		}
+		else
+		{
+			if(boxCount == boxes.length)
+			{
+				boxes = Arrays.copyOf(boxes, Math.max(4, boxCount*2));
+			}
+			slot = boxCount++;
+		}
+		boxes[slot] = index;
+		boxSlots[index] = slot;
+	}
+
+	/**
+	 * Frees the slot of a box leaving a cell
+	 * @param index: The index of the cell
+	 */
+	private void releaseBox(int index)
+	{
+		int slot = boxSlots[index];
+		boxes[slot] = -1;
+		if(freeCount == freeSlots.length)
+		{
+			freeSlots = Arrays.copyOf(freeSlots, freeCount*2);
+		}
+		freeSlots[freeCount++] = slot;
+	}
+
+	private void checkWritable()
+	{
+		if(frozen)
+		{
+			throw new IllegalStateException("A level template cannot be changed, play a copy of it");
+		}
+	}
+
+	public int getRows()
+	{
+		return rows;
+	}
+
+	public int getColumns()
+	{
+		return columns;
+	}
+
+	/**
+	 * @return: The number of cells on the board
+	 */
+	public int getSize()
+	{
+		return statics.length;
+	}
+
+	public boolean isMultiplayer()
+	{
+		return multiplayer;
+	}
+
+	/**
+	 * @param index: The index of the cell
+	 * @return: The packed code of the cell at the index
+	 */
+	public byte getCell(int index)
+	{
+		return (byte)(statics[index] | dynamic[index]);
+	}
+
+	public Direction getFacing(Player player)
+	{
+		return facing[player.ordinal()];
+	}
+
+	/**
+	 * Attaches a journal that records the cells and facings changed by every move
+	 * @param journal: The journal to record into, or null to stop recording
+	 */
+	public void setJournal(MoveJournal journal)
+	{
+		checkWritable();
+		this.journal = journal;
+	}
+
+	/**
+	 * Starts keeping a list of the cells that change, including cells restored by a journal and
+	 * cells whose player turned, so that views only need to redraw those cells
+	 */
+	public void trackChanges()
+	{
+		if(changedCells == null && !frozen)
+		{
+			changedCells = new int[16];
+			changedFlags = new boolean[statics.length];
+		}
+	}
+
+	/**
+	 * @return: The number of cells changed since the changes were last cleared
+	 */
+	public int getChangedCount()
+	{
+		return changedCount;
+	}
+
+	/**
+	 * @return: The indices of the changed cells in the first getChangedCount() positions
+	 */
+	public int[] getChangedCells()
+	{
+		return changedCells;
+	}
+
+	/**
+	 * Empties the list of changed cells once the views have caught up with them
+	 */
+	public void clearChanged()
+	{
+		for(int i = 0; i < changedCount; i++)
+		{
+			changedFlags[changedCells[i]] = false;
+		}
+		changedCount = 0;
+	}
+
+	private void markChanged(int index)
+	{
+		if(changedCells == null || index < 0 || changedFlags[index])
+		{
+			return;
+		}
+		if(changedCount == changedCells.length)
+		{
+			changedCells = Arrays.copyOf(changedCells, changedCount*2);
+		}
+		changedFlags[index] = true;
+		changedCells[changedCount++] = index;
+	}
+
+	/**
+	 * Gets the cell that the given player is standing on
+	 * @param player: The player to look for
+	 * @return: The index of the player or -1 if the player is not on this board
+	 */
+	public int getPlayerIndex(Player player)
+	{
+		return playerIndices[player.ordinal()];
+	}
+
+	/**
+	 * Calculates the index of the cell next to a cell in a direction
+	 * @param index: The index of the starting cell
+	 * @param direction: The direction to step in
+	 * @return: The index of the neighbouring cell or -1 if it is outside of the grid
+	 */
+	public int getNeighbour(int index, Direction direction)
+	{
+		int row = index / columns + direction.rowStep;
+		int column = index % columns + direction.columnStep;
+		if(row < 0 || row >= rows || column < 0 || column >= columns)
+		{
+			return -1;
+		}
+		return row*columns + column;
+	}
+
+	/**
+	 * Moves a player one cell in a direction, pushing a box if there is one in the way and the
+	 * cell behind it is free. The player turns to face the direction as long as the destination
+	 * is within the grid, even if the move itself is blocked.
+	 * @param player: The player to move
+	 * @param direction: The direction to move in
+	 * @return: BLOCKED, MOVED or PUSHED
+	 */
+	public int move(Player player, Direction direction)
+	{
+		checkWritable();
+		int playerIndex = getPlayerIndex(player);
+		if(playerIndex == -1)
+		{
+			return BLOCKED;
+		}
+		int destinationIndex = getNeighbour(playerIndex, direction);
+		if(destinationIndex == -1)
+		{
+			return BLOCKED;
+		}
+		setFacing(player, playerIndex, direction);
+
+		byte destination = getCell(destinationIndex);
+		if((destination & (WALL | PLAYER)) != 0)
+		{
+			return BLOCKED;
+		}
+
+		int result = MOVED;
+		if((destination & BOX) != 0)
+		{
+			int beyondIndex = getNeighbour(destinationIndex, direction);
+			if(beyondIndex == -1 || !isFree(getCell(beyondIndex)))
+			{
+				return BLOCKED;
+			}
+			setCell(beyondIndex, (byte)(statics[beyondIndex] | destination & DYNAMIC_MASK));
+			result = PUSHED;
+		}
+
+		setCell(destinationIndex, (byte)(destination & STATIC_MASK | dynamic[playerIndex]));
+		setCell(playerIndex, statics[playerIndex]);
+		return result;
+	}
+
+	/**
+	 * Changes the code of a cell, recording the change in the journal
+	 * @param index: The index of the cell
+	 * @param code: The new packed code of the cell
+	 */
+	private void setCell(int index, byte code)
+	{
+		if(journal != null)
+		{
+			journal.recordCell(index, getCell(index), code);
+		}
+		writeCell(index, code);
+	}
+
+	/**
+	 * Changes the direction a player is facing, recording the change in the journal
+	 * @param player: The player turning
+	 * @param playerIndex: The index of the cell the player is on
+	 * @param direction: The new direction
+	 */
+	private void setFacing(Player player, int playerIndex, Direction direction)
+	{
+		if(facing[player.ordinal()] != direction)
+		{
+			if(journal != null)
+			{
+				journal.recordFacing(player, facing[player.ordinal()], direction);
+			}
+			facing[player.ordinal()] = direction;
+			markChanged(playerIndex);
+		}
+	}
+
+	/**
+	 * Puts a cell back to a code read from the journal without recording it again
+	 * @param index: The index of the cell
+	 * @param code: The packed code to restore
+	 */
+	void restoreCell(int index, byte code)
+	{
+		checkWritable();
+		writeCell(index, code);
+	}
+
+	/**
+	 * Changes the code of a cell, moving the position of a player that arrives on or leaves it and
+	 * counting a box that arrives on or leaves it. Only the dynamic bits of the code are written.
+	 * @param index: The index of the cell
+	 * @param code: The new packed code of the cell
+	 */
+	private void writeCell(int index, byte code)
+	{
+		byte old = getCell(index);
+		code = (byte)(statics[index] | code & DYNAMIC_MASK);
+		countBox(old, -1);
+		countBox(code, 1);
+		if((code & PLAYER) != 0)
+		{
+			playerIndices[ownerOf(code).ordinal()] = index;
+		}
+		else if((old & PLAYER) != 0 && playerIndices[ownerOf(old).ordinal()] == index)
+		{
+			playerIndices[ownerOf(old).ordinal()] = -1;
+		}
+		if(boxes != null && ((old ^ code) & BOX) != 0)
+		{
+			if((old & BOX) != 0)
+			{
+				releaseBox(index);
+			}
+			else
+			{
+				holdBox(index);
+			}
+		}
+		dynamic[index] = (byte)(code & DYNAMIC_MASK);
+		markChanged(index);
+	}
+
+	/**
+	 * Puts a player's facing back to a direction read from the journal without recording it again
+	 * @param player: The player
+	 * @param direction: The direction to restore
+	 */
+	void restoreFacing(Player player, Direction direction)
+	{
+		checkWritable();
+		facing[player.ordinal()] = direction;
+		markChanged(getPlayerIndex(player));
+	}
+
+	/**
+	 * Adds to the count of unplaced boxes if a cell holds a box that is not on a goal of its owner
+	 * @param cell: The packed code of the cell
+	 * @param amount: 1 when the cell is written, -1 when it is written over
+	 */
+	private void countBox(byte cell, int amount)
+	{
+		if((cell & BOX) != 0 && !isPlaced(cell))
+		{
+			unplaced[ownerOf(cell).ordinal()] += amount;
+		}
+	}
+
+	/**
+	 * @param player: The owner of the boxes
+	 * @return: The number of boxes of the player that are not on one of the player's goals
+	 */
+	public int getUnplacedBoxes(Player player)
+	{
+		return unplaced[player.ordinal()];
+	}
+
+	/**
+	 * Checks if the puzzle has been solved, which is when no box is off a goal of the same player
+	 * @return boolean that tells if puzzle is solved or not
+	 */
+	public boolean isSolved()
+	{
+		for(int count : unplaced)
+		{
+			if(count != 0)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the image type that a view of the cell at the given index should display
+	 * @param index: The index of the cell
+	 * @return: The image type of the cell
+	 */
+	public Type getImage(int index)
+	{
+		byte cell = getCell(index);
+		Player owner = ownerOf(cell);
+		if((cell & PLAYER) != 0)
+		{
+			return playerImage(owner, facing[owner.ordinal()]);
+		}
+		if((cell & BOX) != 0)
+		{
+			if(isPlaced(cell))
+			{
+				return owner == Player.TWO ? Type.P2_BOXED : Type.P1_BOXED;
+			}
+			return owner == Player.TWO ? Type.P2_BOX : multiplayer ? Type.P1_BOX : Type.BOX;
+		}
+		if((cell & WALL) != 0)
+		{
+			return Type.BRICK;
+		}
+		if((cell & GOAL) != 0)
+		{
+			return (cell & GOAL_TWO) != 0 ? Type.P2_CROSS : Type.P1_CROSS;
+		}
+		return Type.EMPTY;
+	}
+
+	/**
+	 * @param cell: A packed cell code
+	 * @return: True if a player or box could be moved onto the cell
+	 */
+	public static boolean isFree(byte cell)
+	{
+		return (cell & (WALL | BOX | PLAYER)) == 0;
+	}
+
+	/**
+	 * @param cell: A packed cell code
+	 * @return: True if the cell holds a box sitting on a goal of the same player
+	 */
+	public static boolean isPlaced(byte cell)
+	{
+		return (cell & (BOX | GOAL)) == (BOX | GOAL) && ((cell & GOAL_TWO) != 0) == ((cell & OWNER_TWO) != 0);
+	}
+
+	/**
+	 * @param cell: A packed cell code
+	 * @return: The player that owns the box or player on the cell
+	 */
+	public static Player ownerOf(byte cell)
+	{
+		return (cell & OWNER_TWO) != 0 ? Player.TWO : Player.ONE;
+	}
+
+	/**
+	 * @param player: The player to encode
+	 * @return: The dynamic bits of a cell holding that player
+	 */
+	public static byte playerCode(Player player)
+	{
+		return player == Player.TWO ? PLAYER | OWNER_TWO : PLAYER;
+	}
+
+	/**
+	 * Gets the image of a player facing in a direction
+	 * @param player: The player
+	 * @param direction: The direction the player is facing
+	 * @return: The image type of the player
+	 */
+	public static Type playerImage(Player player, Direction direction)
+	{
+		boolean two = player == Player.TWO;
+		switch(direction)
+		{
+			case UP:	return two ? Type.P2_UP : Type.P1_UP;
+			case DOWN:	return two ? Type.P2_DOWN : Type.P1_DOWN;
+			case LEFT:	return two ? Type.P2_LEFT : Type.P1_LEFT;
+			default:	break;
+		}
+		return two ? Type.P2_RIGHT : Type.P1_RIGHT;
+	}
+
+	/**
+	 * Converts a starting layout of Type enums into packed cell codes
+	 * @param rows: number of rows in the grid
+	 * @param columns: number of columns in the grid
+	 * @param layout: Array of Type enums that specify what goes in each tile of the grid initially
+	 * @return: The packed code of each cell
+	 */
+	private static byte[] encode(int rows, int columns, Type[] layout)
+	{
+		if(layout.length != rows*columns)
+		{
+			throw new IllegalArgumentException("Expected " + rows*columns + " tiles but got " + layout.length);
+		}
+		byte[] cells = new byte[layout.length];
+		for(int i = 0; i < layout.length; i++)
+		{
+			cells[i] = encode(layout[i]);
+		}
+		return cells;
+	}
+
+	/**
+	 * Converts a Type enum used to describe a starting layout into a packed cell code
+	 * @param type: The type of the tile
+	 * @return: The packed cell code
+	 */
+	private static byte encode(Type type)
+	{
+		switch(type)
+		{
+			case EMPTY:		return 0;
+			case BRICK:		return WALL;
+			case P1_CROSS:	return GOAL;
+			case P2_CROSS:	return GOAL | GOAL_TWO;
+			case BOX:
+			case P1_BOX:	return BOX;
+			case P2_BOX:	return BOX | OWNER_TWO;
+			case P1_BOXED:	return GOAL | BOX;
+			case P2_BOXED:	return GOAL | GOAL_TWO | BOX | OWNER_TWO;
+			case P1_UP:
+			case P1_DOWN:
+			case P1_LEFT:
+			case P1_RIGHT:	return PLAYER;
+			case P2_UP:
+			case P2_DOWN:
+			case P2_LEFT:
+			case P2_RIGHT:	return PLAYER | OWNER_TWO;
+			default:		break;
+		}
+		throw new IllegalArgumentException("Type " + type + " cannot be part of a layout");
+	}
+
+	/**
+	 * @param type: A player Type enum
+	 * @return: The direction the player type is facing
+	 */
+	private static Direction facingOf(Type type)
+	{
+		switch(type)
+		{
+			case P1_UP:
+			case P2_UP:		return Direction.UP;
+			case P1_DOWN:
+			case P2_DOWN:	return Direction.DOWN;
+			case P1_LEFT:
+			case P2_LEFT:	return Direction.LEFT;
+			default:		break;
+		}
+		return Direction.RIGHT;
+	}
+}
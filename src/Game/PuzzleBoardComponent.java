@@ -0,0 +1,190 @@
+package Game;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Insets;
+import java.awt.Rectangle;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.Arrays;
+
+import javax.swing.JComponent;
+import javax.swing.UIManager;
+
+import Game.ImageFactory.Type;
+
+/**
+ * Alternative to a grid of PuzzleLabels that draws the whole board as one component. Each cell
+ * is stored as the Type ordinal it shows and painted straight out of a SpriteAtlas, so the size of
+ * the board does not change the number of Swing components. The tiles are sized to fit the board
+ * into the component, no bigger than ImageFactory.DESIRED_HEIGHT, and the board asks for a size
+ * that fits on the screen. The atlas is only swapped when the component is resized or moved to a
+ * screen with another scale factor, so painting never scales an image.
+ * @field serialVersionID: needed to prevent bugs when extending JComponents
+ * @field MIN_TILE_SIZE: The smallest tile size a board is shrunk to
+ * @field SCREEN_MARGIN_WIDTH: Width of the screen left for the window border
+ * @field SCREEN_MARGIN_HEIGHT: Height of the screen left for the window border and the control panel
+ * @field rows: The number of rows of tiles
+ * @field columns: The number of columns of tiles
+ * @field tiles: The Type ordinal shown in each cell, ordered from the top row
+ * @field preferredTileSize: The tile size the board asks to be laid out with
+ * @field atlas: The sprites to draw the tiles with, at the current tile size
+ * @field atlasScale: The screen scale factor the atlas was made for
+ * @field originX: The x coordinate of the left of the board, which is centred in the component
+ * @field originY: The y coordinate of the top of the board
+ */
+public class PuzzleBoardComponent extends JComponent
+{
+	private static final long serialVersionUID = 1L;
+	private static final int MIN_TILE_SIZE = 4;
+	private static final int SCREEN_MARGIN_WIDTH = 40;
+	private static final int SCREEN_MARGIN_HEIGHT = 260;
+	private final int rows;
+	private final int columns;
+	private final int[] tiles;
+	private final int preferredTileSize;
+	private SpriteAtlas atlas;
+	private double atlasScale = 1.0;
+	private int originX;
+	private int originY;
+
+	public PuzzleBoardComponent(int rows, int columns)
+	{
+		this.rows = rows;
+		this.columns = columns;
+		this.tiles = new int[rows*columns];
+		this.preferredTileSize = fitTileSize(rows, columns);
+		this.atlas = SpriteAtlas.get(preferredTileSize, 1.0);
+		Arrays.fill(tiles, Type.EMPTY.ordinal());
+		this.setBackground(UIManager.getColor("Panel.background"));
+		this.setOpaque(true);
+		this.addComponentListener(new ComponentAdapter()
+		{
+			@Override
+			public void componentResized(ComponentEvent e)
+			{
+				fitTiles();
+			}
+		});
+	}
+
+	/**
+	 * Works out the largest tile size, up to ImageFactory.DESIRED_HEIGHT, that fits a board on the screen
+	 * @param rows: The number of rows of the board
+	 * @param columns: The number of columns of the board
+	 * @return: The tile size
+	 */
+	public static int fitTileSize(int rows, int columns)
+	{
+		if(GraphicsEnvironment.isHeadless())
+		{
+			return ImageFactory.DESIRED_HEIGHT;
+		}
+		Rectangle screen = GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds();
+		int fit = Math.min((screen.width - SCREEN_MARGIN_WIDTH) / columns, (screen.height - SCREEN_MARGIN_HEIGHT) / rows);
+		return Math.max(MIN_TILE_SIZE, Math.min(ImageFactory.DESIRED_HEIGHT, fit));
+	}
+
+	/**
+	 * Changes the Type shown in a cell and repaints just that cell if it is different
+	 * @param index: The index of the cell
+	 * @param type: The Type to show
+	 */
+	public void setTile(int index, Type type)
+	{
+		if(tiles[index] != type.ordinal())
+		{
+			tiles[index] = type.ordinal();
+			repaint(originX + (index % columns)*atlas.getTileWidth(), originY + (index / columns)*atlas.getTileHeight(),
+					atlas.getTileWidth(), atlas.getTileHeight());
+		}
+	}
+
+	/**
+	 * Picks the tile size that fits the board into the component and the atlas for it, and
+	 * centres the board. Only done when the size or screen scale has changed.
+	 */
+	private void fitTiles()
+	{
+		Insets insets = getInsets();
+		int width = getWidth() - insets.left - insets.right;
+		int height = getHeight() - insets.top - insets.bottom;
+		if(width <= 0 || height <= 0)
+		{
+			return;
+		}
+		double aspect = atlas.getTileWidth() / (double)atlas.getTileHeight();
+		int tileSize = Math.min(height / rows, (int)(width / (columns*aspect)));
+		tileSize = Math.max(MIN_TILE_SIZE, Math.min(ImageFactory.DESIRED_HEIGHT, tileSize));
+		double scale = getScale();
+		if(tileSize != atlas.getTileHeight() || scale != atlasScale)
+		{
+			atlas = SpriteAtlas.get(tileSize, scale);
+			atlasScale = scale;
+			repaint();
+		}
+		originX = insets.left + Math.max(0, (width - columns*atlas.getTileWidth())/2);
+		originY = insets.top + Math.max(0, (height - rows*atlas.getTileHeight())/2);
+	}
+
+	/**
+	 * @return: The scale factor of the screen the component is on, or 1 if it is not on one
+	 */
+	private double getScale()
+	{
+		GraphicsConfiguration config = getGraphicsConfiguration();
+		return config != null ? config.getDefaultTransform().getScaleX() : 1.0;
+	}
+
+	@Override
+	public Dimension getPreferredSize()
+	{
+		Insets insets = getInsets();
+		int tileWidth = (int)Math.round(preferredTileSize*atlas.getTileWidth()/(double)atlas.getTileHeight());
+		return new Dimension(columns*tileWidth + insets.left + insets.right, rows*preferredTileSize + insets.top + insets.bottom);
+	}
+
+	@Override
+	public Dimension getMinimumSize()
+	{
+		Insets insets = getInsets();
+		return new Dimension(columns*MIN_TILE_SIZE + insets.left + insets.right, rows*MIN_TILE_SIZE + insets.top + insets.bottom);
+	}
+
+	/**
+	 * Paints only the tiles that overlap the area being repainted
+	 * @param g: The graphics to paint with
+	 */
+	@Override
+	protected void paintComponent(Graphics g)
+	{
+		if(getScale() != atlasScale)
+		{
+			fitTiles();
+		}
+		int width = atlas.getTileWidth();
+		int height = atlas.getTileHeight();
+		Rectangle clip = g.getClipBounds();
+		if(clip == null)
+		{
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
+		}
+		g.setColor(getBackground());
+		g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+		int firstColumn = Math.max(0, Math.floorDiv(clip.x - originX, width));
+		int lastColumn = Math.min(columns - 1, Math.floorDiv(clip.x + clip.width - originX, width));
+		int firstRow = Math.max(0, Math.floorDiv(clip.y - originY, height));
+		int lastRow = Math.min(rows - 1, Math.floorDiv(clip.y + clip.height - originY, height));
+		for(int row = firstRow; row <= lastRow; row++)
+		{
+			int y = originY + row*height;
+			for(int column = firstColumn; column <= lastColumn; column++)
+			{
+				atlas.draw(g, tiles[row*columns + column], originX + column*width, y);
+			}
+		}
+	}
+}
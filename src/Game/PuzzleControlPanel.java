@@ -4,52 +4,68 @@ import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.event.KeyEvent;
+import java.util.function.Consumer;
 
 import javax.swing.JButton;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JToggleButton;
+
+import Game.ImageFactory.Direction;
+import Game.ImageFactory.Player;
 
 /**
  * JPanel class that holds information regarding the move counter, high scores, 
  * as well contains the buttons for navigation in the game and between menus
  * @field serialVersionID: needed to prevent bugs when extending JPanels
- * @field manager: PUzzleManager object that is used to obtain back end data
+ * @field simulation: PuzzleSimulation the buttons send their commands to
  * @field grid: PuzzleGrid object that is the level being operated on
  * @field multiPlayer: boolean signifying if multiplayer is enabled
  * 
  * @field moveCounter: JLabel that displays the current amount of moves taken 
  * @field highScore: JLabel that displays the highscore for the level
+ * @field boxesLeft: JLabel that displays the number of boxes still to be put on a goal, for each player in multiplayer
  * @field leftButton: JButton that moves the player left
  * @field rightButton:JButton that moves the player right
  * @field upButton: JButton that moves the player up
  * @field downButton: JButton that moves the player down
  * @field resetButton: JButton that resets the game to initial state
  * @field undoButton: JButton that returns the game to the previous state. Undoes the move. 
+ * @field redoButton: JButton that applies the last undone move again
  * @field exitButton: JButton that returns to the level select screen
+ * @field hintButton: JToggleButton that turns hints on and off
+ * @field hintLabel: JLabel that displays the next step of the hint
+ * @field hints: HintEngine searching for hints in the background
+ * @field shown: The board of the snapshot being shown, which hints are found from
  *
  */
 public class PuzzleControlPanel extends JPanel 
 {
 	private static final long serialVersionUID = 1L;
-	private PuzzleManager manager;
+	private PuzzleSimulation simulation;
 	private PuzzleGrid grid;
 	private boolean multiPlayer;
 	
 	private JLabel moveCounter;
 	private JLabel highScore;
+	private JLabel boxesLeft;
 	private JButton leftButton;
 	private JButton rightButton;
 	private JButton upButton;
 	private JButton downButton;
 	private JButton undoButton;
+	private JButton redoButton;
 	private JButton resetButton;
 	private JButton exitButton;
+	private JToggleButton hintButton;
+	private JLabel hintLabel;
+	private HintEngine hints = new HintEngine();
+	private PuzzleBoard shown;
 	
-	public PuzzleControlPanel(PuzzleManager manager, PuzzleGrid grid, Game g) 
+	public PuzzleControlPanel(PuzzleSimulation simulation, PuzzleGrid grid, Game g) 
 	{	
-		this.manager = manager;
+		this.simulation = simulation;
 		this.multiPlayer = grid.isMultiplayer();
 		this.grid = grid;
 		this.setBackground(ImageFactory.Colors.customOrange);	
@@ -60,8 +76,8 @@ public class PuzzleControlPanel extends JPanel
 	
 	private void populateComponents(Game g)
 	{
-		moveCounter = new JLabel("Moves: " + Integer.toString(manager.getnMoves()));
-		addGridComponent(moveCounter, 0, 3);
+		moveCounter = new JLabel("Moves: 0");
+		addGridComponent(moveCounter, 0, 4);
 		
 		String nScore;
 		if (grid.getHighScore() >= 0) {
@@ -70,39 +86,43 @@ public class PuzzleControlPanel extends JPanel
 			nScore = "Not set yet";
 		}
 		highScore = new JLabel("High Score: " + nScore);
-		addGridComponent(highScore, 0, 4);
+		addGridComponent(highScore, 0, 5);
+		
+		boxesLeft = new JLabel();
+		addGridComponent(boxesLeft, 0, 6);
+		updateBoxes(grid.getBoard().getUnplacedBoxes(Player.ONE), grid.getBoard().getUnplacedBoxes(Player.TWO));
 		
 		leftButton = new JButton("Left");
-		registerSyntheticKey(leftButton, KeyEvent.VK_LEFT);
+		registerMoveButton(leftButton, Player.ONE, Direction.LEFT);
 		addGridComponent(leftButton, 1, 1);
 		
 		rightButton = new JButton("Right");
-		registerSyntheticKey(rightButton, KeyEvent.VK_RIGHT);
+		registerMoveButton(rightButton, Player.ONE, Direction.RIGHT);
 		addGridComponent(rightButton, 3, 1);
 		
 		upButton = new JButton("Up");
-		registerSyntheticKey(upButton, KeyEvent.VK_UP);
+		registerMoveButton(upButton, Player.ONE, Direction.UP);
 		addGridComponent(upButton, 2, 0);
 		
 		downButton = new JButton("Down");
-		registerSyntheticKey(downButton, KeyEvent.VK_DOWN);
+		registerMoveButton(downButton, Player.ONE, Direction.DOWN);
 		addGridComponent(downButton, 2, 2);
 		
 		if (this.multiPlayer) {
 			JButton left2 = new JButton("A");
-			registerSyntheticKey(left2, KeyEvent.VK_W);
+			registerMoveButton(left2, Player.TWO, Direction.LEFT);
 			addGridComponent(left2, 1, 4);
 			
 			JButton right2 = new JButton("D");
-			registerSyntheticKey(right2, KeyEvent.VK_D);
+			registerMoveButton(right2, Player.TWO, Direction.RIGHT);
 			addGridComponent(right2, 3, 4);
 			
 			JButton up2 = new JButton("W");
-			registerSyntheticKey(up2, KeyEvent.VK_W);
+			registerMoveButton(up2, Player.TWO, Direction.UP);
 			addGridComponent(up2, 2, 3);
 			
 			JButton down2 = new JButton("S");
-			registerSyntheticKey(down2, KeyEvent.VK_S);
+			registerMoveButton(down2, Player.TWO, Direction.DOWN);
 			addGridComponent(down2, 2, 5);
 		}
 		
@@ -111,21 +131,30 @@ public class PuzzleControlPanel extends JPanel
 		{
 			public void actionPerformed(ActionEvent e)
 			{
-				manager.reloadLastLabelState();
+				simulation.submit(PuzzleManager.UNDO);
 			}
 		});
 		addGridComponent(undoButton, 0, 0);
 
+		redoButton = new JButton("Redo (Y)");
+		redoButton.addActionListener(new ActionListener()
+		{
+			public void actionPerformed(ActionEvent e)
+			{
+				simulation.submit(PuzzleManager.REDO);
+			}
+		});
+		addGridComponent(redoButton, 0, 1);
+
 		resetButton = new JButton("Reset (R)");
 		resetButton.addActionListener(new ActionListener()
 		{
 			public void actionPerformed(ActionEvent e)
 			{
-				manager.resetGame();
-				updateMoves(manager.getnMoves());
+				simulation.submit(PuzzleManager.RESET);
 			}
 		});
-		addGridComponent(resetButton, 0, 1);
+		addGridComponent(resetButton, 0, 2);
 
 		exitButton = new JButton("Exit");
 		exitButton.addActionListener(new ActionListener()
@@ -135,7 +164,21 @@ public class PuzzleControlPanel extends JPanel
 				g.showLevelSelect(grid.isMultiplayer());
 			}
 		});
-		addGridComponent(exitButton, 0, 2);
+		addGridComponent(exitButton, 0, 3);
+
+		hintButton = new JToggleButton("Hint (H)");
+		hintButton.addActionListener(new ActionListener()
+		{
+			public void actionPerformed(ActionEvent e)
+			{
+				updateHint();
+			}
+		});
+		addGridComponent(hintButton, 0, 7);
+
+		hintLabel = new JLabel(" ");
+		addGridComponent(hintLabel, 0, 8);
+		shown = grid.getBoard();
 	}
 	
 	/**
@@ -154,30 +197,105 @@ public class PuzzleControlPanel extends JPanel
 	}
 	
 	/**
-	 * Method for when a button is pressed, it simply creates a KeyEvent and passes it on
-	 * to the key handler in the PuzzleManager
-	 * @param button: JButton that will have the key event assigned to
-	 * @param keyCode: KeyCode that will be assigned to the button
+	 * Method for when a button is pressed, it sends the move to the PuzzleSimulation
+	 * @param button: JButton that will move the player
+	 * @param player: The player the button moves
+	 * @param direction: The direction the button moves the player in
 	 */
-	private void registerSyntheticKey(JButton button, int keyCode)
+	private void registerMoveButton(JButton button, Player player, Direction direction)
 	{
-		JPanel panel = this;
 		button.addActionListener(new ActionListener() 
 		{
 			public void actionPerformed(ActionEvent e) 
 			{
-				KeyEvent ke = new KeyEvent(panel, 0, 0, 0, keyCode, '\0');
-				manager.handleKeyPress(ke, grid);
-				updateMoves(manager.getnMoves());
+				simulation.submit(PuzzleManager.moveCommand(player, direction));
 			}
 		});
 	}
 	
-	public void updateMoves(int nMoves)
+	/**
+	 * Updates the move counter and the boxes left from a snapshot of the game
+	 * @param snapshot: The snapshot being shown
+	 */
+	public void showSnapshot(BoardSnapshot snapshot)
 	{
-		moveCounter.setText("Moves: " + Integer.toString(nMoves));
-		moveCounter.updateUI();
-		this.updateUI();
+		moveCounter.setText("Moves: " + Integer.toString(snapshot.getMoves()));
+		updateBoxes(snapshot.getUnplacedBoxes(Player.ONE), snapshot.getUnplacedBoxes(Player.TWO));
+		shown = snapshot.getBoard();
+		updateHint();
+	}
+
+	/**
+	 * Turns hints on or off, such as when H is pressed
+	 */
+	public void toggleHints()
+	{
+		hintButton.setSelected(!hintButton.isSelected());
+		updateHint();
+	}
+
+	/**
+	 * Asks for a hint for the board being shown while hints are on, which cancels the search for
+	 * the board shown before, and clears the hint while they are off or the puzzle is solved
+	 */
+	private void updateHint()
+	{
+		if(!hintButton.isSelected() || shown.isSolved())
+		{
+			hints.cancel();
+			hintLabel.setText(" ");
+			return;
+		}
+		if(!hints.request(shown, new Consumer<PuzzleSolution>()
+		{
+			public void accept(PuzzleSolution solution)
+			{
+				showHint(solution);
+			}
+		}))
+		{
+			hintLabel.setText("Hint: Thinking...");
+		}
+	}
+
+	/**
+	 * Displays the first step of a hint
+	 * @param solution: The steps that solve the puzzle from the board shown, or null if none were found
+	 */
+	private void showHint(PuzzleSolution solution)
+	{
+		if(solution == null || solution.getMoveCount() == 0)
+		{
+			hintLabel.setText("Hint: No hint found");
+			return;
+		}
+		String player = multiPlayer ? "P" + solution.getPlayer(0).ordinal() + " " : "";
+		String direction = solution.getDirection(0).name();
+		direction = direction.charAt(0) + direction.substring(1).toLowerCase();
+		hintLabel.setText("Hint: " + player + direction + (solution.isPush(0) ? " (push)" : ""));
 	}
-}
 
+	/**
+	 * Stops searching for hints, once the level is left
+	 */
+	public void closeHints()
+	{
+		hints.close();
+	}
+	
+	/**
+	 * @param one: The number of boxes of player one still to be put on a goal
+	 * @param two: The number of boxes of player two still to be put on a goal
+	 */
+	private void updateBoxes(int one, int two)
+	{
+		if(multiPlayer)
+		{
+			boxesLeft.setText("Boxes Left: P1 " + one + "  P2 " + two);
+		}
+		else
+		{
+			boxesLeft.setText("Boxes Left: " + one);
+		}
+	}
+}
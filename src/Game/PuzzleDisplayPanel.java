@@ -5,82 +5,179 @@ import java.awt.GridLayout;
 import java.util.ArrayList;
 
 import javax.swing.BorderFactory;
+import javax.swing.JComponent;
 import javax.swing.JPanel;
 
+import Game.ImageFactory.Type;
+
 /**
- * 
+ * Displays a PuzzleBoard, either as a grid of PuzzleLabels or, for boards too big for one
+ * component per cell or too big to fit on the screen at full size, as a single
+ * PuzzleBoardComponent painted from a sprite atlas and shrunk to fit.
  * @field serialVersionID: needed to prevent bugs when extending JPanels
- * @field grid: JPanel object that displays the map
+ * @field TILE_RENDERER_CELLS: boards with at least this many cells are drawn by a PuzzleBoardComponent
+ * @field TILE_RENDERER_PROPERTY: system property that forces the PuzzleBoardComponent to be used for every board
+ * @field grid: JComponent object that displays the map
+ * @field rows: number of rows
  * @field cols: number of columns
+ * @field board: The PuzzleBoard being displayed
+ * @field labels: ArrayList of PuzzleLabels showing each cell, or null when the tile renderer is used
+ * @field tiles: PuzzleBoardComponent showing the board, or null when labels are used
+ * @field view: FieldOfView deciding which cells are shown in shadow mode, or null when shadow mode is off
  */
 public class PuzzleDisplayPanel extends JPanel
 {
 	private static final long serialVersionUID = 1L;
-	private JPanel grid;
+	private static final int TILE_RENDERER_CELLS = 2500;
+	private static final String TILE_RENDERER_PROPERTY = "warehouseboss.tiles";
+	private JComponent grid;
+	private int rows;
 	private int cols;
-	
+	private PuzzleBoard board;
+	private ArrayList<PuzzleLabel> labels;
+	private PuzzleBoardComponent tiles;
+	private FieldOfView view;
+
 	public PuzzleDisplayPanel(int rows, int columns)
 	{
+		this.rows = rows;
 		this.cols = columns;
-		
-		grid = new JPanel();
+
+		boolean fits = PuzzleBoardComponent.fitTileSize(rows, columns) == ImageFactory.DESIRED_HEIGHT;
+		if(rows*columns >= TILE_RENDERER_CELLS || !fits || Boolean.getBoolean(TILE_RENDERER_PROPERTY))
+		{
+			tiles = new PuzzleBoardComponent(rows, columns);
+			grid = tiles;
+		}
+		else
+		{
+			labels = new ArrayList<PuzzleLabel>();
+			grid = new JPanel();
+			grid.setLayout(new GridLayout(rows, columns, 0, 0));
+		}
 		grid.setBorder(BorderFactory.createLineBorder(Color.black));
-		grid.setLayout(new GridLayout(rows, columns, 0, 0));		
-		
+
 		this.add(grid);
 		this.setBackground(ImageFactory.Colors.customOrange);
 		this.setFocusable(true);
 	}
-	
+
 	/**
-	 * Reloads the puzzle squares from the labels array so that the ordering of the labels in the
-	 * panel matches the new order of puzzle squares in the labels array list.
-	 * @param grid: ArrayList of PuzzleLabels that represents the grid
+	 * Shows every cell of a board. Only needed when the board is first displayed, after that
+	 * refreshPanelLabels keeps the displayed cells up to date.
+	 * @param board: The PuzzleBoard to display
 	 * @param shadowMode: boolean for if shadowmode is enabled
 	 */
-	public void reloadPanelLabels(ArrayList<PuzzleLabel> grid, boolean shadowMode)
+	public void reloadPanelLabels(PuzzleBoard board, boolean shadowMode)
 	{
-		int index = 0;
-		this.grid.removeAll();
-		for(PuzzleLabel lbl : grid)
+		this.board = board;
+		this.view = null;
+		if(shadowMode)
 		{
-			lbl.setImageIcon();				
-			if(shadowMode && !isWithinSight(grid,index++))
+			view = new FieldOfView(board, FieldOfView.getConfiguredRadius());
+			view.update();
+		}
+		if(labels != null)
+		{
+			labels.clear();
+			grid.removeAll();
+			for(int index = 0; index < board.getSize(); index++)
 			{
-				lbl.setToShadow();
+				PuzzleLabel lbl = new PuzzleLabel(board.getImage(index));
+				labels.add(lbl);
+				grid.add(lbl);
 			}
-			this.grid.add(lbl);
 		}
-		this.grid.updateUI();
-		this.updateUI();
+		for(int index = 0; index < board.getSize(); index++)
+		{
+			refreshCell(index, shadowMode);
+		}
+		grid.revalidate();
+		this.repaint();
 	}
-	
+
 	/**
-	 * Method used in shadowMode to only display grids which are within a certain sight radius of the player
-	 * @param list: ArrayList of PuzzleLabels that represents the grid
-	 * @param index: number used in displaying shadowmode
-	 * @return boolean value for if a PuzzleLabel is within the sight radius of the player
+	 * Updates only the given cells. In shadow mode the cells that came into or went out of sight
+	 * of a player are updated as well. Only the bounds of cells whose image actually changes are
+	 * repainted.
+	 * @param indices: The indices of the cells that changed
+	 * @param count: The number of indices to read from the array
+	 * @param shadowMode: boolean for if shadowmode is enabled
 	 */
-	private boolean isWithinSight(ArrayList<PuzzleLabel> list, int index)
+	public void refreshPanelLabels(int[] indices, int count, boolean shadowMode)
 	{
-		for(int j = -cols; j <= cols; j+= cols)
+		if(shadowMode)
 		{
-			for(int i = -1; i <= 1; i++)
+			if(view == null)
 			{
-				int listIndex = index+i+j;
-				if(listIndex < 0 || listIndex >= list.size() || index % cols == 0 && listIndex % cols == cols-1 || index % cols == cols-1 && listIndex % cols == 0)
-				{
-					continue;
-				}
-				
-				PuzzleLabel piece = list.get(listIndex);
-				if(piece.isPlayer())
-				{
-					return true;
-				}
+				view = new FieldOfView(board, FieldOfView.getConfiguredRadius());
 			}
+			int changed = view.update();
+			int[] changedCells = view.getChangedCells();
+			for(int i = 0; i < changed; i++)
+			{
+				refreshCell(changedCells[i], true);
+			}
+		}
+		for(int i = 0; i < count; i++)
+		{
+			refreshCell(indices[i], shadowMode);
+		}
+	}
+
+	/**
+	 * Shows a snapshot of the game taken on another thread, redrawing the cells changed since the
+	 * last snapshot shown. The panel keeps the snapshot's board to read cells from, which nothing
+	 * else changes.
+	 * @param snapshot: The snapshot to show
+	 * @param shadowMode: boolean for if shadowmode is enabled
+	 */
+	public void showSnapshot(BoardSnapshot snapshot, boolean shadowMode)
+	{
+		board = snapshot.getBoard();
+		if(view != null)
+		{
+			view.setBoard(board);
+		}
+		if(!snapshot.isFullRefresh())
+		{
+			refreshPanelLabels(snapshot.getChangedCells(), snapshot.getChangedCount(), shadowMode);
+			return;
+		}
+		if(shadowMode)
+		{
+			refreshPanelLabels(null, 0, true);
+		}
+		for(int index = 0; index < board.getSize(); index++)
+		{
+			refreshCell(index, shadowMode);
+		}
+	}
+
+	/**
+	 * Sets a single cell to show its image, or a shadow if it cannot be seen
+	 * @param index: The index of the cell
+	 * @param shadowMode: boolean for if shadowmode is enabled
+	 */
+	private void refreshCell(int index, boolean shadowMode)
+	{
+		boolean hidden = shadowMode && !view.isVisible(index);
+		if(tiles != null)
+		{
+			tiles.setTile(index, hidden ? Type.SHADOW : board.getImage(index));
+			return;
+		}
+
+		PuzzleLabel lbl = labels.get(index);
+		lbl.setImage(board.getImage(index));
+		if(hidden)
+		{
+			lbl.setToShadow();
+		}
+		else
+		{
+			lbl.setImageIcon();
 		}
-		return false;
 	}
 
 }
@@ -1,8 +1,5 @@
 package Game;
 
-import java.util.ArrayList;
-
-import Game.ImageFactory.Player;
 import Game.ImageFactory.Type;
 
 /**
@@ -12,26 +9,26 @@ import Game.ImageFactory.Type;
  * @field shadowMode: boolean for if the level has shadow mode enabled
  * @field shadowMode: boolean for if the level is a multiplayer level
  * @field levelID: integer to identify each puzzlegrid level
+ * @field name: The name of the level, or null if it has none
  * @field rows: The number of rows of the grid
  * @field columns: The number of columns in the grid
- * @field playerOne: PuzzleLabel object to keep track of player one in the level
- * @field playerTwo: PuzzleLabel object to keep track of player two in the level
- * @field labelSequence: ArrayList of PuzzleLable objects that specify what each tile of the map will be
+ * @field board: PuzzleBoard template holding the starting state of the level, shared by every play of it
  * @field highScore: the current highscore for the level
  */
 public class PuzzleGrid
 {
 	private boolean multiplayer;
 	private int levelID;
+	private String name;
 	private int rows;
 	private int columns;
-	private PuzzleLabel playerOne;
-	private PuzzleLabel playerTwo;
-	private ArrayList<PuzzleLabel> labelSequence;
+	private PuzzleBoard board;
 	private int highScore;
 	
 	/**
 	 * Constructor for making the PuzzleGrid in its starting state
+	 * @precondition: Single player grids contain exactly one Type.P1_RIGHT and multiplayer grids contain exactly 
+	 * one Type.P1_RIGHT and one Type.P2_RIGHT
 	 * @param multiPlayer: is multiplayer enabled
 	 * @param ID: number ID of the level
 	 * @param rows: number of rows in the grid
@@ -44,62 +41,26 @@ public class PuzzleGrid
 		this.levelID = ID;
 		this.rows = rows;
 		this.columns = columns;
-		this.labelSequence = initializeStartingLabels(startingLabelTypes);
+		this.board = new PuzzleBoard(rows, columns, multiPlayer, startingLabelTypes).freeze();
 		this.highScore = -1;
 	}
-	
-	/**
-	 * Constructor for updating the PuzzleGrid when a change is made through PuzzleManager
-	 * @param rows: number of rows in the grid
-	 * @param columns: number of columns in the grid
-	 * @param labelSequence: ArrayList of PuzzleLable objects that specify what each tile of the new map will be
-	 * @field playerOne: PuzzleLabel object to keep track of player one in the level
-	 * @field playerTwo: PuzzleLabel object to keep track of player two in the level
-	 */
-	public PuzzleGrid(int rows, int columns, ArrayList<PuzzleLabel> labelSequence, PuzzleLabel playerOne, PuzzleLabel playerTwo)
-	{
-		this.rows = rows;
-		this.columns = columns;
-		this.playerOne = playerOne;
-		this.playerTwo = playerTwo;
-		this.labelSequence = labelSequence;
-	}
-	
-	/**
-	 * Converts an array of type enums into an arraylist of puzzlepanels
-	 * @precondition: Single player grids contain exactly one Type.P1_RIGHT and multiplayer grids contain exactly 
-	 * one Type.P1_RIGHT and one Type.P2_RIGHT
-	 * @param startingLabelTypes: Array of Type enums that specify what goes in each tile of the grid initially 
-	 * @return ArrayList of PuzzlePanels
-	 */
-	private ArrayList<PuzzleLabel> initializeStartingLabels(Type[] startingLabelTypes)
-	{
-		ArrayList<PuzzleLabel> labels = new ArrayList<PuzzleLabel>();
-		
-		for(Type type : startingLabelTypes)
-		{
-			switch(type) 
-			{
-				case P2_RIGHT:
-				case P1_RIGHT:	labels.add(registerPlayer(type));										break;
-				default:		labels.add(new PuzzleLabel(type));		break;
-			}
-		}
-		
-		return labels;
-	}
-	
+
 	/**
-	 * Method to assign players and establish other fields when a specific player Type enum is encountered
-	 * @param t: the input Type enum which is used to assign players
-	 * @return PuzzleLabel for the player that is being assigned
+	 * Constructor for a level read from a level collection
+	 * @param multiPlayer: is multiplayer enabled
+	 * @param ID: number ID of the level
+	 * @param name: The name of the level, or null
+	 * @param board: PuzzleBoard holding the starting state of the level, which is frozen into a template
 	 */
-	private PuzzleLabel registerPlayer(Type t)
+	public PuzzleGrid(boolean multiPlayer, int ID, String name, PuzzleBoard board)
 	{
-		PuzzleLabel player = new PuzzleLabel(t);
-		this.playerOne = t == Type.P1_RIGHT ? player : playerOne;
-		this.playerTwo = t == Type.P2_RIGHT ? player : playerTwo;
-		return player;
+		this.multiplayer = multiPlayer;
+		this.levelID = ID;
+		this.name = name;
+		this.rows = board.getRows();
+		this.columns = board.getColumns();
+		this.board = board.freeze();
+		this.highScore = -1;
 	}
 	
 	/**
@@ -123,6 +84,14 @@ public class PuzzleGrid
 	{
 		return levelID;
 	}
+
+	/**
+	 * @return: The name of the level, or "Level " and its number counting from one if it has none
+	 */
+	public String getName()
+	{
+		return name != null ? name : "Level " + (levelID + 1);
+	}
 	
 	public int getHighScore() 
 	{
@@ -140,23 +109,13 @@ public class PuzzleGrid
 	}
 
 	/**
-	 * @return The reference for the player object
-	 */
-	public PuzzleLabel getPlayer(Player playerNumber)
-	{
-		return playerNumber == Player.ONE ? playerOne : playerNumber == Player.TWO ? playerTwo : null;
-	}
-	
-	/**
-	 * Adds a set number of puzzle squares to the labels array list. It adds labels in the order
-	 * that they should be displayed starting at the top of the panel and going from left to right
-	 * adding the number of labels for each column in that row, then goes to the next row until
-	 * it reaches the bottom
-	 * @return labels: The array list with the ordered puzzle squares
+	 * Returns the starting state of the level as an immutable template. Callers that want to
+	 * play the level take a copy, which only copies the boxes and players.
+	 * @return: The PuzzleBoard template in its starting state
 	 */
-	public ArrayList<PuzzleLabel> getLabelSequence()
+	public PuzzleBoard getBoard()
 	{
-		return labelSequence;
+		return board;
 	}
 
 }
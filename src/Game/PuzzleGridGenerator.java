@@ -1,237 +1,84 @@
 package Game;
 
-import java.util.ArrayList;
-
-import Game.ImageFactory.Type;
+import java.io.File;
 
 /**
- * This class stores PuzzleGrid objects which are essentially puzzles defined as an array of 'Type' enums
- * that represent each different type of object in the game. 
- * @field shadowMode: boolean to signal if shadowMode is enabled
- * @field singlePlayerLevels: ArrayList of single player PuzzleGrid objects
- * @field multiPlayerLevels:  ArrayList of multiplayer PuzzleGrid objects
+ * This class hands out the PuzzleGrid levels of the game, which are read from XSB level
+ * collections in the levels directory. Levels are only parsed when they are first asked for, and
+ * are found by ID straight from the offsets of their collection or by name through its name index.
+ * @field SINGLE_PLAYER_FILE: The collection of single player levels
+ * @field MULTI_PLAYER_FILE: The collection of multiplayer levels
+ * @field singlePlayerLevels: LevelCollection of single player levels
+ * @field multiPlayerLevels:  LevelCollection of multiplayer levels
  */
 public class PuzzleGridGenerator
 {
-	public static boolean shadowMode;
-	private ArrayList<PuzzleGrid> singlePlayerLevels;
-	private ArrayList<PuzzleGrid> multiPlayerLevels;
+	public static final File SINGLE_PLAYER_FILE = new File("src/levels/single.xsb");
+	public static final File MULTI_PLAYER_FILE = new File("src/levels/multi.xsb");
+	private LevelCollection singlePlayerLevels;
+	private LevelCollection multiPlayerLevels;
 
 	public PuzzleGridGenerator()
 	{
-		this.singlePlayerLevels = new ArrayList<PuzzleGrid>();
-		this.multiPlayerLevels = new ArrayList<PuzzleGrid>();
-		populateSinglePlayerLevels();
-		populateMultiPlayerLevels();
+		this(SINGLE_PLAYER_FILE, MULTI_PLAYER_FILE);
+	}
+
+	/**
+	 * Constructor for playing other level collections
+	 * @param singlePlayerFile: XSB file of single player levels
+	 * @param multiPlayerFile: XSB file of multiplayer levels
+	 */
+	public PuzzleGridGenerator(File singlePlayerFile, File multiPlayerFile)
+	{
+		this.singlePlayerLevels = new LevelCollection(singlePlayerFile, false);
+		this.multiPlayerLevels = new LevelCollection(multiPlayerFile, true);
 	}
-	
+
 	public int getNumberOfSinglePlayerLevels()
 	{
 		return singlePlayerLevels.size();
 	}
-	
+
 	public int getNumberOfMultiPlayerLevels()
 	{
 		return multiPlayerLevels.size();
 	}
-	
+
+	/**
+	 * @param multiPlayer: boolean for if the multiplayer collection is wanted
+	 * @return: The LevelCollection of single player or multiplayer levels
+	 */
+	public LevelCollection getCollection(boolean multiPlayer)
+	{
+		return multiPlayer ? multiPlayerLevels : singlePlayerLevels;
+	}
+
 	/**
 	 * Returns a single player PuzzleGrid object with a given level ID
-	 * @return: PuzzleGrid of the single player level
+	 * @return: PuzzleGrid of the single player level, or null if there is none
 	 */
 	public PuzzleGrid getLevel(int ID)
 	{
-		PuzzleGrid level = singlePlayerLevels.stream().filter(l -> l.getLevelID() == ID).findFirst().orElse(null);
-		return level;
+		return singlePlayerLevels.getLevel(ID);
 	}
-	
+
 	/**
 	 * Returns a multiplayer PuzzleGrid object with a given level ID
-	 * @return: PuzzleGrid of the multiplayer level
+	 * @return: PuzzleGrid of the multiplayer level, or null if there is none
 	 */
 	public PuzzleGrid getMultiLevel(int ID) {
-		PuzzleGrid level = multiPlayerLevels.stream().filter(l -> l.getLevelID() == ID).findFirst().orElse(null);
-		return level;
-	}
-	
-	/**
-	 * Method that fills the ArrayList<PuzzleGrid> singlePlayerLevels with hard coded levels
-	 */
-	private void populateSinglePlayerLevels()
-	{
-		int numLevels = 0;
-		singlePlayerLevels.add(numLevels++, new PuzzleGrid(false, 0, 8, 6, new Type[]
-		{
-			Type.EMPTY, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.EMPTY,
-			Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 	Type.EMPTY,
-			Type.BRICK, 	Type.P1_RIGHT,	Type.BOX, 		Type.EMPTY, 	Type.BRICK, 	Type.EMPTY,
-			Type.BRICK, 	Type.BRICK, 	Type.BOX, 		Type.EMPTY, 	Type.BRICK, 	Type.BRICK,
-			Type.BRICK, 	Type.BRICK, 	Type.EMPTY,		Type.BOX, 		Type.EMPTY, 	Type.BRICK,
-			Type.BRICK, 	Type.P1_CROSS, 	Type.BOX, 		Type.EMPTY, 	Type.EMPTY, 	Type.BRICK,
-			Type.BRICK, 	Type.P1_CROSS, 	Type.P1_CROSS, 	Type.P1_BOXED, 	Type.P1_CROSS, 	Type.BRICK,
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK
-		}));
-		
-		singlePlayerLevels.add(numLevels++, new PuzzleGrid(false, 1, 8, 9, new Type[]
-		{
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK,  
-			Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.P1_RIGHT,	Type.P1_CROSS,	Type.P1_CROSS,	Type.P1_CROSS,	Type.BRICK, 	Type.BRICK,  
-			Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK,  
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BOX, 		Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK,  
-			Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 
-			Type.BRICK, 	Type.EMPTY, 	Type.BOX, 		Type.EMPTY, 	Type.BRICK, 	Type.BOX, 		Type.BRICK, 	Type.EMPTY, 	Type.BRICK,  
-			Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK
-		}));
-	
-		singlePlayerLevels.add(numLevels++, new PuzzleGrid(false, 2, 12, 7, new Type[]
-		{
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.P1_CROSS, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK,
-			Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK,
-			Type.P1_CROSS, 	Type.EMPTY,		Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.P1_CROSS,
-			Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK,
-			Type.BRICK, 	Type.P1_CROSS, 	Type.BOX,		Type.BOX, 		Type.BOX, 		Type.P1_CROSS, 	Type.BRICK,
-			Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK,
-			Type.BRICK, 	Type.P1_CROSS, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.P1_CROSS, 	Type.BRICK,
-			Type.BRICK, 	Type.EMPTY, 	Type.BOX, 		Type.EMPTY, 	Type.BOX, 		Type.EMPTY, 	Type.BRICK,
-			Type.BRICK, 	Type.EMPTY, 	Type.BOX, 		Type.EMPTY, 	Type.BOX, 		Type.EMPTY, 	Type.BRICK,
-			Type.BRICK, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.BRICK,
-			Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.P1_RIGHT, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK,
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK
-		}));
-	
-		singlePlayerLevels.add(numLevels++, new PuzzleGrid(false, 3, 12, 7, new Type[]
-		{
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK,
-			Type.BRICK, 	Type.BRICK, 	Type.P1_CROSS, 	Type.EMPTY, 	Type.P1_CROSS, 	Type.BRICK, 	Type.BRICK,
-			Type.BRICK, 	Type.P1_BOXED, 	Type.P1_BOXED, 	Type.EMPTY, 	Type.BOX, 		Type.P1_BOXED, 	Type.BRICK,
-			Type.BRICK, 	Type.P1_CROSS,	Type.BOX, 		Type.BOX, 		Type.BOX, 		Type.P1_CROSS, 	Type.BRICK,
-			Type.BRICK, 	Type.P1_BOXED, 	Type.P1_CROSS, 	Type.EMPTY, 	Type.EMPTY, 	Type.P1_BOXED, 	Type.BRICK,
-			Type.BRICK, 	Type.P1_CROSS, 	Type.BOX,		Type.BOX, 		Type.BOX, 		Type.P1_CROSS, 	Type.BRICK,
-			Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK,
-			Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK,
-			Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK,
-			Type.BRICK, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.BRICK,
-			Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.P1_RIGHT, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK,
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK,
-		}));
-	
-		singlePlayerLevels.add(numLevels++, new PuzzleGrid(false, 4, 12, 12, new Type[]
-		{
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK,
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK,
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.BOX, 		Type.EMPTY, 	Type.BOX, 		Type.EMPTY, 	Type.P1_CROSS, 	Type.BRICK,
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK,		Type.BRICK, 	Type.P1_CROSS, 	Type.BOX, 		Type.P1_CROSS, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK,
-			Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.P1_CROSS, 	Type.EMPTY, 	Type.BOX, 		Type.EMPTY, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK,
-			Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.P1_CROSS, 	Type.EMPTY, 	Type.EMPTY, 	Type.BOX, 		Type.EMPTY, 	Type.P1_CROSS, 	Type.EMPTY, 	Type.BRICK,
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BOX, 		Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK,
-			Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK,
-			Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.P1_RIGHT, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK,
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 
-		}));
-		
-		singlePlayerLevels.add(numLevels++, new PuzzleGrid(false, 5, 8, 8, new Type[]
-		{		
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.P1_CROSS,	Type.BRICK, 	Type.BRICK, 	Type.BRICK,  
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BOX, 		Type.BRICK, 	Type.BRICK, 	Type.BRICK, 
-			Type.BRICK, 	Type.P1_CROSS,	Type.EMPTY, 	Type.BOX, 		Type.P1_RIGHT,	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BOX, 		Type.EMPTY, 	Type.BOX, 		Type.P1_CROSS,	Type.BRICK,  
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.P1_CROSS,	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK,  
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK	
-		}));
-		
-		singlePlayerLevels.add(numLevels++, new PuzzleGrid(false, 6, 6, 10, new Type[]
-		{
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK,  
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK, 
-			Type.BRICK, 	Type.BRICK, 	Type.P1_CROSS,	Type.EMPTY, 	Type.BOX, 		Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK, 
-			Type.BRICK, 	Type.P1_CROSS,	Type.P1_CROSS,		Type.BOX, 	Type.EMPTY, 	Type.BOX, 		Type.EMPTY, 	Type.EMPTY, 	Type.P1_RIGHT,	Type.BRICK, 
-			Type.BRICK, 	Type.P1_CROSS,	Type.P1_CROSS,		Type.EMPTY, Type.BOX, 		Type.EMPTY,		Type.BOX, 		Type.EMPTY, 	Type.BRICK, 	Type.BRICK, 
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK
-		}));
-		
-		singlePlayerLevels.add(numLevels++, new PuzzleGrid(false, 7, 8, 8, new Type[]
-		{
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 
-			Type.BRICK, 	Type.BRICK, 	Type.P1_CROSS, 	Type.BRICK,		Type.P1_CROSS,	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 
-			Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.BRICK, 	Type.P1_CROSS,	Type.BRICK, 	Type.BRICK, 	Type.BRICK,
-			Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.BRICK, 	Type.BOX, 		Type.P1_CROSS,	Type.BRICK, 	Type.BRICK, 
-			Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.BOX, 		Type.EMPTY,	 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK, 
-			Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 	Type.BOX, 		Type.BOX, 		Type.EMPTY, 	Type.BRICK, 
-			Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.P1_RIGHT,	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK
-		}));
-		
-		singlePlayerLevels.add(numLevels++, new PuzzleGrid(false, 8, 7, 9, new Type[]
-		{
-			Type.BRICK,		Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 
-			Type.BRICK,		Type.BRICK, 	Type.EMPTY, 	Type.P1_CROSS, 	Type.BRICK, 	Type.P1_CROSS, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK, 
-			Type.BRICK,		Type.EMPTY, 	Type.BOX, 		Type.EMPTY, 	Type.EMPTY,		Type.EMPTY,		Type.BOX, 		Type.EMPTY, 	Type.BRICK,  
-			Type.BRICK,		Type.P1_RIGHT, 	Type.BOX,		Type.P1_CROSS, 	Type.EMPTY,		Type.P1_CROSS, 	Type.BOX, 		Type.EMPTY, 	Type.BRICK,  
-			Type.BRICK,		Type.EMPTY, 	Type.BOX,		Type.P1_CROSS, 	Type.EMPTY,		Type.P1_CROSS,	Type.BOX, 		Type.EMPTY, 	Type.BRICK, 
-			Type.BRICK,		Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 
-			Type.BRICK,		Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK
-		}));	
-		
-		singlePlayerLevels.add(numLevels++, new PuzzleGrid(false, 9, 7, 8, new Type[]
-		{
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 
-			Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY,	 	Type.BRICK, 	Type.BRICK, 
-			Type.BRICK, 	Type.EMPTY, 	Type.BOX, 		Type.EMPTY, 	Type.BOX, 		Type.BOX, 		Type.EMPTY, 	Type.BRICK, 
-			Type.BRICK, 	Type.P1_CROSS,	Type.P1_CROSS,	Type.P1_CROSS,	Type.P1_CROSS,	Type.P1_CROSS,	Type.P1_CROSS,	Type.BRICK, 
-			Type.BRICK, 	Type.EMPTY, 	Type.BOX, 		Type.BOX, 		Type.EMPTY, 	Type.BOX, 		Type.EMPTY, 	Type.BRICK, 
-			Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.P1_RIGHT,	Type.EMPTY, 	Type.EMPTY,	 	Type.BRICK, 
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK,		Type.BRICK, 	Type.BRICK, 	Type.BRICK		
-		}));
+		return multiPlayerLevels.getLevel(ID);
 	}
 
 	/**
-	 * Method that fills the ArrayList<PuzzleGrid> multiPlayerLevels with hard coded levels
+	 * Returns a single player or multiplayer PuzzleGrid object with a given name
+	 * @param multiPlayer: boolean for if the level is a multiplayer level
+	 * @param name: The name of the level
+	 * @return: PuzzleGrid of the level, or null if there is none
 	 */
-	private void populateMultiPlayerLevels()
+	public PuzzleGrid getLevel(boolean multiPlayer, String name)
 	{
-		int numLevels = 0;
-		multiPlayerLevels.add(numLevels++, new PuzzleGrid(true, 0, 8, 9, new Type[]
-		{
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK,  
-			Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.P1_RIGHT,	Type.P1_CROSS,	Type.P1_CROSS,	Type.P1_CROSS,	Type.BRICK, 	Type.BRICK,  
-			Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.P2_BOX, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK,  
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.P2_BOX, 	Type.P1_BOX, 	Type.EMPTY, 	Type.P1_BOX, 	Type.EMPTY, 	Type.BRICK,  
-			Type.BRICK, 	Type.EMPTY, 	Type.P2_BOX, 	Type.EMPTY, 	Type.EMPTY, 	Type.P2_CROSS, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 
-			Type.BRICK, 	Type.P2_RIGHT, 	Type.P2_CROSS, 	Type.P2_CROSS, 	Type.EMPTY, 	Type.P1_BOX, 	Type.BRICK, 	Type.EMPTY, 	Type.BRICK,  
-			Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK	
-		}));
-		
-		multiPlayerLevels.add(numLevels++, new PuzzleGrid(true, 1, 9, 11, new Type[]
-		{
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK,		Type.BRICK,  	Type.BRICK,	 
-			Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY,	 	Type.BRICK,  	Type.BRICK,	
-			Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.P1_BOX, 	Type.P1_BOX, 	Type.P1_BOX, 	Type.P2_BOX, 	Type.P1_BOX, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK, 
-			Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.P2_BOX, 	Type.EMPTY, 	Type.P2_BOX, 	Type.EMPTY, 	Type.P2_BOX, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK,
-			Type.BRICK, 	Type.EMPTY, 	Type.P1_BOX, 	Type.EMPTY, 	Type.P1_RIGHT, 	Type.EMPTY, 	Type.P2_RIGHT, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK,
-			Type.BRICK, 	Type.EMPTY, 	Type.P2_BOX,	Type.EMPTY, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK,	
-			Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.P1_CROSS, 	Type.P1_CROSS, 	Type.P1_CROSS, 	Type.P1_CROSS, 	Type.P1_CROSS, 	Type.BRICK,		Type.BRICK,	
-			Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.P2_CROSS, 	Type.P2_CROSS, 	Type.P2_CROSS, 	Type.P2_CROSS, 	Type.P2_CROSS, 	Type.BRICK,		Type.BRICK,			
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK,		Type.BRICK,			
-		}));
-		
-		multiPlayerLevels.add(numLevels++, new PuzzleGrid(true, 2, 10, 12, new Type[]
-		{
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK,		Type.BRICK,  	 Type.BRICK,	 	Type.BRICK,
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY,		Type.BRICK,  	 Type.BRICK,		Type.BRICK,
-			Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	 Type.BRICK, 		Type.BRICK,
-			Type.BRICK, 	Type.EMPTY, 	Type.P1_BOX, 	Type.EMPTY, 	Type.P1_CROSS, 	Type.P1_CROSS, 	Type.P1_CROSS, 	Type.P1_CROSS, 	Type.BRICK, 	Type.EMPTY, 	 Type.BRICK,		Type.BRICK,
-			Type.BRICK, 	Type.P1_RIGHT, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK, 	Type.P2_CROSS, 	Type.P2_CROSS, 	Type.P2_BOXED, 	Type.P2_CROSS, 	Type.EMPTY, 	 Type.EMPTY,		Type.BRICK,
-			Type.BRICK, 	Type.EMPTY, 	Type.P2_BOX,	Type.EMPTY, 	Type.EMPTY, 	Type.P2_BOX, 	Type.BRICK, 	Type.BRICK, 	Type.P1_BOX, 	Type.BRICK, 	 Type.EMPTY,		Type.BRICK,
-			Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 	Type.P1_BOX, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.P2_BOX, 	Type.EMPTY,		 Type.P2_RIGHT,		Type.BRICK,
-			Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY, 	Type.EMPTY, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.P1_BOX, 	Type.BRICK,	 	 Type.EMPTY,		Type.BRICK,	
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.EMPTY, 	Type.EMPTY,	 	 Type.EMPTY,		Type.BRICK,
-			Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK, 	Type.BRICK,		 Type.BRICK,		Type.BRICK,
-		}));
+		LevelCollection collection = getCollection(multiPlayer);
+		return collection.getLevel(collection.indexOf(name));
 	}
 }
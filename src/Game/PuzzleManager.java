@@ -1,407 +1,448 @@
 package Game;
 
 import java.awt.event.KeyEvent;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Stack;
+import java.util.Arrays;
 
+import javax.swing.SwingUtilities;
+
+import Game.ImageFactory.Direction;
 import Game.ImageFactory.Player;
-import Game.ImageFactory.Type;
 
 /**
  * Class controls the backend and logic for the game.
  * Only used for singlePlayer.
+ * Moves are made through move, which takes a player and a direction and allocates nothing, so bots,
+ * tests and replays can drive the game without key events. The keyboard and the buttons only
+ * translate their input into calls to it. Input can also be given as small command numbers, which
+ * is how a PuzzleSimulation passes it to its own thread.
+ * A manager made without a panel draws nothing, and the cells changed by its moves are collected
+ * until takeSnapshot hands them on. A manager made without a Game records no results and opens no
+ * win screen, so many can run at once without sharing anything but their read only PuzzleGrid.
+ * @field UNDO: command that undoes the last move
+ * @field REDO: command that redoes the last undone move
+ * @field RESET: command that resets the level
+ * @field MOVE: the first of the move commands, which follow in Player then Direction order
+ * @field COMMAND_COUNT: The number of commands
+ * @field PLAYERS: cached Player values used to decode moves given as ordinals
+ * @field DIRECTIONS: cached Direction values used to decode moves given as ordinals
  * @field level: the current level number
- * @field ROWS: the number of rows of puzzle labels to add to the panel
- * @field COLUMNS: The number of columns of puzzle labels
  * @field nMoves: number of moves taken so far in the game
  * @field game: Game object that will be used to call on methods in game
- * @field currentLabelSequence: The ordered list of puzzle labels to add to the panel from the top row
- * @field previousStates: Stack of PuzzleGrids to be used as previous states in undoing of moves 
- * @field playerOnePiece: PuzzleLabel for the position of Player one
- * @field playerTwoPiece: PuzzleLabel for the position of Player two
- * @field panel: PuzzleDisplayPanel object that will be used to display the current game state
+ * @field board: The PuzzleBoard holding the state of the game being played
+ * @field journal: MoveJournal recording the cells changed by each move, used in undoing and redoing of moves
+ * @field panel: PuzzleDisplayPanel object that will be used to display the current game state, or null
+ * @field steps: The steps taken so far packed as by PuzzleSolution.packStep, followed by any undone steps
+ * @field stepCounts: The number of steps applied at each position of the journal, so undo and redo move through the steps with it
+ * @field startTime: The time in milliseconds the level was started or last reset
  */
 public class PuzzleManager
 {
+	public static final int UNDO = 0;
+	public static final int REDO = 1;
+	public static final int RESET = 2;
+	public static final int MOVE = 3;
+	public static final int COMMAND_COUNT = MOVE + 2*4;
+	private static final Player[] PLAYERS = Player.values();
+	private static final Direction[] DIRECTIONS = Direction.values();
 	private final int level;
-	private final int ROWS;
-	private final int COLUMNS;
 	private int nMoves;
 	private Game game;
-	protected ArrayList<PuzzleLabel> currentLabelSequence;
-	private Stack<PuzzleGrid> previousStates;
-	private PuzzleLabel playerOnePiece;
-	protected PuzzleLabel playerTwoPiece;
+	protected PuzzleBoard board;
+	private MoveJournal journal;
 
 	private PuzzleDisplayPanel panel;
-	
+	private byte[] steps;
+	private int[] stepCounts;
+	private long startTime;
+
 	public PuzzleManager(PuzzleDisplayPanel panel, PuzzleGrid grid, Game g)
-	{	
+	{
 		this.level = grid.getLevelID();
-		this.ROWS = grid.getRows();
-		this.COLUMNS = grid.getColumns();
 		this.nMoves = 0;
 		this.game = g;
-		
-		this.currentLabelSequence = grid.getLabelSequence();
-		this.playerOnePiece = grid.getPlayer(Player.ONE);
-		this.playerTwoPiece = grid.getPlayer(Player.TWO);
-		this.previousStates = new Stack<PuzzleGrid>();
-		
+
+		this.board = grid.getBoard().copy();
+		this.journal = new MoveJournal();
+		this.board.setJournal(journal);
+		this.board.trackChanges();
+		this.steps = new byte[64];
+		this.stepCounts = new int[64];
+		this.startTime = System.currentTimeMillis();
+
 		this.panel = panel;
-		this.panel.reloadPanelLabels(currentLabelSequence, PuzzleGridGenerator.shadowMode);
+		if(panel != null)
+		{
+			panel.reloadPanelLabels(board, isShadowMode());
+		}
 	}
-	
-	public int getnMoves() 
+
+	public int getnMoves()
 	{
 		return nMoves;
 	}
-	
+
+	/**
+	 * @param player: The owner of the boxes
+	 * @return: The number of boxes of the player still to be put on a goal
+	 */
+	public int getUnplacedBoxes(Player player)
+	{
+		return board.getUnplacedBoxes(player);
+	}
+
+	/**
+	 * @return: The number of steps applied to the board
+	 */
+	private int getStepCount()
+	{
+		return stepCounts[journal.getPosition()];
+	}
+
+	/**
+	 * @return: The steps applied to the board so far, in the order they were taken
+	 */
+	public PuzzleSolution getRecording()
+	{
+		return new PuzzleSolution(Arrays.copyOf(steps, getStepCount()), board.isMultiplayer(), false);
+	}
+
+	/**
+	 * Writes the steps applied so far as a move string that PuzzleReplayer can play back
+	 * @return: The LURD string of player one
+	 */
+	public String getMoves()
+	{
+		return getRecording().getMoves(Player.ONE);
+	}
+
+	/**
+	 * @return: boolean for if the Game showing this level has shadow mode enabled
+	 */
+	private boolean isShadowMode()
+	{
+		return game != null && game.isShadowMode();
+	}
+
 	/**
-	 * Method that saves the current label state which is used to undo moves, and return to previous states
+	 * Has the panel redraw only the cells that changed since the last refresh
 	 */
-	private void saveLabelsState()
+	private void refreshLabels()
 	{
-		PuzzleLabel newPlayerOne = playerOnePiece.Clone();
-		PuzzleLabel newPlayerTwo = playerTwoPiece != null ? playerTwoPiece.Clone() : null;
-		ArrayList<PuzzleLabel> savedState = new ArrayList<PuzzleLabel>();
-		for(PuzzleLabel pl : currentLabelSequence)
+		if(panel != null)
 		{
-			PuzzleLabel toAdd = pl.equals(playerOnePiece) ? newPlayerOne : pl.equals(playerTwoPiece) ? newPlayerTwo : pl.Clone();
-			savedState.add(toAdd);
+			panel.refreshPanelLabels(board.getChangedCells(), board.getChangedCount(), isShadowMode());
+			board.clearChanged();
 		}
-		previousStates.push(new PuzzleGrid(ROWS, COLUMNS, currentLabelSequence, playerOnePiece, playerTwoPiece));
-		
-		currentLabelSequence = savedState;
-		playerOnePiece = newPlayerOne;
-		playerTwoPiece = newPlayerTwo;
-		
-		panel.reloadPanelLabels(currentLabelSequence, PuzzleGridGenerator.shadowMode);
 	}
-	
+
+	/**
+	 * Takes an immutable copy of the game for drawing on another thread, along with the cells
+	 * changed since the last snapshot was taken
+	 * @param previous: The last snapshot if it has not been drawn yet, whose changed cells are carried over, or null
+	 * @return: The snapshot
+	 */
+	public BoardSnapshot takeSnapshot(BoardSnapshot previous)
+	{
+		BoardSnapshot snapshot = new BoardSnapshot(board, nMoves, previous);
+		board.clearChanged();
+		return snapshot;
+	}
+
 	/**
 	 * Sets the current panel to display the previous label state. Used in undoing of moves.
 	 */
 	public void reloadLastLabelState()
 	{
-		if(previousStates.size() > 0)
+		if(journal.undo(board))
 		{
-			PuzzleGrid savedState = previousStates.pop();
-			
-			currentLabelSequence = savedState.getLabelSequence();
-			playerOnePiece = savedState.getPlayer(Player.ONE);
-			playerTwoPiece = savedState.getPlayer(Player.TWO);
-			
-			panel.reloadPanelLabels(currentLabelSequence, PuzzleGridGenerator.shadowMode);
+			refreshLabels();
 		}
 	}
-	
+
+	/**
+	 * Reapplies the last move that was undone, as long as no other move has been made since
+	 */
+	public void redoLastLabelState()
+	{
+		if(journal.redo(board))
+		{
+			refreshLabels();
+		}
+	}
+
 	/**
 	 * Resets the PuzzleGrid to its initial state, resets move counters, and makes the PuzzlePanel display the start.
 	 */
 	public void resetGame()
 	{
-		if(previousStates.size() > 0)
+		if(journal.canUndo())
 		{
-			PuzzleGrid start = previousStates.get(0);
-			currentLabelSequence = start.getLabelSequence();
-			playerOnePiece = start.getPlayer(Player.ONE);
-			playerTwoPiece = start.getPlayer(Player.TWO);
-			previousStates.clear();
+			board.reset();
+			journal.clear();
 			nMoves = 0;
-			panel.reloadPanelLabels(currentLabelSequence, PuzzleGridGenerator.shadowMode);
+			startTime = System.currentTimeMillis();
+			refreshLabels();
 		}
 	}
-	
+
 	/**
 	 * Performs various actions based upon incoming keyEvents
 	 * @param e: The event from a key press
 	 * @param grid: the puzzlegrid level that is being passed through and being acted on
 	 */
 	public void handleKeyPress(KeyEvent e, PuzzleGrid grid)
-	{	
-		if (e.getKeyCode() == KeyEvent.VK_R)
-		{
-			resetGame();
-		}
-		
-		if(e.getKeyCode() == KeyEvent.VK_U)
+	{
+		int command = translateKey(e.getKeyCode());
+		if(command != -1)
 		{
-			reloadLastLabelState();
+			handleCommand(command, grid);
 		}
-		
-		if(e.getKeyCode() == KeyEvent.VK_UP || e.getKeyCode() == KeyEvent.VK_DOWN || e.getKeyCode() == KeyEvent.VK_LEFT || e.getKeyCode() == KeyEvent.VK_RIGHT)
-		{
-			registerMove(e, playerOnePiece);
-			validatePuzzleSolved(grid);
-		}	
 	}
-	
+
 	/**
-	 * Method that registers that a move action has been made
-	 * @param e: Keyevent that is passed through and determines what move is made
-	 * @param playerPiece: reference to the player piece
+	 * Converts the code of a key into the command it gives. Player one moves with the arrow keys.
+	 * @param keyCode: the code of the key pressed
+	 * @return: The command, or -1 if the key does nothing
 	 */
-	public void registerMove(KeyEvent e, PuzzleLabel playerPiece)
+	public int translateKey(int keyCode)
 	{
-		saveLabelsState();
-		
-		int manIndex = getPlayerIndex(playerPiece);
-		int swapIndex = validateKeyArrowDirection(e, manIndex);
-		if(swapIndex != -1)
+		switch(keyCode)
 		{
-			setPlayerFacingDirection(e);
-			handleSwapObjectBehaviour(e, manIndex, swapIndex);
-			panel.reloadPanelLabels(currentLabelSequence, PuzzleGridGenerator.shadowMode);
-			validateNumMoves(manIndex, playerPiece);
+			case KeyEvent.VK_R:		return RESET;
+			case KeyEvent.VK_U:		return UNDO;
+			case KeyEvent.VK_Y:		return REDO;
+			case KeyEvent.VK_UP:
+			case KeyEvent.VK_DOWN:
+			case KeyEvent.VK_LEFT:
+			case KeyEvent.VK_RIGHT:	return moveCommand(Player.ONE, translateKeyCode(keyCode));
 		}
+		return -1;
 	}
-	
-	private int getPlayerIndex(PuzzleLabel playerPiece)
+
+	/**
+	 * @param player: the player that is moving
+	 * @param direction: the direction to move in
+	 * @return: The command that moves the player in the direction
+	 */
+	public static int moveCommand(Player player, Direction direction)
 	{
-		Player p = playerPiece.getPlayer();
-		int manIndex = p == Player.ONE ? currentLabelSequence.indexOf(playerOnePiece) : 
-			p == Player.TWO ? currentLabelSequence.indexOf(playerTwoPiece) : -1;
-			return manIndex;
+		return MOVE + (player.ordinal() - Player.ONE.ordinal())*DIRECTIONS.length + direction.ordinal();
 	}
-	
+
 	/**
-	 * Updates the direction of the player to face in the direction of the arrow key pressed
-	 * and then verifies if the destination cell is valid, then calculates the index of the 
-	 * puzzle label that corresponds to the destination
-	 * @param e: The key event passed
-	 * @param playerIndex: The index in the labels array of the player piece
-	 * @return swapIndex: The index of the piece at the destination
+	 * Carries out a command, opening the win screen if it solves the puzzle
+	 * @param command: UNDO, REDO, RESET or a command from moveCommand
+	 * @param grid: the puzzlegrid level that is being acted on
 	 */
-	public int validateKeyArrowDirection(KeyEvent e, int playerIndex)
+	public void handleCommand(int command, PuzzleGrid grid)
 	{
-		int swapIndex = -1;
-
-		if(checkDestinationIsWithinGrid(e, playerIndex))
+		switch(command)
 		{
-			swapIndex = playerIndex + getDestinationIndexOffset(e);
+			case UNDO:	reloadLastLabelState(); break;
+			case REDO:	redoLastLabelState(); break;
+			case RESET:	resetGame(); break;
+			default:
+				int move = command - MOVE;
+				handleMove(PLAYERS[Player.ONE.ordinal() + move / DIRECTIONS.length], DIRECTIONS[move % DIRECTIONS.length], grid);
 		}
-		return swapIndex;
 	}
-	
+
 	/**
-	 * Checks the index of the player piece in the array and returns true if the player is
-	 * at least 1 puzzle piece away from the border of the panel in the direction of movement
-	 * @param e: The key event passed
-	 * @param playerIndex: The index of the player piece in the labels array
-	 * @return: True if the destination is within the panel or false otherwise
+	 * Moves a player as asked by the keyboard or a button, opening the win screen if the move
+	 * solves the puzzle
+	 * @param player: the player that is moving
+	 * @param direction: the direction to move in
+	 * @param grid: the puzzlegrid level that is being acted on
 	 */
-	private boolean checkDestinationIsWithinGrid(KeyEvent e, int playerIndex)
+	public void handleMove(Player player, Direction direction, PuzzleGrid grid)
 	{
-		int keyCode = translateKeyCode(e);	
-		switch(keyCode)
-		{
-			case KeyEvent.VK_UP: 	return playerIndex >= COLUMNS;
-			case KeyEvent.VK_DOWN: 	return playerIndex <= COLUMNS*(ROWS-1);
-			case KeyEvent.VK_LEFT: 	return playerIndex % COLUMNS > 0;
-			case KeyEvent.VK_RIGHT: return playerIndex % COLUMNS < COLUMNS-1;
-		}
-		return false;
+		move(player, direction);
+		validatePuzzleSolved(grid);
 	}
 
 	/**
-	 * Calculates the index offset to get from the index of the player piece to the index of the
-	 * destination piece.
-	 * @param e: The key event
-	 * @return: The integer offset or 0 if not an arrow key
+	 * Moves a player and has the panel redraw the cells that changed. The move counter is only
+	 * incremented when the player actually moves. Nothing is allocated unless the recording of
+	 * the steps has to grow, so bots and replays can drive the game directly.
+	 * @param player: the player that is moving
+	 * @param direction: the direction to move in
+	 * @return: PuzzleBoard.BLOCKED, PuzzleBoard.MOVED or PuzzleBoard.PUSHED
 	 */
-	private int getDestinationIndexOffset(KeyEvent e)
+	public int move(Player player, Direction direction)
 	{
-		int keyCode = translateKeyCode(e);	
-		switch(keyCode)
+		int count = getStepCount();
+		journal.beginStep();
+		int result = board.move(player, direction);
+		journal.endStep();
+		if(result != PuzzleBoard.BLOCKED)
 		{
-			case KeyEvent.VK_UP: 	return -COLUMNS;
-			case KeyEvent.VK_DOWN: 	return COLUMNS;
-			case KeyEvent.VK_LEFT: 	return -1;
-			case KeyEvent.VK_RIGHT: return 1;
+			nMoves++;
+			count = addStep(count, player, direction, result == PuzzleBoard.PUSHED);
 		}
-		return 0;
+		setStepCount(count);
+		refreshLabels();
+		return result;
 	}
-	
+
 	/**
-	 * Converts key events from player 1 and 2s controls into one easy to use key code that can be passed elsewhere
-	 * @param e: passed through key code
-	 * @return keyCode that can be passed elsewhere
+	 * Applies a sequence of steps as a single move, so one undo takes all of them back, and has
+	 * the panel redraw the changed cells once at the end. Steps that are blocked are skipped, as
+	 * they are when made from the keyboard. Callers check for a win once it is done.
+	 * @param moves: The steps to apply
+	 * @return: The number of steps that moved a player
 	 */
-	private int translateKeyCode(KeyEvent e)
+	public int applyMoves(PuzzleSolution moves)
 	{
-		int keyCode = e.getKeyCode();
-		switch(keyCode)
-		{
-			case KeyEvent.VK_W: 	return KeyEvent.VK_UP;
-			case KeyEvent.VK_S: 	return KeyEvent.VK_DOWN;
-			case KeyEvent.VK_A: 	return KeyEvent.VK_LEFT;
-			case KeyEvent.VK_D: 	return KeyEvent.VK_RIGHT;
-		}
-		return keyCode;
+		return applyMoves(moves, 0, moves.getMoveCount(), false);
 	}
-	
+
 	/**
-	 * Sets the image of the player piece to the one corresponding to the direction of the
-	 * arrow key pressed in the key event
-	 * @param e: The key event passed
+	 * Applies a move string, as read by PuzzleSolution.parse, as a single move
+	 * @param moves: The move string
+	 * @return: The number of steps that moved a player
+	 * @throws IllegalArgumentException: if the move string cannot be read
 	 */
-	private void setPlayerFacingDirection(KeyEvent e)
+	public int applyMoves(String moves)
 	{
-		switch(e.getKeyCode())
-		{
-			case KeyEvent.VK_UP: 	playerOnePiece.setImage(Type.P1_UP); 		break;
-			case KeyEvent.VK_DOWN: 	playerOnePiece.setImage(Type.P1_DOWN); 		break;
-			case KeyEvent.VK_LEFT: 	playerOnePiece.setImage(Type.P1_LEFT); 		break;
-			case KeyEvent.VK_RIGHT: playerOnePiece.setImage(Type.P1_RIGHT); 	break;
-			case KeyEvent.VK_W: 	playerTwoPiece.setImage(Type.P2_UP); 		break;
-			case KeyEvent.VK_S: 	playerTwoPiece.setImage(Type.P2_DOWN); 		break;
-			case KeyEvent.VK_A: 	playerTwoPiece.setImage(Type.P2_LEFT); 		break;
-			case KeyEvent.VK_D:	 	playerTwoPiece.setImage(Type.P2_RIGHT); 	break;
-		}
+		return applyMoves(PuzzleSolution.parse(moves));
 	}
 
 	/**
-	 * Assumes that the move from the player index to the destination index is valid and checks
-	 * what object is at the destination index and either checks if it can move it in the same 
-	 * direction if it is a box, or simply swaps it with the player if it can be moved over like
-	 * an empty square or a cross
-	 * @param e: The key event
-	 * @param playerIndex: The index of the player piece
-	 * @param destinationIndex: The index of the  destination piece
-	 * @return 
-	 * @precondition: player to destination is a valid move
+	 * Applies part of a sequence of steps as a single move. A PuzzleSimulation plays a sequence
+	 * back over time by applying the steps due on each frame, extending the same move.
+	 * @param moves: The steps to apply
+	 * @param from: The position of the first step to apply
+	 * @param to: The position after the last step to apply
+	 * @param extend: boolean for if the steps are added to the last move instead of making a new one
+	 * @return: The number of steps that moved a player
 	 */
-	protected boolean handleSwapObjectBehaviour(KeyEvent e, int playerIndex, int destinationIndex)
+	int applyMoves(PuzzleSolution moves, int from, int to, boolean extend)
 	{
-		PuzzleLabel playerPiece = currentLabelSequence.get(playerIndex);
-		PuzzleLabel toSwap = currentLabelSequence.get(destinationIndex);
-		if(toSwap.isType(Type.BRICK))
+		int count = getStepCount();
+		int moved = 0;
+		if(extend)
 		{
-			return false;
+			journal.continueStep();
 		}
-		else if(toSwap.isType(Type.EMPTY))
+		else
 		{
-			if(playerPiece.isType(Type.P1_CROSS))
-			{
-				toSwap.setTypeAndImage(Type.P1_CROSS);
-			}
-			playerPiece.setType(Type.P1_RIGHT);
+			journal.beginStep();
 		}
-		else if(toSwap.isType(Type.P1_CROSS))
+		for(int i = from; i < to; i++)
 		{
-			if(!playerPiece.isType(Type.P1_CROSS))
+			Player player = moves.getPlayer(i);
+			Direction direction = moves.getDirection(i);
+			int result = board.move(player, direction);
+			if(result != PuzzleBoard.BLOCKED)
 			{
-				toSwap.setTypeAndImage(Type.EMPTY);
+				moved++;
+				count = addStep(count, player, direction, result == PuzzleBoard.PUSHED);
 			}
-			playerPiece.setType(Type.P1_CROSS);
 		}
-		else if(toSwap.isType(Type.BOX) || toSwap.isType(Type.P1_BOXED))
-		{
-			int toSwapSwapIndex = validateKeyArrowDirection(e, destinationIndex);
-			if(toSwapSwapIndex == -1)
-			{
-				return false;
-			}
-			PuzzleLabel toSwapWithToSwap = currentLabelSequence.get(toSwapSwapIndex);
-			
-			if(toSwapWithToSwap.isType(Type.EMPTY))
-			{
-				if(playerPiece.isType(Type.P1_CROSS))
-				{
-					toSwapWithToSwap.setTypeAndImage(Type.P1_CROSS);
-					playerPiece.setType(Type.P1_RIGHT);
-				}
-
-				if(toSwap.isType(Type.P1_BOXED))
-				{
-					toSwap.setTypeAndImage(Type.BOX);
-					playerPiece.setType(Type.P1_CROSS);
-				}
-			}
-			else if(toSwapWithToSwap.isType(Type.P1_CROSS))
-			{
-				if(!playerPiece.isType(Type.P1_CROSS))
-				{
-					toSwapWithToSwap.setTypeAndImage(Type.EMPTY);
-				}
-
-				if(toSwap.isType(Type.P1_BOXED))
-				{
-					playerPiece.setType(Type.P1_CROSS);
-				}
-				else if(toSwap.isType(Type.BOX))
-				{
-					toSwap.setTypeAndImage(Type.P1_BOXED);
-					playerPiece.setType(Type.P1_RIGHT);
-				}			
-			}
-			else
-			{
-				return false;
-			}
+		journal.endStep();
+		nMoves += moved;
+		setStepCount(count);
+		refreshLabels();
+		return moved;
+	}
 
-			Collections.swap(currentLabelSequence, destinationIndex, toSwapSwapIndex);
-		}
-		else
+	/**
+	 * Adds a step that moved a player to the recording of the steps
+	 * @param count: The number of steps recorded before it
+	 * @param player: the player that moved
+	 * @param direction: the direction moved in
+	 * @param push: boolean for if the step pushed a box
+	 * @return: The number of steps recorded after it
+	 */
+	private int addStep(int count, Player player, Direction direction, boolean push)
+	{
+		if(count == steps.length)
 		{
-			return false;
+			steps = Arrays.copyOf(steps, count*2);
 		}
-
-		Collections.swap(currentLabelSequence, playerIndex, destinationIndex);
-
-		return true;
+		steps[count] = PuzzleSolution.packStep(player, direction, push);
+		return count + 1;
 	}
 
 	/**
-	 * ensures move counter is being incremented properly only when the player actually moves
-	 * @param originalManIndex: Index of the player
-	 * @param playerPiece: PuzzleLabel of the player
+	 * Stores the number of steps applied at the current position of the journal
+	 * @param count: The number of steps
 	 */
-	public void validateNumMoves(int originalManIndex, PuzzleLabel playerPiece)
+	private void setStepCount(int count)
 	{
-		int manIndex = getPlayerIndex(playerPiece);	
-		if(manIndex != originalManIndex)
+		if(journal.getPosition() == stepCounts.length)
 		{
-			nMoves++;
+			stepCounts = Arrays.copyOf(stepCounts, stepCounts.length*2);
 		}
+		stepCounts[journal.getPosition()] = count;
 	}
-	
+
 	/**
-	 * Checks if the PuzzleGrid has been solved, and if it has it opens the win screen
-	 * @param grid: PuzzleGrid that is being passed through
+	 * Moves a player given as ordinals, for callers that keep their moves as numbers
+	 * @param player: the Player ordinal of the player that is moving
+	 * @param direction: the Direction ordinal of the direction to move in
+	 * @return: PuzzleBoard.BLOCKED, PuzzleBoard.MOVED or PuzzleBoard.PUSHED
 	 */
-	public void validatePuzzleSolved(PuzzleGrid grid)
+	public int move(int player, int direction)
+	{
+		return move(PLAYERS[player], DIRECTIONS[direction]);
+	}
+
+	/**
+	 * @return: boolean for if every box is on a goal of its owner
+	 */
+	public boolean isSolved()
+	{
+		return board.isSolved();
+	}
+
+	/**
+	 * Converts key codes from player 1 and 2s controls into the direction of the move
+	 * @param keyCode: the code of the key pressed
+	 * @return the direction of the key or null if it is not a movement key
+	 */
+	protected static Direction translateKeyCode(int keyCode)
 	{
-		if(puzzleSolved())
+		switch(keyCode)
 		{
-			if (nMoves < grid.getHighScore() || grid.getHighScore() == -1) 
-			{
-				grid.setHighScore(this.nMoves);
-			}
-			game.showWinScreen(level, grid.isMultiplayer());
+			case KeyEvent.VK_W:
+			case KeyEvent.VK_UP: 	return Direction.UP;
+			case KeyEvent.VK_S:
+			case KeyEvent.VK_DOWN: 	return Direction.DOWN;
+			case KeyEvent.VK_A:
+			case KeyEvent.VK_LEFT: 	return Direction.LEFT;
+			case KeyEvent.VK_D:
+			case KeyEvent.VK_RIGHT: return Direction.RIGHT;
 		}
+		return null;
 	}
 
 	/**
-	 * Checks if the puzzle has been solved by looking for any puzzle pieces in the labels array
-	 * for any objects of type 'box' which indicate that there are still pieces left to move onto
-	 * a cross to turn into a type 'greenbox'
-	 * @return boolean that tells if puzzle is solved or not
+	 * Checks if the PuzzleGrid has been solved, and if it has it records the result and opens the win screen.
+	 * The result is written to disk in the background, and the win screen is opened on the Event
+	 * Dispatch Thread, so this can be called from the thread of a PuzzleSimulation.
+	 * Does nothing for a manager made without a Game.
+	 * @param grid: PuzzleGrid that is being passed through
 	 */
-	private boolean puzzleSolved()
+	public void validatePuzzleSolved(PuzzleGrid grid)
 	{
-		boolean solved = true;
-		for(PuzzleLabel ps : currentLabelSequence)
+		if(game != null && board.isSolved())
 		{
-			if(ps.isType(Type.BOX) || ps.isType(Type.P1_BOX) || ps.isType(Type.P2_BOX))
+			if (nMoves < grid.getHighScore() || grid.getHighScore() == -1)
 			{
-				solved = false;
-				break;
+				grid.setHighScore(this.nMoves);
 			}
+			PuzzleSolution solution = getRecording();
+			long time = System.currentTimeMillis() - startTime;
+			game.getScoreStore().record(grid.isMultiplayer(), grid.getName(), new ScoreStore.Score(solution.getMoveCount(), solution.getPushCount(), time, getMoves()));
+			SwingUtilities.invokeLater(new Runnable()
+			{
+				public void run()
+				{
+					game.showWinScreen(level, grid.isMultiplayer());
+				}
+			});
 		}
-		return solved;
 	}
 
 }
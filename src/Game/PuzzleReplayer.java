@@ -0,0 +1,191 @@
+package Game;
+
+import java.io.File;
+import java.util.ArrayList;
+
+import Game.ImageFactory.Direction;
+import Game.ImageFactory.Player;
+
+/**
+ * Plays move strings recorded by a PuzzleManager back against the starting state of a level,
+ * without any Swing components, journal or change tracking, so recordings can be checked at the
+ * speed of PuzzleBoard.move. A move string is the LURD string of player one, or on multiplayer
+ * levels the LURD strings of both players separated by a '/', each with a '-' where the other
+ * player stepped. Lower case letters are moves and upper case letters are pushes. A recording is
+ * only valid if every step moves the player and pushes a box exactly when its letter says so.
+ * Run on its own it checks every result in a score log against the built in levels.
+ * Usage: replay [scores file]
+ */
+public class PuzzleReplayer
+{
+	/**
+	 * The outcome of playing back a move string
+	 * @field solved: boolean for if the board was solved after the last step
+	 * @field moves: The number of steps played
+	 * @field pushes: The number of steps that pushed a box
+	 * @field error: The position of the first step that could not be played, or -1 if every step was played
+	 */
+	public static class Result
+	{
+		private final boolean solved;
+		private final int moves;
+		private final int pushes;
+		private final int error;
+
+		Result(boolean solved, int moves, int pushes, int error)
+		{
+			this.solved = solved;
+			this.moves = moves;
+			this.pushes = pushes;
+			this.error = error;
+		}
+
+		public boolean isSolved()
+		{
+			return solved;
+		}
+
+		public int getMoves()
+		{
+			return moves;
+		}
+
+		public int getPushes()
+		{
+			return pushes;
+		}
+
+		public int getError()
+		{
+			return error;
+		}
+
+		/**
+		 * @return: True if every step was played and the board was solved by the last one
+		 */
+		public boolean isValid()
+		{
+			return error == -1 && solved;
+		}
+	}
+
+	/**
+	 * Plays a move string back on a copy of a level's starting state
+	 * @param grid: The level
+	 * @param moves: The move string
+	 * @return: The outcome
+	 */
+	public static Result replay(PuzzleGrid grid, String moves)
+	{
+		return replay(grid.getBoard(), moves);
+	}
+
+	/**
+	 * Plays a move string back on a copy of a board, which is left unchanged
+	 * @param start: The board to start from
+	 * @param moves: The move string
+	 * @return: The outcome
+	 */
+	public static Result replay(PuzzleBoard start, String moves)
+	{
+		PuzzleBoard board = start.copy();
+		int separator = moves.indexOf(PuzzleSolution.CHANNEL_SEPARATOR);
+		int length = separator == -1 ? moves.length() : separator;
+		if(separator != -1 && moves.length() - separator - 1 != length)
+		{
+			return new Result(board.isSolved(), 0, 0, Math.min(length, moves.length() - separator - 1));
+		}
+
+		int pushes = 0;
+		for(int i = 0; i < length; i++)
+		{
+			char one = moves.charAt(i);
+			char two = separator == -1 ? PuzzleSolution.NO_STEP : moves.charAt(separator + 1 + i);
+			if((one == PuzzleSolution.NO_STEP) == (two == PuzzleSolution.NO_STEP))
+			{
+				return new Result(board.isSolved(), i, pushes, i);
+			}
+			Player player = one != PuzzleSolution.NO_STEP ? Player.ONE : Player.TWO;
+			char letter = one != PuzzleSolution.NO_STEP ? one : two;
+			Direction direction = Direction.fromLetter(letter);
+			if(direction == null)
+			{
+				return new Result(board.isSolved(), i, pushes, i);
+			}
+			int result = board.move(player, direction);
+			if(result == PuzzleBoard.BLOCKED || (result == PuzzleBoard.PUSHED) != Character.isUpperCase(letter))
+			{
+				return new Result(board.isSolved(), i, pushes, i);
+			}
+			if(result == PuzzleBoard.PUSHED)
+			{
+				pushes++;
+			}
+		}
+		return new Result(board.isSolved(), length, pushes, -1);
+	}
+
+	/**
+	 * Checks every result in a score log against the built in levels, printing each result that
+	 * is not valid or whose move count is lower than the length of its solution, followed by a
+	 * summary. The move count of a result is the length of its solution, but logs written before
+	 * that also counted steps that were undone, so only a count below the length is wrong. The
+	 * log is opened read only, so checking it never changes it, even while the game is running.
+	 * @param args: The score log to check, or nothing for ScoreStore.DEFAULT_FILE
+	 */
+	public static void main(String[] args)
+	{
+		File file = args.length > 0 ? new File(args[0]) : ScoreStore.DEFAULT_FILE;
+		ScoreStore store = new ScoreStore(file, true);
+		PuzzleGridGenerator generator = new PuzzleGridGenerator();
+		int checked = 0;
+		int failed = 0;
+		long moves = 0;
+		long time = 0;
+		for(boolean multiplayer : new boolean[] {false, true})
+		{
+			ArrayList<String> levels = store.getLevels(multiplayer);
+			for(String level : levels)
+			{
+				ScoreStore.Score score = store.get(multiplayer, level);
+				PuzzleGrid grid = generator.getLevel(multiplayer, level);
+				checked++;
+				if(grid == null)
+				{
+					failed++;
+					System.out.println((multiplayer ? "multi/" : "single/") + level + ": no such level");
+					continue;
+				}
+				long start = System.nanoTime();
+				Result result = replay(grid, score.getSolution());
+				time += System.nanoTime() - start;
+				moves += result.getMoves();
+				if(!result.isValid() || result.getMoves() > score.getMoves())
+				{
+					failed++;
+					System.out.println((multiplayer ? "multi/" : "single/") + level + ": " + describe(result, score.getMoves()));
+				}
+			}
+		}
+		store.close();
+		System.out.printf("%d results checked, %d failed, %d moves replayed in %.3f ms%n", checked, failed, moves, time / 1e6);
+	}
+
+	/**
+	 * @param result: The outcome of playing back a result that is not valid
+	 * @param expected: The move count of the result
+	 * @return: Why the result is not valid
+	 */
+	private static String describe(Result result, int expected)
+	{
+		if(result.getError() != -1)
+		{
+			return "step " + (result.getError() + 1) + " cannot be played";
+		}
+		if(!result.isSolved())
+		{
+			return "does not solve the level";
+		}
+		return result.getMoves() + " moves but only " + expected + " recorded";
+	}
+}
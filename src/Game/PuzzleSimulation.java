@@ -0,0 +1,397 @@
+package Game;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import Game.ImageFactory.Direction;
+
+/**
+ * Runs the game logic of a level on its own thread, so the Event Dispatch Thread only takes input
+ * and draws. Key presses and button clicks are turned into PuzzleManager commands and put on a
+ * bounded queue, and input that does not fit is dropped. A key held down repeats, and a repeat is
+ * also dropped while earlier input is still waiting, so auto repeat cannot build up a backlog and
+ * the game stops as soon as the key is let go. The simulation thread carries out every command
+ * waiting before publishing a BoardSnapshot, and a Swing Timer takes the newest snapshot at most
+ * once a frame and shows it, so the board being changed is never read by the Event Dispatch Thread.
+ * The thread stops once the level is solved, leaving the win screen to the manager.
+ * A sequence of steps can also be played back over time, such as a solution. The simulation thread
+ * applies the steps that are due once a frame as one move that a single undo takes back, and stops
+ * the playback once it is done, once the level is solved, or as soon as any other input arrives.
+ * A networked game is run the same way with a GameClient in place of the manager. Moves are sent
+ * to the server straight away, up to INPUT_CAPACITY that it has not answered yet, with repeats
+ * dropped while any are unanswered, and the simulation thread puts the changes the server sends
+ * onto the client's board and publishes them.
+ * @field PLAY: command that starts the playback waiting in requested, which is not a PuzzleManager command
+ * @field INPUT_CAPACITY: The number of commands that can wait on the queue, or wait for the server to answer
+ * @field FRAME_MILLIS: The time between frames in milliseconds
+ * @field DIRECTIONS: cached Direction values used to decode moves
+ * @field manager: The PuzzleManager the commands are carried out by, only used on the simulation thread, or null in a networked game
+ * @field client: The GameClient of a networked game, or null
+ * @field game: Game object used to leave a networked game once it is over, or null
+ * @field shadowMode: boolean for if shadow mode is enabled for the level
+ * @field grid: The level being played
+ * @field panel: The PuzzleDisplayPanel the snapshots are shown on
+ * @field controls: The PuzzleControlPanel showing the move counter, or null before start
+ * @field input: The commands waiting to be carried out
+ * @field held: boolean for each command that is held down, only used on the Event Dispatch Thread
+ * @field published: The newest snapshot not yet shown, or null
+ * @field requested: The playback waiting for the simulation thread to start it, or null
+ * @field playback: The playback running, or null, only used on the simulation thread
+ * @field thread: The simulation thread
+ * @field frames: The Timer showing the snapshots
+ */
+public class PuzzleSimulation
+{
+	private static final int PLAY = -1;
+	private static final int INPUT_CAPACITY = 16;
+	private static final int FRAME_MILLIS = 16;
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private final PuzzleManager manager;
+	private final GameClient client;
+	private final Game game;
+	private final boolean shadowMode;
+	private final PuzzleGrid grid;
+	private final PuzzleDisplayPanel panel;
+	private PuzzleControlPanel controls;
+	private final ArrayBlockingQueue<Integer> input = new ArrayBlockingQueue<Integer>(INPUT_CAPACITY);
+	private final boolean[] held = new boolean[PuzzleManager.COMMAND_COUNT];
+	private final AtomicReference<BoardSnapshot> published = new AtomicReference<BoardSnapshot>();
+	private final AtomicReference<Playback> requested = new AtomicReference<Playback>();
+	private Playback playback;
+	private final Thread thread;
+	private final Timer frames;
+
+	/**
+	 * Shows the starting state of the level on the panel
+	 * @param manager: The PuzzleManager to carry out the commands, made without a panel
+	 * @param grid: The level being played
+	 * @param panel: The PuzzleDisplayPanel to show the game on
+	 * @param shadowMode: boolean for if shadow mode is enabled
+	 */
+	public PuzzleSimulation(PuzzleManager manager, PuzzleGrid grid, PuzzleDisplayPanel panel, boolean shadowMode)
+	{
+		this(manager, null, null, grid, panel, shadowMode);
+	}
+
+	/**
+	 * Shows the starting state of a networked game on the panel
+	 * @param client: The GameClient of a match that has started
+	 * @param game: Game object used to leave the game once it is over
+	 * @param grid: The level being played
+	 * @param panel: The PuzzleDisplayPanel to show the game on
+	 * @param shadowMode: boolean for if shadow mode is enabled
+	 */
+	public PuzzleSimulation(GameClient client, Game game, PuzzleGrid grid, PuzzleDisplayPanel panel, boolean shadowMode)
+	{
+		this(null, client, game, grid, panel, shadowMode);
+	}
+
+	private PuzzleSimulation(PuzzleManager manager, GameClient client, Game game, PuzzleGrid grid, PuzzleDisplayPanel panel, boolean shadowMode)
+	{
+		this.shadowMode = shadowMode;
+		this.manager = manager;
+		this.client = client;
+		this.game = game;
+		this.grid = grid;
+		this.panel = panel;
+		BoardSnapshot start = manager != null ? manager.takeSnapshot(null) : client.takeSnapshot(null);
+		panel.reloadPanelLabels(start.getBoard(), shadowMode);
+
+		this.thread = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				if(manager != null)
+				{
+					simulate();
+				}
+				else
+				{
+					follow();
+				}
+			}
+		}, "PuzzleSimulation");
+		this.thread.setDaemon(true);
+		this.frames = new Timer(FRAME_MILLIS, new ActionListener()
+		{
+			public void actionPerformed(ActionEvent e)
+			{
+				showFrame();
+			}
+		});
+	}
+
+	/**
+	 * Starts taking input
+	 * @param controls: The PuzzleControlPanel to keep up to date
+	 */
+	public void start(PuzzleControlPanel controls)
+	{
+		this.controls = controls;
+		thread.start();
+		frames.start();
+	}
+
+	/**
+	 * Stops the simulation thread and the drawing of frames. Input still waiting is dropped.
+	 */
+	public void stop()
+	{
+		frames.stop();
+		thread.interrupt();
+		if(client != null)
+		{
+			client.close();
+		}
+		if(controls != null)
+		{
+			controls.closeHints();
+		}
+	}
+
+	/**
+	 * Takes a key press on the Event Dispatch Thread
+	 * @param keyCode: The code of the key
+	 */
+	public void keyPressed(int keyCode)
+	{
+		if(keyCode == KeyEvent.VK_H && controls != null)
+		{
+			controls.toggleHints();
+			return;
+		}
+		int command = translateKey(keyCode);
+		boolean waiting = manager != null ? !input.isEmpty() : client.getPending() > 0;
+		if(command == -1 || held[command] && waiting)
+		{
+			return;
+		}
+		held[command] = true;
+		submit(command);
+	}
+
+	/**
+	 * Takes a key being let go on the Event Dispatch Thread
+	 * @param keyCode: The code of the key
+	 */
+	public void keyReleased(int keyCode)
+	{
+		int command = translateKey(keyCode);
+		if(command != -1)
+		{
+			held[command] = false;
+		}
+	}
+
+	private int translateKey(int keyCode)
+	{
+		return manager != null ? manager.translateKey(keyCode) : client.translateKey(keyCode);
+	}
+
+	/**
+	 * Queues a command, such as from a button, dropping it if the queue is full. In a networked
+	 * game a move is sent to the server instead, and any other command is dropped, as undoing
+	 * a move would take back the other player's moves too.
+	 * @param command: The PuzzleManager command
+	 */
+	public void submit(int command)
+	{
+		if(manager != null)
+		{
+			input.offer(command);
+			return;
+		}
+		int move = command - PuzzleManager.MOVE;
+		if(move < 0 || client.getPending() >= INPUT_CAPACITY)
+		{
+			return;
+		}
+		try
+		{
+			client.send(DIRECTIONS[move % DIRECTIONS.length]);
+		}
+		catch(IOException e)
+		{
+			Logger.getLogger(PuzzleSimulation.class.getName()).log(Level.SEVERE, null, e);
+		}
+	}
+
+	/**
+	 * Plays a sequence of steps back over time as a single move that one undo takes back. Any
+	 * playback still running is replaced, and the playback is dropped if the queue is full. Does
+	 * nothing in a networked game, where only single moves are sent to the server.
+	 * @param moves: The steps to play
+	 * @param movesPerSecond: The number of steps played each second
+	 */
+	public void playMoves(PuzzleSolution moves, int movesPerSecond)
+	{
+		if(manager == null)
+		{
+			return;
+		}
+		requested.set(new Playback(moves, movesPerSecond));
+		input.offer(PLAY);
+	}
+
+	/**
+	 * Carries out commands as they arrive until the level is solved or the simulation is stopped,
+	 * publishing a snapshot after each batch of commands waiting. While a playback runs the
+	 * thread also wakes once a frame to apply the steps that are due.
+	 */
+	private void simulate()
+	{
+		try
+		{
+			while(!manager.isSolved())
+			{
+				Integer command = playback == null ? input.take() : input.poll(FRAME_MILLIS, TimeUnit.MILLISECONDS);
+				boolean changed = command != null;
+				while(command != null && !manager.isSolved())
+				{
+					if(command == PLAY)
+					{
+						Playback next = requested.getAndSet(null);
+						playback = next != null ? next : playback;
+					}
+					else
+					{
+						playback = null;
+						manager.handleCommand(command, grid);
+					}
+					command = input.poll();
+				}
+				if(playback != null && !manager.isSolved())
+				{
+					changed |= playback.playDue();
+				}
+				if(changed)
+				{
+					publish();
+				}
+			}
+		}
+		catch(InterruptedException e)
+		{
+			// stopped, the level is being left
+		}
+	}
+
+	/**
+	 * Puts the changes sent by the server onto the client's board until the match is over,
+	 * publishing a snapshot after each, then opens the win screen if the level was solved or goes
+	 * back to the level select if the other player left
+	 */
+	private void follow()
+	{
+		try
+		{
+			while(client.receive())
+			{
+				publish();
+			}
+		}
+		catch(IOException e)
+		{
+			Logger.getLogger(PuzzleSimulation.class.getName()).log(Level.SEVERE, null, e);
+		}
+		if(thread.isInterrupted())
+		{
+			return;
+		}
+		boolean solved = client.isSolved();
+		SwingUtilities.invokeLater(new Runnable()
+		{
+			public void run()
+			{
+				if(solved)
+				{
+					game.showWinScreen(grid.getLevelID(), true);
+				}
+				else
+				{
+					game.showLevelSelect(true);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Replaces the snapshot waiting to be shown with a new one, carrying over its changed cells
+	 * if it has not been shown yet. Only the simulation thread publishes, so the snapshot read
+	 * here can only have been taken by the Event Dispatch Thread in the meantime, and then its
+	 * cells are only redrawn again.
+	 */
+	private void publish()
+	{
+		BoardSnapshot previous = published.get();
+		published.set(manager != null ? manager.takeSnapshot(previous) : client.takeSnapshot(previous));
+	}
+
+	/**
+	 * Shows the newest snapshot on the Event Dispatch Thread, if there is a new one
+	 */
+	private void showFrame()
+	{
+		BoardSnapshot snapshot = published.getAndSet(null);
+		if(snapshot != null)
+		{
+			panel.showSnapshot(snapshot, shadowMode);
+			controls.showSnapshot(snapshot);
+		}
+	}
+
+	/**
+	 * A sequence of steps being played back, only used on the simulation thread
+	 * @field moves: The steps to play
+	 * @field movesPerSecond: The number of steps played each second
+	 * @field start: The time in nanoseconds the playback was asked for
+	 * @field applied: The number of steps applied so far
+	 * @field started: boolean for if a step has moved a player yet, so later steps extend its move
+	 */
+	private class Playback
+	{
+		private final PuzzleSolution moves;
+		private final int movesPerSecond;
+		private final long start = System.nanoTime();
+		private int applied;
+		private boolean started;
+
+		Playback(PuzzleSolution moves, int movesPerSecond)
+		{
+			this.moves = moves;
+			this.movesPerSecond = movesPerSecond;
+		}
+
+		/**
+		 * Applies the steps that are due, checks for a win and ends the playback once it is done
+		 * @return: boolean for if any steps were applied
+		 */
+		boolean playDue()
+		{
+			long due = (System.nanoTime() - start) * movesPerSecond / 1000000000L + 1;
+			int to = (int)Math.min(moves.getMoveCount(), due);
+			boolean changed = to > applied;
+			if(changed)
+			{
+				started |= manager.applyMoves(moves, applied, to, started) > 0;
+				applied = to;
+				manager.validatePuzzleSolved(grid);
+			}
+			if(applied == moves.getMoveCount() || manager.isSolved())
+			{
+				playback = null;
+			}
+			return changed;
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package Game;
+
+import java.util.Arrays;
+
+import Game.ImageFactory.Direction;
+import Game.ImageFactory.Player;
+
+/**
+ * A sequence of steps that solves a puzzle. Each step is packed into a byte holding the player
+ * that moved, whether the move pushed a box and the Direction ordinal.
+ * @field PLAYER_TWO_STEP: bit set on steps taken by player two
+ * @field PUSH_STEP: bit set on steps that pushed a box
+ * @field DIRECTION_MASK: mask of the bits holding the Direction ordinal
+ * @field CHANNEL_SEPARATOR: The character between the LURD strings of the two players in a move string
+ * @field NO_STEP: The character in the LURD string of one player where the other player stepped
+ * @field steps: The packed steps in the order they are taken
+ * @field twoPlayers: boolean for if the puzzle has two players
+ * @field pushes: The number of steps that push a box
+ * @field optimal: boolean for if no solution with fewer pushes exists, counting the times a player steps aside on two player puzzles as pushes
+ */
+public class PuzzleSolution
+{
+	public static final int PLAYER_TWO_STEP = 8;
+	public static final int PUSH_STEP = 4;
+	public static final int DIRECTION_MASK = 3;
+	public static final char CHANNEL_SEPARATOR = '/';
+	public static final char NO_STEP = '-';
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	private final byte[] steps;
+	private final boolean twoPlayers;
+	private final int pushes;
+	private final boolean optimal;
+
+	public PuzzleSolution(byte[] steps, boolean twoPlayers, boolean optimal)
+	{
+		this.steps = steps;
+		this.twoPlayers = twoPlayers;
+		this.optimal = optimal;
+		int count = 0;
+		for(byte step : steps)
+		{
+			if((step & PUSH_STEP) != 0)
+			{
+				count++;
+			}
+		}
+		this.pushes = count;
+	}
+
+	/**
+	 * Packs a step into a byte
+	 * @param player: The player that moved
+	 * @param direction: The direction moved in
+	 * @param push: boolean for if the move pushed a box
+	 * @return: The packed step
+	 */
+	public static byte packStep(Player player, Direction direction, boolean push)
+	{
+		return (byte)((player == Player.TWO ? PLAYER_TWO_STEP : 0) | (push ? PUSH_STEP : 0) | direction.ordinal());
+	}
+
+	/**
+	 * Reads a move string, which is the LURD string of player one or the LURD strings of both
+	 * players separated by a CHANNEL_SEPARATOR, as written by getMoves. Whether a step pushes is
+	 * taken from the case of its letter, so it is not checked against any board.
+	 * @param moves: The move string
+	 * @return: The steps of the move string
+	 * @throws IllegalArgumentException: if the channels differ in length, a step is not a LURD letter
+	 * or a step is given for both or neither of the players
+	 */
+	public static PuzzleSolution parse(String moves)
+	{
+		int separator = moves.indexOf(CHANNEL_SEPARATOR);
+		int length = separator == -1 ? moves.length() : separator;
+		if(separator != -1 && moves.length() - separator - 1 != length)
+		{
+			throw new IllegalArgumentException("The channels of the players differ in length");
+		}
+		byte[] steps = new byte[length];
+		for(int i = 0; i < length; i++)
+		{
+			char one = moves.charAt(i);
+			char two = separator == -1 ? NO_STEP : moves.charAt(separator + 1 + i);
+			char letter = one != NO_STEP ? one : two;
+			Direction direction = Direction.fromLetter(letter);
+			if((one == NO_STEP) == (two == NO_STEP) || direction == null)
+			{
+				throw new IllegalArgumentException("Step " + (i + 1) + " is not a move of one player");
+			}
+			steps[i] = packStep(one != NO_STEP ? Player.ONE : Player.TWO, direction, Character.isUpperCase(letter));
+		}
+		return new PuzzleSolution(steps, separator != -1, false);
+	}
+
+	public int getMoveCount()
+	{
+		return steps.length;
+	}
+
+	public int getPushCount()
+	{
+		return pushes;
+	}
+
+	public boolean isOptimal()
+	{
+		return optimal;
+	}
+
+	public boolean isTwoPlayer()
+	{
+		return twoPlayers;
+	}
+
+	/**
+	 * @param i: The position of the step
+	 * @return: The player that takes the step
+	 */
+	public Player getPlayer(int i)
+	{
+		return (steps[i] & PLAYER_TWO_STEP) != 0 ? Player.TWO : Player.ONE;
+	}
+
+	/**
+	 * @param i: The position of the step
+	 * @return: The direction of the step
+	 */
+	public Direction getDirection(int i)
+	{
+		return DIRECTIONS[steps[i] & DIRECTION_MASK];
+	}
+
+	/**
+	 * @param i: The position of the step
+	 * @return: boolean for if the step pushes a box
+	 */
+	public boolean isPush(int i)
+	{
+		return (steps[i] & PUSH_STEP) != 0;
+	}
+
+	/**
+	 * Gets the rest of the solution from a step on, which solves the puzzle from the state reached
+	 * by the steps before it
+	 * @param from: The position of the first step to keep
+	 * @return: The remaining steps
+	 */
+	public PuzzleSolution getRemaining(int from)
+	{
+		return new PuzzleSolution(Arrays.copyOfRange(steps, from, steps.length), twoPlayers, optimal);
+	}
+
+	/**
+	 * Writes the steps of one player in LURD notation, lower case for moves and upper case for
+	 * pushes. On two player puzzles the steps of the other player are written as '-' so both
+	 * channels line up and the order of the steps is kept.
+	 * @param player: The player to write the steps of
+	 * @return: The LURD string
+	 */
+	public String getMoves(Player player)
+	{
+		StringBuilder moves = new StringBuilder(steps.length);
+		for(int i = 0; i < steps.length; i++)
+		{
+			if(getPlayer(i) != player)
+			{
+				moves.append(NO_STEP);
+				continue;
+			}
+			char letter = getDirection(i).letter;
+			moves.append((steps[i] & PUSH_STEP) != 0 ? Character.toUpperCase(letter) : letter);
+		}
+		return moves.toString();
+	}
+
+	/**
+	 * @return: The LURD string of player one, which is the whole solution of a single player puzzle
+	 */
+	@Override
+	public String toString()
+	{
+		return getMoves(Player.ONE);
+	}
+}
@@ -0,0 +1,1354 @@
+package Game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * Finds solutions to puzzles with an A* search. Single player puzzles are searched push by push,
+ * with the player position normalized to the top left most cell it can walk to, so the solution
+ * found has the fewest pushes. Two player puzzles are also searched push by push, but with the
+ * exact position of both players, since either player can be in the way of the other, and with
+ * steps where one player only walks aside to let the other through.
+ * States are hashed with Zobrist keys and kept in a transposition table. Boxes pushed onto a cell
+ * they can never leave towards a goal, and boxes frozen against walls and other boxes away from
+ * their goals, are pruned. The heuristic is the cheapest matching of boxes to goals of their owner
+ * by push distance, which never overestimates, and a state where no such matching exists is
+ * pruned as a bipartite deadlock. A push changes it by at most one, so a new state is put on the
+ * open list with a lower bound taken from its parent, and the matching is only worked out once
+ * the state is taken off the list.
+ * Single player searches also prune with PI-corrals: when an area the player cannot reach can
+ * only be entered by pushing its own bordering boxes inwards, only the pushes of those boxes are
+ * tried. Where the goals sit in a room with one entrance and the boxes can be packed into it in a
+ * fixed order, a box pushed onto the entrance is packed to its goal in one step and boxes already
+ * packed are never pushed again. Both can miss the solution with the fewest pushes, so only two
+ * player solutions found with a weight of 1 are marked optimal.
+ * Measured limits, with 10 seconds per level on one core: every shipped single player level is
+ * solved in milliseconds, and the first shipped multi player level in about 3 seconds, but the
+ * second and third are not. Of the first nine levels of the standard Original set, levels 1, 3
+ * and 6, with 6 to 11 boxes, are solved at a weight of 1, and levels 2 and 7 at a weight of 2. The
+ * levels with 18 and 20 boxes are not solved at any weight, so puzzles with 20 or more boxes are
+ * out of reach of this solver.
+ * For searches too large to keep a SolverNode for every state, compact states can be turned on:
+ * states are then kept packed in a StateStore, with the open list held as state ids in one bucket
+ * per cost, and the path to the solution is found again by expanding each state on it.
+ * A search gives up early, as if it ran out of time, when its thread is interrupted, which is how
+ * a HintEngine cancels a search that is no longer wanted.
+ * @field DEFAULT_MAX_NODES: The default number of states expanded before giving up
+ * @field DEFAULT_TIME_LIMIT: The default number of milliseconds searched before giving up
+ * @field DEFAULT_BYTE_CAP: The default number of bytes of heap compact states may use
+ * @field STEP_ASIDE: bit set on the steps of two player searches where a player walks without pushing
+ * @field CLOSED: bit set in the data word of compact states that have been expanded
+ * @field NO_PARENT: parent id stored in the data word of the compact start state
+ * @field ORDER: Orders the open list by f, then prefers deeper states
+ * @field maxNodes: The number of states expanded before giving up
+ * @field timeLimit: The number of milliseconds searched before giving up
+ * @field weight: The weight on the heuristic, 1 finds optimal two player solutions and more trades length for speed
+ * @field nodesExpanded: The number of states expanded in the last search
+ * @field exhausted: boolean for if the last search explored every reachable state without finding a solution
+ * @field compactStates: boolean for if states are kept packed in a StateStore
+ * @field byteCap: The number of bytes of heap the StateStore may use
+ * @field spillPolicy: What the StateStore does once it reaches the byte cap
+ * @field overBudget: boolean for if the last search stopped because the StateStore reached its byte cap
+ * @field level: The level being searched
+ * @field occupied: The owner plus one of the box on each cell, or 0 when the cell has no box
+ * @field reach: Stamps the cells the player can walk to in the state being expanded
+ * @field scratch: Stamps the cells visited by other searches over the grid
+ * @field queue: Queue shared by the searches over the grid
+ * @field frozen: Marks the boxes currently assumed frozen in the freeze deadlock check
+ * @field frozenBoxes: The cells of the boxes found frozen in the freeze deadlock check
+ * @field corrals: Stamps the cells of each corral found in the state being expanded with its own number
+ * @field barriers: Stamps the boxes bordering each corral with the number of the corral
+ * @field corralStamp: The number of the last corral found
+ * @field corralCells: Holds the cells of the corral being looked at
+ * @field barrierBoxes: Holds the boxes bordering the corral being looked at
+ * @field chosenBoxes: Holds the boxes bordering the PI-corral with the fewest pushes found so far
+ */
+public class PuzzleSolver
+{
+	public static final long DEFAULT_MAX_NODES = 2000000;
+	public static final long DEFAULT_TIME_LIMIT = 30000;
+	public static final long DEFAULT_BYTE_CAP = Runtime.getRuntime().maxMemory() / 2;
+	private static final int STEP_ASIDE = 1;
+	private static final long CLOSED = 1L << 63;
+	private static final long NO_PARENT = 0xFFFFFFFFL;
+	static final Comparator<SolverNode> ORDER = new Comparator<SolverNode>()
+	{
+		@Override
+		public int compare(SolverNode a, SolverNode b)
+		{
+			return a.f != b.f ? Integer.compare(a.f, b.f) : Integer.compare(b.g, a.g);
+		}
+	};
+
+	private long maxNodes = DEFAULT_MAX_NODES;
+	private long timeLimit = DEFAULT_TIME_LIMIT;
+	private double weight = 1;
+	private long nodesExpanded;
+	private boolean exhausted;
+	private boolean compactStates;
+	private long byteCap = DEFAULT_BYTE_CAP;
+	private StateStore.SpillPolicy spillPolicy = StateStore.SpillPolicy.ABORT;
+	private boolean overBudget;
+
+	private SolverLevel level;
+	private byte[] occupied;
+	private int[] reach;
+	private int reachStamp;
+	private int[] scratch;
+	private int scratchStamp;
+	private int[] queue;
+	private boolean[] frozen;
+	private final ArrayList<Integer> frozenBoxes = new ArrayList<Integer>();
+	private int[] corrals;
+	private int[] barriers;
+	private int corralStamp;
+	private int[] corralCells;
+	private int[] barrierBoxes;
+	private int[] chosenBoxes;
+
+	public void setMaxNodes(long maxNodes)
+	{
+		this.maxNodes = maxNodes;
+	}
+
+	/**
+	 * @param timeLimit: The number of milliseconds to search for before giving up
+	 */
+	public void setTimeLimit(long timeLimit)
+	{
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * @precondition: weight >= 1
+	 * @param weight: The weight on the heuristic, above 1 solutions are found faster but may be longer
+	 */
+	public void setWeight(double weight)
+	{
+		if(weight < 1)
+		{
+			throw new IllegalArgumentException("weight must be at least 1: " + weight);
+		}
+		this.weight = weight;
+	}
+
+	/**
+	 * @param compactStates: True to keep states packed in a StateStore, for searches too large to keep an object per state
+	 */
+	public void setCompactStates(boolean compactStates)
+	{
+		this.compactStates = compactStates;
+	}
+
+	/**
+	 * @param byteCap: The number of bytes of heap compact states may use
+	 */
+	public void setByteCap(long byteCap)
+	{
+		this.byteCap = byteCap;
+	}
+
+	/**
+	 * @param spillPolicy: Whether compact states give up or spill into a temporary file once they reach the byte cap
+	 */
+	public void setSpillPolicy(StateStore.SpillPolicy spillPolicy)
+	{
+		this.spillPolicy = spillPolicy;
+	}
+
+	/**
+	 * @return: True if the last search stopped because compact states reached the byte cap
+	 */
+	public boolean isOverBudget()
+	{
+		return overBudget;
+	}
+
+	public long getNodesExpanded()
+	{
+		return nodesExpanded;
+	}
+
+	/**
+	 * @return: True if the last search proved the puzzle has no solution, false if it found one or hit a limit
+	 */
+	public boolean isExhausted()
+	{
+		return exhausted;
+	}
+
+	/**
+	 * Solves a level from its start
+	 * @param grid: The level to solve
+	 * @return: The solution, or null if none was found
+	 */
+	public PuzzleSolution solve(PuzzleGrid grid)
+	{
+		return solve(grid.getBoard());
+	}
+
+	/**
+	 * Solves a puzzle from the current state of a board. The board is not changed.
+	 * @param board: The board to solve
+	 * @return: The solution, or null if none was found
+	 */
+	public PuzzleSolution solve(PuzzleBoard board)
+	{
+		prepare(new SolverLevel(board));
+		nodesExpanded = 0;
+		exhausted = false;
+		overBudget = false;
+
+		SolverNode goal = compactStates ? searchCompact() : search();
+		return goal == null ? null : buildSolution(goal);
+	}
+
+	/**
+	 * Points the solver at a level and sizes the arrays it works in. The ParallelPuzzleSolver
+	 * prepares one solver per worker thread on the same level.
+	 * @param level: The level to search
+	 */
+	void prepare(SolverLevel level)
+	{
+		this.level = level;
+		occupied = new byte[level.size];
+		reach = new int[level.size];
+		scratch = new int[level.size];
+		queue = new int[level.size];
+		frozen = new boolean[level.size];
+		corrals = new int[level.size];
+		barriers = new int[level.size];
+		corralCells = new int[level.size];
+		barrierBoxes = new int[level.size];
+		chosenBoxes = new int[level.size];
+		reachStamp = 0;
+		scratchStamp = 0;
+		corralStamp = 0;
+	}
+
+	/**
+	 * @return: The start state of the level with its cost set, or null if some box can never reach a goal
+	 */
+	SolverNode createRoot()
+	{
+		int[] boxes = level.startBoxes;
+		long boxHash = hashBoxes(boxes);
+		int[] players = level.startPlayers.clone();
+		if(level.players == 1)
+		{
+			markBoxes(boxes);
+			players[0] = normalizePlayer(players[0]);
+			unmarkBoxes(boxes);
+		}
+		SolverNode root = new SolverNode(boxes, players, boxHash, boxHash ^ playersHash(players), 0, null, -1);
+		int h = heuristic(boxes);
+		if(h >= SolverLevel.UNREACHABLE)
+		{
+			return null;
+		}
+		root.f = (int)(weight*h);
+		return root;
+	}
+
+	/**
+	 * Runs the A* search from the start state of the level
+	 * @return: The first solved state taken off the open list, or null
+	 */
+	private SolverNode search()
+	{
+		SolverNode root = createRoot();
+		if(root == null)
+		{
+			exhausted = true;
+			return null;
+		}
+
+		PriorityQueue<SolverNode> open = new PriorityQueue<SolverNode>(1024, ORDER);
+		HashMap<SolverNode, SolverNode> visited = new HashMap<SolverNode, SolverNode>();
+		ArrayList<SolverNode> children = new ArrayList<SolverNode>();
+		open.add(root);
+		visited.put(root, root);
+		long deadline = System.currentTimeMillis() + timeLimit;
+
+		while(!open.isEmpty())
+		{
+			SolverNode node = open.poll();
+			if(visited.get(node) != node)
+			{
+				continue;
+			}
+			if(node.estimated)
+			{
+				node.estimated = false;
+				int h = heuristic(node.boxes);
+				if(h >= SolverLevel.UNREACHABLE)
+				{
+					continue;
+				}
+				int f = node.g + (int)(weight*h);
+				if(f > node.f)
+				{
+					node.f = f;
+					open.add(node);
+					continue;
+				}
+			}
+			if(isSolved(node.boxes))
+			{
+				return node;
+			}
+			if(++nodesExpanded > maxNodes || ((nodesExpanded & 1023) == 0 && (System.currentTimeMillis() > deadline || Thread.currentThread().isInterrupted())))
+			{
+				return null;
+			}
+
+			children.clear();
+			expand(node, children);
+			for(SolverNode child : children)
+			{
+				SolverNode known = visited.get(child);
+				if(known != null && known.g <= child.g)
+				{
+					continue;
+				}
+				estimate(node, child);
+				visited.put(child, child);
+				open.add(child);
+			}
+		}
+		exhausted = true;
+		return null;
+	}
+
+	/**
+	 * Runs the A* search from the start state of the level with the states packed in a StateStore.
+	 * The data word of each state holds the CLOSED bit, the number of steps taken to reach it and
+	 * the id of the state it was reached from.
+	 * @return: The first solved state taken off the open list, with its path rebuilt as SolverNodes, or null
+	 */
+	private SolverNode searchCompact()
+	{
+		SolverNode root = createRoot();
+		if(root == null)
+		{
+			exhausted = true;
+			return null;
+		}
+
+		StateStore store = new StateStore(level.keyWords, byteCap, spillPolicy);
+		try
+		{
+			long[] key = new long[level.keyWords];
+			level.encode(root.boxes, root.players, key);
+			BucketQueue open = new BucketQueue();
+			open.push(root.f, 0, store.add(key, NO_PARENT));
+			ArrayList<SolverNode> children = new ArrayList<SolverNode>();
+			long deadline = System.currentTimeMillis() + timeLimit;
+
+			while(!open.isEmpty())
+			{
+				int f = open.lowestCost();
+				int id = open.pop();
+				long data = store.getData(id);
+				if((data & CLOSED) != 0)
+				{
+					continue;
+				}
+				store.setData(id, data | CLOSED);
+				SolverNode node = decodeNode(store, id, key, null, -1);
+				node.f = f;
+				if(isSolved(node.boxes))
+				{
+					return rebuildPath(store, id);
+				}
+				if(++nodesExpanded > maxNodes || ((nodesExpanded & 1023) == 0 && (System.currentTimeMillis() > deadline || Thread.currentThread().isInterrupted())))
+				{
+					return null;
+				}
+
+				children.clear();
+				expand(node, children);
+				for(SolverNode child : children)
+				{
+					level.encode(child.boxes, child.players, key);
+					int known = store.find(key);
+					if(known != -1 && stepsOf(store.getData(known)) <= child.g || !evaluate(node, child))
+					{
+						continue;
+					}
+					long childData = (long)child.g << 32 | id;
+					if(known != -1)
+					{
+						store.setData(known, childData);
+					}
+					else if((known = store.add(key, childData)) == -1)
+					{
+						overBudget = true;
+						return null;
+					}
+					open.push(child.f, child.g, known);
+				}
+			}
+			exhausted = true;
+			return null;
+		}
+		finally
+		{
+			store.close();
+		}
+	}
+
+	private static int stepsOf(long data)
+	{
+		return (int)((data & ~CLOSED) >>> 32);
+	}
+
+	/**
+	 * Unpacks a compact state into a SolverNode
+	 * @param store: The store holding the state
+	 * @param id: The id of the state
+	 * @param key: Array to unpack the key into
+	 * @param parent: The node the state was reached from, or null
+	 * @param step: The step taken from the parent
+	 * @return: The node
+	 */
+	private SolverNode decodeNode(StateStore store, int id, long[] key, SolverNode parent, int step)
+	{
+		int[] boxes = new int[level.startBoxes.length];
+		int[] players = new int[level.players];
+		store.getKey(id, key);
+		level.decode(key, boxes, players);
+		long boxHash = hashBoxes(boxes);
+		return new SolverNode(boxes, players, boxHash, boxHash ^ playersHash(players), stepsOf(store.getData(id)), parent, step);
+	}
+
+	/**
+	 * Rebuilds the path to a compact state as SolverNodes, so the solution can be written out. The
+	 * ids of the states on the path are followed back to the start, then each state on the path is
+	 * expanded again to find the step that leads to the next one. The path can have fewer states
+	 * than steps, since packing a box into the goal room takes several pushes in one step.
+	 * @param store: The store holding the states
+	 * @param goal: The id of the solved state
+	 * @return: The solved state, linked through its parents back to the start
+	 */
+	private SolverNode rebuildPath(StateStore store, int goal)
+	{
+		ArrayList<Integer> path = new ArrayList<Integer>();
+		for(long id = goal; id != NO_PARENT; id = store.getData((int)id) & NO_PARENT)
+		{
+			path.add((int)id);
+		}
+		int length = path.size() - 1;
+		int[] ids = new int[length + 1];
+		for(int i = 0; i <= length; i++)
+		{
+			ids[i] = path.get(length - i);
+		}
+
+		long[] key = new long[level.keyWords];
+		long[] next = new long[level.keyWords];
+		ArrayList<SolverNode> children = new ArrayList<SolverNode>();
+		SolverNode node = decodeNode(store, ids[0], key, null, -1);
+		for(int i = 1; i <= length; i++)
+		{
+			store.getKey(ids[i], next);
+			children.clear();
+			expand(node, children);
+			for(SolverNode child : children)
+			{
+				level.encode(child.boxes, child.players, key);
+				if(Arrays.equals(key, next))
+				{
+					node = child;
+					break;
+				}
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * Adds every state reachable from a node with one push, by the rules for the number of players
+	 * @param node: The state to expand
+	 * @param children: List the new states are added to
+	 */
+	void expand(SolverNode node, ArrayList<SolverNode> children)
+	{
+		if(level.players == 1)
+		{
+			expandPushes(node, children);
+		}
+		else
+		{
+			expandTeamPushes(node, children);
+		}
+	}
+
+	/**
+	 * Sets the cost of a new state. States where only a player stepped aside keep the heuristic of
+	 * their parent, since the boxes did not move.
+	 * @param parent: The state the new state was reached from
+	 * @param child: The new state
+	 * @return: False if some box of the new state can never reach a goal
+	 */
+	boolean evaluate(SolverNode parent, SolverNode child)
+	{
+		int h = child.boxes == parent.boxes ? parent.f - parent.g : (int)(weight*heuristic(child.boxes));
+		if(h >= SolverLevel.UNREACHABLE)
+		{
+			return false;
+		}
+		child.f = child.g + h;
+		return true;
+	}
+
+	/**
+	 * Sets a lower bound on the cost of a new state without working out its heuristic. Each push
+	 * lowers the heuristic by at most one, so the heuristic of the parent less the pushes taken
+	 * since never overestimates. States where only a player stepped aside keep the heuristic of
+	 * their parent exactly.
+	 * @param parent: The state the new state was reached from, whose cost is known
+	 * @param child: The new state
+	 */
+	private void estimate(SolverNode parent, SolverNode child)
+	{
+		int h = parent.f - parent.g;
+		if(child.boxes == parent.boxes)
+		{
+			child.f = child.g + h;
+			return;
+		}
+		child.f = child.g + (int)Math.max(0, h - weight*(child.g - parent.g));
+		child.estimated = true;
+	}
+
+	/**
+	 * Adds every state reachable from a node with one push. The step of each child is the cell the
+	 * box was pushed from shifted left two, or'd with the Direction ordinal of the push.
+	 * @param node: The state to expand
+	 * @param children: List the new states are added to
+	 */
+	private void expandPushes(SolverNode node, ArrayList<SolverNode> children)
+	{
+		int[] boxes = node.boxes;
+		markBoxes(boxes);
+		reachStamp++;
+		flood(node.players[0], -1, reach, reachStamp);
+		int corral = findPICorral();
+		for(int i = 0; i < boxes.length; i++)
+		{
+			int cell = boxes[i] >> 1;
+			int owner = boxes[i] & 1;
+			if((level.room[cell] && level.packingOrder != null) || (corral != 0 && barriers[cell] != corral))
+			{
+				continue;
+			}
+			for(int d = 0; d < SolverLevel.DIRECTIONS.length; d++)
+			{
+				int from = level.neighbours[d ^ 1][cell];
+				int to = level.neighbours[d][cell];
+				if(from == -1 || to == -1 || reach[from] != reachStamp || level.walls[to] || occupied[to] != 0 || level.dead[owner][to])
+				{
+					continue;
+				}
+
+				occupied[cell] = 0;
+				occupied[to] = (byte)(owner + 1);
+				if(!isFreezeDeadlock(to))
+				{
+					int[] players = { normalizePlayer(cell) };
+					int[] next = moveBox(boxes, i, to << 1 | owner);
+					long boxHash = node.boxHash ^ level.boxKeys[owner][cell] ^ level.boxKeys[owner][to];
+					SolverNode child = new SolverNode(next, players, boxHash, boxHash ^ playersHash(players), node.g + 1, node, cell << 2 | d);
+					SolverNode packed = to == level.entrance ? packIntoRoom(child, cell) : null;
+					children.add(packed != null ? packed : child);
+				}
+				occupied[to] = 0;
+				occupied[cell] = (byte)(owner + 1);
+			}
+		}
+		unmarkBoxes(boxes);
+	}
+
+	/**
+	 * Adds every state reachable from a node with one push by either player. A player can walk
+	 * anywhere the boxes and the other player leave open, so when the other player cuts off cells
+	 * or stands where a box would be pushed, states where it first steps aside to another cell it
+	 * can walk to are added as well. The step of each child is the cell pushed from
+	 * or stepped to, shifted left two and or'd with the Direction ordinal of the push, then shifted
+	 * left two again and or'd with the player and with STEP_ASIDE when no box was pushed.
+	 * @param node: The state to expand
+	 * @param children: List the new states are added to
+	 */
+	private void expandTeamPushes(SolverNode node, ArrayList<SolverNode> children)
+	{
+		int[] boxes = node.boxes;
+		markBoxes(boxes);
+		for(int p = 0; p < node.players.length; p++)
+		{
+			int other = node.players[p ^ 1];
+			reachStamp++;
+			int reachable = flood(node.players[p], other, reach, reachStamp);
+			boolean inTheWay = false;
+			for(int i = 0; i < boxes.length; i++)
+			{
+				int cell = boxes[i] >> 1;
+				int owner = boxes[i] & 1;
+				for(int d = 0; d < SolverLevel.DIRECTIONS.length; d++)
+				{
+					int from = level.neighbours[d ^ 1][cell];
+					int to = level.neighbours[d][cell];
+					if(from == -1 || to == -1 || reach[from] != reachStamp || level.walls[to] || occupied[to] != 0 || level.dead[owner][to])
+					{
+						continue;
+					}
+					if(to == other)
+					{
+						inTheWay = true;
+						continue;
+					}
+
+					occupied[cell] = 0;
+					occupied[to] = (byte)(owner + 1);
+					if(!isFreezeDeadlock(to))
+					{
+						int[] players = node.players.clone();
+						players[p] = cell;
+						int[] next = moveBox(boxes, i, to << 1 | owner);
+						long boxHash = node.boxHash ^ level.boxKeys[owner][cell] ^ level.boxKeys[owner][to];
+						children.add(new SolverNode(next, players, boxHash, boxHash ^ playersHash(players), node.g + 1, node, (cell << 2 | d) << 2 | p << 1));
+					}
+					occupied[to] = 0;
+					occupied[cell] = (byte)(owner + 1);
+				}
+			}
+
+			if(inTheWay || flood(node.players[p], -1, scratch, ++scratchStamp) > reachable + 1)
+			{
+				int count = flood(other, node.players[p], scratch, ++scratchStamp);
+				for(int c = 1; c < count; c++)
+				{
+					int[] players = node.players.clone();
+					players[p ^ 1] = queue[c];
+					children.add(new SolverNode(boxes, players, node.boxHash, node.boxHash ^ playersHash(players), node.g + 1, node, queue[c] << 4 | (p ^ 1) << 1 | STEP_ASIDE));
+				}
+			}
+		}
+		unmarkBoxes(boxes);
+	}
+
+	/**
+	 * Looks for a PI-corral: an area the player cannot reach, bordered by boxes that can only be
+	 * pushed into it, with every push into it open to the player. If such an area still needs a
+	 * box pushed in, because it holds a goal or some box bordering it is off its goal, some push
+	 * into it has to come before the level is solved, and any other push can wait until after it,
+	 * so only the pushes of the boxes bordering it need to be tried. Of the PI-corrals found, the
+	 * one with the fewest pushes is taken.
+	 * @precondition: occupied marks the boxes and reach the cells the player can walk to
+	 * @return: The number the boxes bordering the corral are stamped with in barriers, or 0 if there is no PI-corral
+	 */
+	private int findPICorral()
+	{
+		int first = corralStamp + 1;
+		int best = 0;
+		int bestPushes = Integer.MAX_VALUE;
+		for(int start = 0; start < level.size; start++)
+		{
+			if(level.walls[start] || occupied[start] != 0 || reach[start] == reachStamp || corrals[start] >= first)
+			{
+				continue;
+			}
+			int id = ++corralStamp;
+			boolean relevant = false;
+			int cells = 0;
+			int boxes = 0;
+			corrals[start] = id;
+			corralCells[cells++] = start;
+			for(int head = 0; head < cells; head++)
+			{
+				int cell = corralCells[head];
+				relevant |= level.goalOwners[cell] != -1;
+				for(int d = 0; d < SolverLevel.DIRECTIONS.length; d++)
+				{
+					int next = level.neighbours[d][cell];
+					if(next == -1 || level.walls[next])
+					{
+						continue;
+					}
+					if(occupied[next] != 0)
+					{
+						if(barriers[next] != id)
+						{
+							barriers[next] = id;
+							barrierBoxes[boxes++] = next;
+						}
+					}
+					else if(corrals[next] != id)
+					{
+						corrals[next] = id;
+						corralCells[cells++] = next;
+					}
+				}
+			}
+
+			int pushes = 0;
+			for(int b = 0; b < boxes && pushes != -1; b++)
+			{
+				int box = barrierBoxes[b];
+				int owner = occupied[box] - 1;
+				relevant |= level.goalOwners[box] != owner;
+				if(level.room[box] && level.packingOrder != null)
+				{
+					pushes = -1;
+					break;
+				}
+				for(int d = 0; d < SolverLevel.DIRECTIONS.length; d++)
+				{
+					int from = level.neighbours[d ^ 1][box];
+					int to = level.neighbours[d][box];
+					if(from == -1 || to == -1 || level.walls[from] || level.walls[to])
+					{
+						continue;
+					}
+					if(corrals[to] == id)
+					{
+						if(occupied[from] != 0 || reach[from] != reachStamp)
+						{
+							pushes = -1;
+							break;
+						}
+						if(!level.dead[owner][to])
+						{
+							pushes++;
+						}
+					}
+					else if(occupied[to] == 0 && reach[from] == reachStamp && !level.dead[owner][to])
+					{
+						pushes = -1;
+						break;
+					}
+				}
+			}
+			if(relevant && pushes > 0 && pushes < bestPushes)
+			{
+				bestPushes = pushes;
+				best = boxes;
+				System.arraycopy(barrierBoxes, 0, chosenBoxes, 0, boxes);
+			}
+		}
+		if(best == 0)
+		{
+			return 0;
+		}
+		int id = ++corralStamp;
+		for(int b = 0; b < best; b++)
+		{
+			barriers[chosenBoxes[b]] = id;
+		}
+		return id;
+	}
+
+	/**
+	 * Pushes a box that was just pushed onto the entrance of the goal room on to the next goal of
+	 * the packing order, as one macro move, if every box already in the room is on the goals
+	 * before it. The pushes in between are found with a search over the positions of that box
+	 * alone, and become states linked through their parents so the solution still has every push.
+	 * @precondition: occupied marks the boxes of the child
+	 * @param child: The state with the box on the entrance
+	 * @param player: The cell of the player after the push onto the entrance
+	 * @return: The state with the box on its goal, or null if the room is not filled in order or the goal cannot be reached
+	 */
+	private SolverNode packIntoRoom(SolverNode child, int player)
+	{
+		int[] order = level.packingOrder;
+		if(order == null)
+		{
+			return null;
+		}
+		int filled = 0;
+		while(filled < order.length && occupied[order[filled]] != 0)
+		{
+			filled++;
+		}
+		int inRoom = 0;
+		for(int box : child.boxes)
+		{
+			if(level.room[box >> 1])
+			{
+				inRoom++;
+			}
+		}
+		if(filled == order.length || inRoom != filled)
+		{
+			return null;
+		}
+
+		int sides = SolverLevel.DIRECTIONS.length;
+		int start = level.entrance;
+		int target = order[filled];
+		int[] previous = new int[level.size*sides];
+		Arrays.fill(previous, -1);
+		int[] states = new int[level.size*sides];
+		int head = 0;
+		int tail = 0;
+		int found = -1;
+		for(int d = 0; d < sides; d++)
+		{
+			if(level.neighbours[d][start] == player)
+			{
+				states[tail++] = start*sides + d;
+				previous[start*sides + d] = start*sides + d;
+			}
+		}
+		occupied[start] = 0;
+		while(head < tail && found == -1)
+		{
+			int state = states[head++];
+			int box = state / sides;
+			occupied[box] = 1;
+			int stamp = ++scratchStamp;
+			flood(level.neighbours[state % sides][box], -1, scratch, stamp);
+			occupied[box] = 0;
+			for(int d = 0; d < sides && found == -1; d++)
+			{
+				int from = level.neighbours[d ^ 1][box];
+				int to = level.neighbours[d][box];
+				if(from == -1 || to == -1 || scratch[from] != stamp || !level.room[to] || occupied[to] != 0 || previous[to*sides + (d ^ 1)] != -1)
+				{
+					continue;
+				}
+				previous[to*sides + (d ^ 1)] = state;
+				states[tail++] = to*sides + (d ^ 1);
+				if(to == target)
+				{
+					found = to*sides + (d ^ 1);
+				}
+			}
+		}
+		occupied[start] = 1;
+		if(found == -1)
+		{
+			return null;
+		}
+
+		int length = 0;
+		for(int state = found; previous[state] != state; state = previous[state])
+		{
+			states[length++] = state;
+		}
+		SolverNode node = child;
+		int cell = start;
+		for(int i = length - 1; i >= 0; i--)
+		{
+			int to = states[i] / sides;
+			int d = states[i] % sides ^ 1;
+			int index = Arrays.binarySearch(node.boxes, cell << 1);
+			int[] next = moveBox(node.boxes, index, to << 1);
+			long boxHash = node.boxHash ^ level.boxKeys[0][cell] ^ level.boxKeys[0][to];
+			int[] players = { cell };
+			if(i == 0)
+			{
+				occupied[start] = 0;
+				occupied[target] = 1;
+				players[0] = normalizePlayer(cell);
+				occupied[target] = 0;
+				occupied[start] = 1;
+			}
+			node = new SolverNode(next, players, boxHash, boxHash ^ playersHash(players), node.g + 1, node, cell << 2 | d);
+			cell = to;
+		}
+		return node;
+	}
+
+	/**
+	 * Copies the boxes with one box replaced, keeping them sorted
+	 * @param boxes: The sorted boxes
+	 * @param index: The index of the box that moved
+	 * @param box: The encoded box after the move
+	 * @return: The new sorted boxes
+	 */
+	private static int[] moveBox(int[] boxes, int index, int box)
+	{
+		int[] next = boxes.clone();
+		int i = index;
+		while(i > 0 && next[i - 1] > box)
+		{
+			next[i] = next[i - 1];
+			i--;
+		}
+		while(i < next.length - 1 && next[i + 1] < box)
+		{
+			next[i] = next[i + 1];
+			i++;
+		}
+		next[i] = box;
+		return next;
+	}
+
+	private long hashBoxes(int[] boxes)
+	{
+		long hash = 0;
+		for(int box : boxes)
+		{
+			hash ^= level.boxKeys[box & 1][box >> 1];
+		}
+		return hash;
+	}
+
+	private long playersHash(int[] players)
+	{
+		long hash = 0;
+		for(int p = 0; p < players.length; p++)
+		{
+			hash ^= level.playerKeys[p][players[p]];
+		}
+		return hash;
+	}
+
+	boolean isSolved(int[] boxes)
+	{
+		for(int box : boxes)
+		{
+			if(!level.isPlaced(box))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void markBoxes(int[] boxes)
+	{
+		for(int box : boxes)
+		{
+			occupied[box >> 1] = (byte)((box & 1) + 1);
+		}
+	}
+
+	private void unmarkBoxes(int[] boxes)
+	{
+		for(int box : boxes)
+		{
+			occupied[box >> 1] = 0;
+		}
+	}
+
+	/**
+	 * Stamps every cell the player can walk to without pushing a box. The cells stamped are left
+	 * at the front of the queue, in the order they were reached.
+	 * @param start: The cell of the player
+	 * @param blocked: The cell of the other player, or -1
+	 * @param stamps: The array to stamp
+	 * @param stamp: The value to stamp with
+	 * @return: The number of cells stamped
+	 */
+	private int flood(int start, int blocked, int[] stamps, int stamp)
+	{
+		int head = 0;
+		int tail = 0;
+		stamps[start] = stamp;
+		if(blocked != -1)
+		{
+			stamps[blocked] = stamp;
+		}
+		queue[tail++] = start;
+		while(head < tail)
+		{
+			int cell = queue[head++];
+			for(int d = 0; d < SolverLevel.DIRECTIONS.length; d++)
+			{
+				int next = level.neighbours[d][cell];
+				if(next != -1 && stamps[next] != stamp && !level.walls[next] && occupied[next] == 0)
+				{
+					stamps[next] = stamp;
+					queue[tail++] = next;
+				}
+			}
+		}
+		if(blocked != -1)
+		{
+			stamps[blocked] = 0;
+		}
+		return tail;
+	}
+
+	/**
+	 * @param cell: The cell of the player
+	 * @return: The smallest cell the player can walk to, which stands for every cell it can walk to
+	 */
+	private int normalizePlayer(int cell)
+	{
+		int count = flood(cell, -1, scratch, ++scratchStamp);
+		int smallest = cell;
+		for(int i = 1; i < count; i++)
+		{
+			smallest = Math.min(smallest, queue[i]);
+		}
+		return smallest;
+	}
+
+	/**
+	 * Checks if a box that was just pushed can never move again while some box it is stuck with
+	 * is off its goals. A box cannot move along an axis when either side is a wall or a frozen box,
+	 * or when both sides are cells it can never be pushed to a goal from. Boxes already being
+	 * checked are treated as walls, which is how a square of four boxes is found to be stuck.
+	 * @param cell: The cell of the box that was pushed
+	 * @return: True if the state can never be solved
+	 */
+	private boolean isFreezeDeadlock(int cell)
+	{
+		frozenBoxes.clear();
+		boolean deadlock = false;
+		if(isFrozen(cell))
+		{
+			for(int box : frozenBoxes)
+			{
+				if(level.goalOwners[box] != occupied[box] - 1)
+				{
+					deadlock = true;
+					break;
+				}
+			}
+		}
+		for(int box : frozenBoxes)
+		{
+			frozen[box] = false;
+		}
+		return deadlock;
+	}
+
+	private boolean isFrozen(int cell)
+	{
+		frozen[cell] = true;
+		if(isBlocked(cell, 0, 1) && isBlocked(cell, 2, 3))
+		{
+			frozenBoxes.add(cell);
+			return true;
+		}
+		frozen[cell] = false;
+		return false;
+	}
+
+	/**
+	 * @param cell: The cell of a box
+	 * @param first: The Direction ordinal of one side of the axis
+	 * @param second: The Direction ordinal of the other side of the axis
+	 * @return: True if the box can never be pushed along the axis
+	 */
+	private boolean isBlocked(int cell, int first, int second)
+	{
+		int a = level.neighbours[first][cell];
+		int b = level.neighbours[second][cell];
+		if(a == -1 || b == -1 || level.walls[a] || level.walls[b])
+		{
+			return true;
+		}
+		int owner = occupied[cell] - 1;
+		if(level.dead[owner][a] && level.dead[owner][b])
+		{
+			return true;
+		}
+		return isFrozenBox(a) || isFrozenBox(b);
+	}
+
+	private boolean isFrozenBox(int cell)
+	{
+		return occupied[cell] != 0 && (frozen[cell] || isFrozen(cell));
+	}
+
+	/**
+	 * Works out a lower bound on the pushes left by matching each box to a different goal of its
+	 * owner so the total push distance is as small as possible, using the Hungarian algorithm.
+	 * @param boxes: The encoded boxes
+	 * @return: The lower bound, or UNREACHABLE if some box cannot be matched to a goal
+	 */
+	private int heuristic(int[] boxes)
+	{
+		long total = 0;
+		for(int owner = 0; owner < 2; owner++)
+		{
+			int count = 0;
+			for(int box : boxes)
+			{
+				if((box & 1) == owner)
+				{
+					count++;
+				}
+			}
+			if(count == 0)
+			{
+				continue;
+			}
+			int[][] distances = level.distances[owner];
+			if(count > distances.length)
+			{
+				return SolverLevel.UNREACHABLE;
+			}
+			int[] cells = new int[count];
+			count = 0;
+			for(int box : boxes)
+			{
+				if((box & 1) == owner)
+				{
+					cells[count++] = box >> 1;
+				}
+			}
+			total += minimumMatching(cells, distances);
+			if(total >= SolverLevel.UNREACHABLE)
+			{
+				return SolverLevel.UNREACHABLE;
+			}
+		}
+		return (int)total;
+	}
+
+	/**
+	 * @precondition: cells.length <= distances.length
+	 * @param cells: The cells of the boxes
+	 * @param distances: The push distances from each goal to every cell
+	 * @return: The smallest total distance of a matching of boxes to distinct goals
+	 */
+	private static long minimumMatching(int[] cells, int[][] distances)
+	{
+		int n = cells.length;
+		int m = distances.length;
+		long[] u = new long[n + 1];
+		long[] v = new long[m + 1];
+		int[] match = new int[m + 1];
+		int[] way = new int[m + 1];
+		long[] minimum = new long[m + 1];
+		boolean[] used = new boolean[m + 1];
+		for(int i = 1; i <= n; i++)
+		{
+			match[0] = i;
+			int column = 0;
+			Arrays.fill(minimum, Long.MAX_VALUE);
+			Arrays.fill(used, false);
+			do
+			{
+				used[column] = true;
+				int row = match[column];
+				long delta = Long.MAX_VALUE;
+				int nextColumn = 0;
+				for(int j = 1; j <= m; j++)
+				{
+					if(used[j])
+					{
+						continue;
+					}
+					long cost = distances[j - 1][cells[row - 1]] - u[row] - v[j];
+					if(cost < minimum[j])
+					{
+						minimum[j] = cost;
+						way[j] = column;
+					}
+					if(minimum[j] < delta)
+					{
+						delta = minimum[j];
+						nextColumn = j;
+					}
+				}
+				for(int j = 0; j <= m; j++)
+				{
+					if(used[j])
+					{
+						u[match[j]] += delta;
+						v[j] -= delta;
+					}
+					else
+					{
+						minimum[j] -= delta;
+					}
+				}
+				column = nextColumn;
+			}
+			while(match[column] != 0);
+			do
+			{
+				int previous = way[column];
+				match[column] = match[previous];
+				column = previous;
+			}
+			while(column != 0);
+		}
+		return -v[0];
+	}
+
+	/**
+	 * Walks back from the solved state to the start and writes out every step taken. The pushes
+	 * are expanded into moves by walking the player to each push around the boxes and the other player.
+	 * @param goal: The solved state
+	 * @return: The solution
+	 */
+	PuzzleSolution buildSolution(SolverNode goal)
+	{
+		int[] steps = new int[goal.g];
+		for(SolverNode node = goal; node.parent != null; node = node.parent)
+		{
+			steps[node.g - 1] = node.step;
+		}
+
+		ByteList moves = new ByteList();
+		markBoxes(level.startBoxes);
+		int[] players = level.startPlayers.clone();
+		boolean twoPlayers = players.length == 2;
+		for(int step : steps)
+		{
+			int p = 0;
+			if(twoPlayers)
+			{
+				p = step >> 1 & 1;
+				boolean aside = (step & STEP_ASIDE) != 0;
+				step >>= 2;
+				if(aside)
+				{
+					walk(p, players, step >> 2, moves);
+					continue;
+				}
+			}
+			int cell = step >> 2;
+			int d = step & PuzzleSolution.DIRECTION_MASK;
+			walk(p, players, level.neighbours[d ^ 1][cell], moves);
+			moves.add(PuzzleSolution.packStep(SolverLevel.playerOf(p), SolverLevel.DIRECTIONS[d], true));
+			occupied[level.neighbours[d][cell]] = occupied[cell];
+			occupied[cell] = 0;
+			players[p] = cell;
+		}
+		Arrays.fill(occupied, (byte)0);
+		return new PuzzleSolution(moves.toArray(), twoPlayers, weight == 1 && twoPlayers);
+	}
+
+	/**
+	 * Adds the moves of a shortest walk of one player that goes around the boxes and the other player
+	 * @param p: The player that walks
+	 * @param players: The cells of the players, updated to the end of the walk
+	 * @param end: The cell the player walks to
+	 * @param moves: The list the moves are added to
+	 */
+	private void walk(int p, int[] players, int end, ByteList moves)
+	{
+		int start = players[p];
+		int blocked = players.length == 2 ? players[p ^ 1] : -1;
+		int[] from = new int[level.size];
+		int stamp = ++scratchStamp;
+		int head = 0;
+		int tail = 0;
+		scratch[end] = stamp;
+		queue[tail++] = end;
+		while(head < tail && scratch[start] != stamp)
+		{
+			int cell = queue[head++];
+			for(int d = 0; d < SolverLevel.DIRECTIONS.length; d++)
+			{
+				int next = level.neighbours[d][cell];
+				if(next != -1 && next != blocked && scratch[next] != stamp && !level.walls[next] && occupied[next] == 0)
+				{
+					scratch[next] = stamp;
+					from[next] = d ^ 1;
+					queue[tail++] = next;
+				}
+			}
+		}
+		for(int cell = start; cell != end; cell = level.neighbours[from[cell]][cell])
+		{
+			moves.add(PuzzleSolution.packStep(SolverLevel.playerOf(p), SolverLevel.DIRECTIONS[from[cell]], false));
+		}
+		players[p] = end;
+	}
+
+	/**
+	 * Open list of compact state ids, with one stack of ids for each priority so the cheapest state
+	 * is found without comparing states. The priority orders by cost, then by steps taken with the
+	 * most steps first, as ORDER does.
+	 * @field DEPTHS: The number of step counts told apart within one cost
+	 * @field stacks: The ids waiting at each priority
+	 * @field sizes: The number of ids waiting at each priority
+	 * @field lowest: The lowest priority that may have ids waiting
+	 * @field count: The number of ids waiting
+	 */
+	private static class BucketQueue
+	{
+		private static final int DEPTHS = 1024;
+		private int[][] stacks = new int[DEPTHS][];
+		private int[] sizes = new int[DEPTHS];
+		private int lowest = Integer.MAX_VALUE;
+		private int count;
+
+		boolean isEmpty()
+		{
+			return count == 0;
+		}
+
+		void push(int cost, int steps, int id)
+		{
+			int priority = cost*DEPTHS + DEPTHS - 1 - Math.min(steps, DEPTHS - 1);
+			if(priority >= stacks.length)
+			{
+				int length = Math.max(priority + 1, stacks.length*2);
+				stacks = Arrays.copyOf(stacks, length);
+				sizes = Arrays.copyOf(sizes, length);
+			}
+			if(stacks[priority] == null)
+			{
+				stacks[priority] = new int[16];
+			}
+			else if(sizes[priority] == stacks[priority].length)
+			{
+				stacks[priority] = Arrays.copyOf(stacks[priority], sizes[priority]*2);
+			}
+			stacks[priority][sizes[priority]++] = id;
+			lowest = Math.min(lowest, priority);
+			count++;
+		}
+
+		/**
+		 * @precondition: !isEmpty()
+		 * @return: The cost of the id that pop returns next
+		 */
+		int lowestCost()
+		{
+			while(sizes[lowest] == 0)
+			{
+				lowest++;
+			}
+			return lowest / DEPTHS;
+		}
+
+		/**
+		 * @precondition: !isEmpty()
+		 * @return: The id pushed last at the lowest priority
+		 */
+		int pop()
+		{
+			lowestCost();
+			count--;
+			return stacks[lowest][--sizes[lowest]];
+		}
+	}
+
+	/**
+	 * Growable list of bytes, so long solutions are not boxed one step at a time
+	 */
+	private static class ByteList
+	{
+		private byte[] values = new byte[64];
+		private int count;
+
+		void add(byte value)
+		{
+			if(count == values.length)
+			{
+				values = Arrays.copyOf(values, count*2);
+			}
+			values[count++] = value;
+		}
+
+		byte[] toArray()
+		{
+			return Arrays.copyOf(values, count);
+		}
+	}
+}
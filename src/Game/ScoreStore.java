@@ -0,0 +1,527 @@
+package Game;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the best results for each level and mode on disk so they are not lost when the game exits.
+ * The file is an append only log with one line per result, each starting with a CRC32 of the rest
+ * of the line. Reading the log keeps the best of every line for a level, and skips any line whose
+ * checksum does not match, so a line torn by a crash in the middle of a write costs at most that
+ * result and never the ones before it. Results are kept in memory straight away and written behind
+ * on a single background thread, which takes every line waiting at once and forces them to disk
+ * together, so finishing a level never waits on the disk. Once the log holds many more lines than
+ * levels it is compacted by writing the best results to a temporary file and moving it over the
+ * log in one step. A store opened read only, such as by a tool checking the log while the game
+ * may be writing to it, skips damaged lines the same way but never repairs, compacts or writes the log.
+ * @field DEFAULT_FILE: The file scores are kept in unless another is given
+ * @field COMPACT_SLACK: The number of lines above twice the number of levels the log may grow to before being compacted
+ * @field file: The log file
+ * @field readOnly: boolean for if the log is only read, never written
+ * @field scores: The best result of each level, by key
+ * @field pending: The lines waiting to be written
+ * @field logLines: The number of lines in the log, including those that are waiting to be written
+ * @field writer: The thread the log is written on, or null if the store is read only
+ * @field channel: The channel the log is appended through, or null before the first write
+ */
+public class ScoreStore
+{
+	public static final File DEFAULT_FILE = new File(System.getProperty("user.home"), ".warehouseboss" + File.separator + "scores.log");
+	private static final int COMPACT_SLACK = 64;
+
+	/**
+	 * The best results for one level. Each is the best on its own, so the fewest moves and the
+	 * fewest pushes may come from different plays. The solution is the one of the play with the
+	 * fewest moves, and the moves and pushes of a play are counted from its solution, so steps
+	 * that were undone are not counted and the fewest moves is always the length of the solution.
+	 */
+	public static class Score
+	{
+		private final int moves;
+		private final int pushes;
+		private final long time;
+		private final String solution;
+
+		/**
+		 * @param moves: The fewest moves the level was finished in
+		 * @param pushes: The fewest pushes the level was finished in
+		 * @param time: The shortest time in milliseconds the level was finished in
+		 * @param solution: The moves in LURD notation of the play with the fewest moves
+		 */
+		public Score(int moves, int pushes, long time, String solution)
+		{
+			this.moves = moves;
+			this.pushes = pushes;
+			this.time = time;
+			this.solution = solution;
+		}
+
+		public int getMoves()
+		{
+			return moves;
+		}
+
+		public int getPushes()
+		{
+			return pushes;
+		}
+
+		public long getTime()
+		{
+			return time;
+		}
+
+		public String getSolution()
+		{
+			return solution;
+		}
+
+		/**
+		 * @param other: Another result for the same level, or null
+		 * @return: The best of each part of the two results
+		 */
+		private Score merge(Score other)
+		{
+			if(other == null)
+			{
+				return this;
+			}
+			boolean fewerMoves = other.moves < moves;
+			return new Score(Math.min(moves, other.moves), Math.min(pushes, other.pushes), Math.min(time, other.time), fewerMoves ? other.solution : solution);
+		}
+	}
+
+	private final File file;
+	private final boolean readOnly;
+	private final HashMap<String, Score> scores = new HashMap<String, Score>();
+	private final ArrayList<String> pending = new ArrayList<String>();
+	private int logLines;
+	private final ExecutorService writer;
+	private FileChannel channel;
+
+	/**
+	 * Reads the results kept in a log file. A file that does not exist yet gives an empty store,
+	 * and the file is created with the first result.
+	 * @param file: The log file
+	 */
+	public ScoreStore(File file)
+	{
+		this(file, false);
+	}
+
+	/**
+	 * Reads the results kept in a log file, either to keep adding to it or only to read them
+	 * @param file: The log file
+	 * @param readOnly: boolean for if the log must never be written, in which case no results can be recorded
+	 */
+	public ScoreStore(File file, boolean readOnly)
+	{
+		this.file = file;
+		this.readOnly = readOnly;
+		if(readOnly)
+		{
+			this.writer = null;
+			load();
+			return;
+		}
+		this.writer = Executors.newSingleThreadExecutor(new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, "ScoreStore writer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		load();
+		Runtime.getRuntime().addShutdownHook(new Thread("ScoreStore shutdown")
+		{
+			public void run()
+			{
+				close();
+			}
+		});
+	}
+
+	/**
+	 * @param multiplayer: boolean for if the level is a multiplayer level
+	 * @param level: The name of the level
+	 * @return: The best results of the level, or null if it has never been finished
+	 */
+	public synchronized Score get(boolean multiplayer, String level)
+	{
+		return scores.get(key(multiplayer, level));
+	}
+
+	/**
+	 * @param multiplayer: boolean for if the levels are multiplayer levels
+	 * @return: The names of the levels of the mode that have been finished
+	 */
+	public synchronized ArrayList<String> getLevels(boolean multiplayer)
+	{
+		String prefix = key(multiplayer, "");
+		ArrayList<String> levels = new ArrayList<String>();
+		for(String key : scores.keySet())
+		{
+			if(key.startsWith(prefix))
+			{
+				levels.add(key.substring(prefix.length()));
+			}
+		}
+		return levels;
+	}
+
+	/**
+	 * Records that a level was finished. The store is updated straight away and the result is
+	 * written to the log on the writer thread.
+	 * @param multiplayer: boolean for if the level is a multiplayer level
+	 * @param level: The name of the level
+	 * @param result: The result of the play
+	 * @return: The best results of the level including this one
+	 * @throws IllegalStateException: if the store is read only
+	 */
+	public synchronized Score record(boolean multiplayer, String level, Score result)
+	{
+		if(readOnly)
+		{
+			throw new IllegalStateException("A read only ScoreStore cannot record results");
+		}
+		String key = key(multiplayer, level);
+		Score best = result.merge(scores.get(key));
+		scores.put(key, best);
+		pending.add(line(key, best));
+		logLines++;
+		if(pending.size() == 1)
+		{
+			submit(new Runnable()
+			{
+				public void run()
+				{
+					writePending();
+				}
+			});
+		}
+		return best;
+	}
+
+	/**
+	 * Waits until every result recorded so far is on disk
+	 */
+	public void flush()
+	{
+		if(readOnly)
+		{
+			return;
+		}
+		try
+		{
+			writer.submit(new Runnable()
+			{
+				public void run()
+				{
+					writePending();
+				}
+			}).get();
+		}
+		catch(Exception e)
+		{
+			Logger.getLogger(ScoreStore.class.getName()).log(Level.SEVERE, "Could not flush scores to " + file, e);
+		}
+	}
+
+	/**
+	 * Writes anything still waiting and stops the writer thread. Called when the game exits.
+	 */
+	public void close()
+	{
+		if(readOnly || writer.isShutdown())
+		{
+			return;
+		}
+		flush();
+		writer.shutdown();
+		try
+		{
+			writer.awaitTermination(5, TimeUnit.SECONDS);
+			if(channel != null)
+			{
+				channel.close();
+			}
+		}
+		catch(InterruptedException | IOException e)
+		{
+			Logger.getLogger(ScoreStore.class.getName()).log(Level.SEVERE, "Could not close " + file, e);
+		}
+	}
+
+	private void submit(Runnable task)
+	{
+		if(!writer.isShutdown())
+		{
+			writer.execute(task);
+		}
+	}
+
+	/**
+	 * Reads the log, keeping the best result of each level and skipping damaged lines. Unless the
+	 * store is read only, a torn last line is cut off so the next line written starts cleanly.
+	 */
+	private void load()
+	{
+		if(!file.exists())
+		{
+			return;
+		}
+		long valid = 0;
+		long read = 0;
+		try(BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))
+		{
+			String text;
+			while((text = in.readLine()) != null)
+			{
+				read += text.getBytes(StandardCharsets.UTF_8).length + 1;
+				if(read > file.length())
+				{
+					break;
+				}
+				valid = read;
+				logLines++;
+				String[] parts = parse(text);
+				if(parts != null)
+				{
+					Score score = new Score(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Long.parseLong(parts[3]), unescape(parts[4]));
+					String key = unescape(parts[0]);
+					scores.put(key, score.merge(scores.get(key)));
+				}
+			}
+		}
+		catch(IOException e)
+		{
+			Logger.getLogger(ScoreStore.class.getName()).log(Level.SEVERE, "Could not read scores from " + file, e);
+			return;
+		}
+
+		if(readOnly)
+		{
+			return;
+		}
+		if(valid < file.length())
+		{
+			final long length = valid;
+			submit(new Runnable()
+			{
+				public void run()
+				{
+					try
+					{
+						open().truncate(length);
+					}
+					catch(IOException e)
+					{
+						Logger.getLogger(ScoreStore.class.getName()).log(Level.SEVERE, "Could not repair " + file, e);
+					}
+				}
+			});
+		}
+		if(logLines > scores.size()*2 + COMPACT_SLACK)
+		{
+			submit(new Runnable()
+			{
+				public void run()
+				{
+					compact();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Takes every line waiting, appends them to the log and forces them to disk. Runs on the writer thread.
+	 */
+	private void writePending()
+	{
+		String lines;
+		boolean compact;
+		synchronized(this)
+		{
+			if(pending.isEmpty())
+			{
+				return;
+			}
+			StringBuilder text = new StringBuilder();
+			for(String line : pending)
+			{
+				text.append(line).append('\n');
+			}
+			pending.clear();
+			lines = text.toString();
+			compact = logLines > scores.size()*2 + COMPACT_SLACK;
+		}
+
+		try
+		{
+			FileChannel out = open();
+			ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+			while(buffer.hasRemaining())
+			{
+				out.write(buffer);
+			}
+			out.force(false);
+		}
+		catch(IOException e)
+		{
+			Logger.getLogger(ScoreStore.class.getName()).log(Level.SEVERE, "Could not write scores to " + file, e);
+		}
+		if(compact)
+		{
+			compact();
+		}
+	}
+
+	/**
+	 * Replaces the log with one line per level. The lines are written to a temporary file that is
+	 * forced to disk and then moved over the log, so a crash leaves either the old log or the new
+	 * one. Runs on the writer thread.
+	 */
+	private void compact()
+	{
+		StringBuilder text = new StringBuilder();
+		int lines;
+		synchronized(this)
+		{
+			for(String key : scores.keySet())
+			{
+				text.append(line(key, scores.get(key))).append('\n');
+			}
+			lines = scores.size();
+			pending.clear();
+		}
+
+		File temporary = new File(file.getPath() + ".tmp");
+		try
+		{
+			try(FileChannel out = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+			{
+				ByteBuffer buffer = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+				while(buffer.hasRemaining())
+				{
+					out.write(buffer);
+				}
+				out.force(true);
+			}
+			if(channel != null)
+			{
+				channel.close();
+				channel = null;
+			}
+			Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			synchronized(this)
+			{
+				logLines = lines;
+			}
+		}
+		catch(IOException e)
+		{
+			Logger.getLogger(ScoreStore.class.getName()).log(Level.SEVERE, "Could not compact " + file, e);
+		}
+	}
+
+	/**
+	 * @return: The channel the log is appended through, opening it if it is not open
+	 */
+	private FileChannel open() throws IOException
+	{
+		if(channel == null)
+		{
+			if(file.getParentFile() != null)
+			{
+				file.getParentFile().mkdirs();
+			}
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			channel.position(channel.size());
+		}
+		return channel;
+	}
+
+	private static String key(boolean multiplayer, String level)
+	{
+		return (multiplayer ? "multi/" : "single/") + level;
+	}
+
+	/**
+	 * @param key: The key of the level
+	 * @param score: The best results of the level
+	 * @return: The line of the log for the results, without its line break
+	 */
+	private static String line(String key, Score score)
+	{
+		String text = escape(key) + '\t' + score.moves + '\t' + score.pushes + '\t' + score.time + '\t' + escape(score.solution);
+		CRC32 crc = new CRC32();
+		crc.update(text.getBytes(StandardCharsets.UTF_8));
+		return Long.toHexString(crc.getValue()) + '\t' + text;
+	}
+
+	/**
+	 * @param line: A line of the log
+	 * @return: The fields of the line after the checksum, or null if the line is damaged
+	 */
+	private static String[] parse(String line)
+	{
+		int tab = line.indexOf('\t');
+		if(tab == -1)
+		{
+			return null;
+		}
+		String text = line.substring(tab + 1);
+		CRC32 crc = new CRC32();
+		crc.update(text.getBytes(StandardCharsets.UTF_8));
+		String[] parts = text.split("\t", -1);
+		if(!line.substring(0, tab).equals(Long.toHexString(crc.getValue())) || parts.length != 5)
+		{
+			return null;
+		}
+		return parts;
+	}
+
+	/**
+	 * Escapes the characters that would break up a line of the log
+	 */
+	private static String escape(String text)
+	{
+		return text.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+	}
+
+	private static String unescape(String text)
+	{
+		StringBuilder out = new StringBuilder(text.length());
+		for(int i = 0; i < text.length(); i++)
+		{
+			char c = text.charAt(i);
+			if(c == '\\' && i + 1 < text.length())
+			{
+				c = text.charAt(++i);
+				c = c == 't' ? '\t' : c == 'n' ? '\n' : c == 'r' ? '\r' : c;
+			}
+			out.append(c);
+		}
+		return out.toString();
+	}
+}
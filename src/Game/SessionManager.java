@@ -0,0 +1,221 @@
+package Game;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hosts many independent GameSessions in one JVM, such as for bot ladders or a classroom of
+ * players. Each session runs on a thread of its own, which is a virtual thread when the JVM has
+ * them, so a session waiting for its next command costs next to nothing and ten thousand of them
+ * can be open at once. On older JVMs a cached pool of daemon threads is used instead. The number
+ * of sessions open at once is capped, and every session has a bounded queue and a move limit, so
+ * the memory used is bounded too.
+ * The manager counts the sessions and the commands carried out, and reports the rate of commands
+ * over the time since the rate was last asked for. The PuzzleGridGenerator is only used under its
+ * own lock, as it loads levels lazily, so it can be shared with a GameServer.
+ * @field DEFAULT_MAX_SESSIONS: The number of sessions that can be open at once unless another is given
+ * @field DEFAULT_MOVE_LIMIT: The number of moves a session may take unless another is given
+ * @field generator: The PuzzleGridGenerator the levels are read from
+ * @field maxSessions: The number of sessions that can be open at once
+ * @field threads: The threads running the sessions
+ * @field sessions: The sessions open, by id
+ * @field nextId: The id of the next session
+ * @field opened: The number of sessions opened so far
+ * @field commands: The number of commands carried out so far
+ * @field lastCommands: The number of commands carried out when the rate was last asked for
+ * @field lastTime: The time in nanoseconds the rate was last asked for
+ */
+public class SessionManager
+{
+	public static final int DEFAULT_MAX_SESSIONS = 16384;
+	public static final int DEFAULT_MOVE_LIMIT = 100000;
+	private final PuzzleGridGenerator generator;
+	private final int maxSessions;
+	private final ExecutorService threads;
+	private final ConcurrentHashMap<Integer, GameSession> sessions = new ConcurrentHashMap<Integer, GameSession>();
+	private final AtomicInteger nextId = new AtomicInteger();
+	private final LongAdder opened = new LongAdder();
+	private final LongAdder commands = new LongAdder();
+	private long lastCommands;
+	private long lastTime = System.nanoTime();
+
+	public SessionManager(PuzzleGridGenerator generator)
+	{
+		this(generator, DEFAULT_MAX_SESSIONS);
+	}
+
+	/**
+	 * @param generator: The PuzzleGridGenerator to read the levels from
+	 * @param maxSessions: The number of sessions that can be open at once
+	 */
+	public SessionManager(PuzzleGridGenerator generator, int maxSessions)
+	{
+		this.generator = generator;
+		this.maxSessions = maxSessions;
+		this.threads = newThreadPerTaskExecutor("GameSession");
+	}
+
+	/**
+	 * Makes an executor that runs every task on a new virtual thread. Virtual threads are only
+	 * part of Java 21 and later, so they are looked up by reflection, and on older JVMs a cached
+	 * pool of named daemon threads is returned instead.
+	 * @param name: The name of the threads, used for the fallback pool
+	 * @return: The executor
+	 */
+	public static ExecutorService newThreadPerTaskExecutor(String name)
+	{
+		try
+		{
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch(ReflectiveOperationException e)
+		{
+			// virtual threads are not available
+		}
+		return Executors.newCachedThreadPool(new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Opens a session on a level with the default move limit
+	 * @param multiPlayer: boolean for if the level is a multiplayer level
+	 * @param level: The name of the level
+	 * @param shadowMode: boolean for if shadow mode is enabled when the session is shown
+	 * @return: The session, or null if there is no such level or too many sessions are open
+	 */
+	public GameSession open(boolean multiPlayer, String level, boolean shadowMode)
+	{
+		PuzzleGrid grid;
+		synchronized(generator)
+		{
+			grid = generator.getLevel(multiPlayer, level);
+		}
+		return grid == null ? null : open(grid, shadowMode, DEFAULT_MOVE_LIMIT);
+	}
+
+	/**
+	 * Opens a session on a level and starts its thread
+	 * @param grid: The level to play, which the session only reads
+	 * @param shadowMode: boolean for if shadow mode is enabled when the session is shown
+	 * @param moveLimit: The number of moves the session may take
+	 * @return: The session, or null if too many sessions are open
+	 */
+	public GameSession open(PuzzleGrid grid, boolean shadowMode, int moveLimit)
+	{
+		GameSession session;
+		synchronized(sessions)
+		{
+			if(sessions.size() >= maxSessions || threads.isShutdown())
+			{
+				return null;
+			}
+			session = new GameSession(nextId.getAndIncrement(), grid, shadowMode, moveLimit, this);
+			sessions.put(session.getId(), session);
+		}
+		opened.increment();
+		try
+		{
+			threads.execute(session);
+		}
+		catch(RejectedExecutionException e)
+		{
+			sessions.remove(session.getId());
+			Logger.getLogger(SessionManager.class.getName()).log(Level.SEVERE, null, e);
+			return null;
+		}
+		return session;
+	}
+
+	/**
+	 * @param id: The id of a session
+	 * @return: The session, or null if it is not open
+	 */
+	public GameSession getSession(int id)
+	{
+		return sessions.get(id);
+	}
+
+	/**
+	 * Closes every session and stops starting new ones
+	 */
+	public void close()
+	{
+		synchronized(sessions)
+		{
+			threads.shutdown();
+		}
+		for(GameSession session : sessions.values())
+		{
+			session.close();
+		}
+	}
+
+	/**
+	 * Called on the thread of a session once it has ended
+	 * @param session: The session that ended
+	 */
+	void sessionEnded(GameSession session)
+	{
+		sessions.remove(session.getId());
+	}
+
+	/**
+	 * Called on the thread of a session after each batch of commands it carries out
+	 * @param count: The number of commands
+	 */
+	void countCommands(int count)
+	{
+		commands.add(count);
+	}
+
+	/**
+	 * @return: The number of sessions open
+	 */
+	public int getSessionCount()
+	{
+		return sessions.size();
+	}
+
+	/**
+	 * @return: The number of sessions opened so far, including those that have ended
+	 */
+	public long getOpenedCount()
+	{
+		return opened.sum();
+	}
+
+	/**
+	 * @return: The number of commands carried out by every session so far
+	 */
+	public long getCommandCount()
+	{
+		return commands.sum();
+	}
+
+	/**
+	 * @return: The number of commands carried out per second since this was last called, or since the manager was made
+	 */
+	public synchronized double getCommandsPerSecond()
+	{
+		long now = System.nanoTime();
+		long count = commands.sum();
+		double rate = (count - lastCommands) * 1e9 / Math.max(1, now - lastTime);
+		lastCommands = count;
+		lastTime = now;
+		return rate;
+	}
+}
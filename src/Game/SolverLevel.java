@@ -0,0 +1,586 @@
+package Game;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import Game.ImageFactory.Direction;
+import Game.ImageFactory.Player;
+
+/**
+ * Everything about a level that the PuzzleSolver can work out once before searching: which cells
+ * are walls, the neighbours of every cell, the goals of each player, the squares a box can never be
+ * pushed off again towards a goal, push distances from every cell to every goal and the random
+ * Zobrist keys used to hash states. Boxes are encoded as cell << 1 | owner, where owner is 0 for
+ * player one and 1 for player two.
+ * On single player levels whose goals all lie in one room that the rest of the level reaches
+ * through a single entrance cell, and that holds no box at the start, the order the goals of the
+ * room can be filled in is worked out backwards: starting from a full room, the box that can be
+ * pulled out through the entrance in the fewest pulls is taken out, until the room is empty. The
+ * goals in the reverse order they were emptied are the packing order the solver fills them in.
+ * @field DIRECTIONS: cached Direction values, indexed by ordinal
+ * @field UNREACHABLE: distance used for cells a box cannot be pushed to a goal from
+ * @field rows: The number of rows of the grid
+ * @field columns: The number of columns in the grid
+ * @field size: The number of cells in the grid
+ * @field players: The number of players on the level
+ * @field walls: Marks the cells a box or player can never stand on
+ * @field neighbours: The neighbour of each cell in each direction, or -1 when there is none
+ * @field goalOwners: The owner of the goal on each cell, or -1 when the cell is not a goal
+ * @field goals: The goal cells of each owner
+ * @field dead: Marks, per owner, the cells from which a box of that owner can never reach one of its goals
+ * @field distances: Push distances, per owner, from each goal of that owner to every cell
+ * @field boxKeys: Zobrist keys for a box of each owner on each cell
+ * @field playerKeys: Zobrist keys for each player on each cell
+ * @field startBoxes: The boxes of the start state, sorted
+ * @field startPlayers: The cells of the players in the start state
+ * @field boxBits: The bit of each cell in the box bitset of a packed key, or -1 for cells a box can never be on
+ * @field boxCells: The number of cells a box can be on
+ * @field playerBits: The number of bits used for the cell of each player in a packed key
+ * @field keyWords: The number of longs in a packed key
+ * @field room: Marks the cells of the goal room, all false when the level has none
+ * @field entrance: The cell boxes enter the goal room through, or -1 when the level has no goal room
+ * @field packingOrder: The goals of the room in the order they are filled, or null when the level has no goal room
+ */
+public class SolverLevel
+{
+	static final Direction[] DIRECTIONS = Direction.values();
+	static final int UNREACHABLE = Integer.MAX_VALUE / 4;
+
+	final int rows;
+	final int columns;
+	final int size;
+	final int players;
+	final boolean[] walls;
+	final int[][] neighbours;
+	final int[] goalOwners;
+	final int[][] goals;
+	final boolean[][] dead;
+	final int[][][] distances;
+	final long[][] boxKeys;
+	final long[][] playerKeys;
+	final int[] startBoxes;
+	final int[] startPlayers;
+	final int[] boxBits;
+	final int boxCells;
+	final int playerBits;
+	final int keyWords;
+	final boolean[] room;
+	final int entrance;
+	final int[] packingOrder;
+
+	/**
+	 * Analyses the current state of a board
+	 * @param board: The board to analyse
+	 */
+	public SolverLevel(PuzzleBoard board)
+	{
+		this.rows = board.getRows();
+		this.columns = board.getColumns();
+		this.size = board.getSize();
+		this.walls = new boolean[size];
+		this.goalOwners = new int[size];
+		this.neighbours = new int[DIRECTIONS.length][size];
+
+		int boxCount = 0;
+		int[] goalCounts = new int[2];
+		int[] playerCells = { -1, -1 };
+		for(int i = 0; i < size; i++)
+		{
+			byte cell = board.getCell(i);
+			walls[i] = (cell & PuzzleBoard.WALL) != 0;
+			goalOwners[i] = (cell & PuzzleBoard.GOAL) == 0 ? -1 : (cell & PuzzleBoard.GOAL_TWO) != 0 ? 1 : 0;
+			if(goalOwners[i] != -1)
+			{
+				goalCounts[goalOwners[i]]++;
+			}
+			if((cell & PuzzleBoard.BOX) != 0)
+			{
+				boxCount++;
+			}
+			if((cell & PuzzleBoard.PLAYER) != 0)
+			{
+				playerCells[ownerBit(cell)] = i;
+			}
+			for(Direction d : DIRECTIONS)
+			{
+				neighbours[d.ordinal()][i] = board.getNeighbour(i, d);
+			}
+		}
+		this.players = playerCells[1] == -1 ? 1 : 2;
+		this.startPlayers = Arrays.copyOf(playerCells, players);
+
+		this.startBoxes = new int[boxCount];
+		this.goals = new int[][] { new int[goalCounts[0]], new int[goalCounts[1]] };
+		int[] goalsAdded = new int[2];
+		int boxesAdded = 0;
+		for(int i = 0; i < size; i++)
+		{
+			byte cell = board.getCell(i);
+			if((cell & PuzzleBoard.BOX) != 0)
+			{
+				startBoxes[boxesAdded++] = i << 1 | ownerBit(cell);
+			}
+			if(goalOwners[i] != -1)
+			{
+				goals[goalOwners[i]][goalsAdded[goalOwners[i]]++] = i;
+			}
+		}
+		Arrays.sort(startBoxes);
+
+		this.distances = new int[2][][];
+		this.dead = new boolean[2][size];
+		for(int owner = 0; owner < 2; owner++)
+		{
+			distances[owner] = new int[goals[owner].length][];
+			Arrays.fill(dead[owner], true);
+			for(int g = 0; g < goals[owner].length; g++)
+			{
+				distances[owner][g] = pullDistances(goals[owner][g]);
+				for(int i = 0; i < size; i++)
+				{
+					if(distances[owner][g][i] != UNREACHABLE)
+					{
+						dead[owner][i] = false;
+					}
+				}
+			}
+		}
+
+		this.boxBits = new int[size];
+		int bits = 0;
+		for(int i = 0; i < size; i++)
+		{
+			boxBits[i] = walls[i] || (dead[0][i] && dead[1][i]) ? -1 : bits++;
+		}
+		this.boxCells = bits;
+		this.playerBits = 32 - Integer.numberOfLeadingZeros(size - 1);
+		this.keyWords = (boxCells*players + playerBits*players + 63) / 64;
+
+		this.room = new boolean[size];
+		this.entrance = findGoalRoom();
+		this.packingOrder = entrance == -1 ? null : findPackingOrder();
+
+		Random random = new Random(size*31L + columns);
+		this.boxKeys = new long[2][size];
+		this.playerKeys = new long[2][size];
+		for(int i = 0; i < size; i++)
+		{
+			boxKeys[0][i] = random.nextLong();
+			boxKeys[1][i] = random.nextLong();
+			playerKeys[0][i] = random.nextLong();
+			playerKeys[1][i] = random.nextLong();
+		}
+	}
+
+	/**
+	 * @param cell: A packed cell code
+	 * @return: 1 if the box or player on the cell belongs to player two, otherwise 0
+	 */
+	static int ownerBit(byte cell)
+	{
+		return (cell & PuzzleBoard.OWNER_TWO) != 0 ? 1 : 0;
+	}
+
+	/**
+	 * @param owner: 0 for player one or 1 for player two
+	 * @return: The matching Player enum
+	 */
+	static Player playerOf(int owner)
+	{
+		return owner == 1 ? Player.TWO : Player.ONE;
+	}
+
+	/**
+	 * @param box: An encoded box
+	 * @return: True if the box is on a goal of its owner
+	 */
+	boolean isPlaced(int box)
+	{
+		return goalOwners[box >> 1] == (box & 1);
+	}
+
+	/**
+	 * @param box: An encoded box
+	 * @return: The smallest number of pushes needed to get the box onto any goal of its owner, ignoring other boxes
+	 */
+	int distanceToGoal(int box)
+	{
+		int best = UNREACHABLE;
+		for(int[] distance : distances[box & 1])
+		{
+			best = Math.min(best, distance[box >> 1]);
+		}
+		return best;
+	}
+
+	/**
+	 * Packs a state into a key of keyWords longs: a bitset of the cells holding boxes, then for two
+	 * players a bitset of the cells holding boxes of player two, then the cell of each player.
+	 * @precondition: no box is on a cell where boxBits is -1
+	 * @param boxes: The encoded boxes
+	 * @param players: The cells of the players, normalized for one player
+	 * @param key: Array of keyWords longs the key is written to
+	 */
+	void encode(int[] boxes, int[] players, long[] key)
+	{
+		Arrays.fill(key, 0);
+		for(int box : boxes)
+		{
+			int bit = boxBits[box >> 1];
+			key[bit >> 6] |= 1L << bit;
+			if((box & 1) != 0)
+			{
+				bit += boxCells;
+				key[bit >> 6] |= 1L << bit;
+			}
+		}
+		int offset = boxCells*this.players;
+		for(int p = 0; p < this.players; p++)
+		{
+			for(int b = 0; b < playerBits; b++, offset++)
+			{
+				if((players[p] >> b & 1) != 0)
+				{
+					key[offset >> 6] |= 1L << offset;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Unpacks a key written by encode
+	 * @param key: The packed key
+	 * @param boxes: Array the encoded boxes are written to, sorted, with one entry per box of the level
+	 * @param players: Array the cells of the players are written to
+	 */
+	void decode(long[] key, int[] boxes, int[] players)
+	{
+		int count = 0;
+		for(int cell = 0; cell < size; cell++)
+		{
+			int bit = boxBits[cell];
+			if(bit == -1 || (key[bit >> 6] & 1L << bit) == 0)
+			{
+				continue;
+			}
+			int ownerBit = bit + boxCells;
+			int owner = this.players == 2 && (key[ownerBit >> 6] & 1L << ownerBit) != 0 ? 1 : 0;
+			boxes[count++] = cell << 1 | owner;
+		}
+		int offset = boxCells*this.players;
+		for(int p = 0; p < this.players; p++)
+		{
+			int cell = 0;
+			for(int b = 0; b < playerBits; b++, offset++)
+			{
+				if((key[offset >> 6] & 1L << offset) != 0)
+				{
+					cell |= 1 << b;
+				}
+			}
+			players[p] = cell;
+		}
+	}
+
+	/**
+	 * Looks for the smallest room holding every goal that the rest of the level only reaches
+	 * through one cell, and marks its cells in room. The room must hold no box and not the player.
+	 * @return: The entrance cell of the room, or -1 if there is no such room
+	 */
+	private int findGoalRoom()
+	{
+		if(players != 1 || goals[0].length == 0 || goals[1].length != 0)
+		{
+			return -1;
+		}
+		boolean[] boxes = new boolean[size];
+		for(int box : startBoxes)
+		{
+			boxes[box >> 1] = true;
+		}
+		int[] stamps = new int[size];
+		int[] queue = new int[size];
+		int best = -1;
+		int bestCount = size;
+		for(int e = 0; e < size; e++)
+		{
+			if(walls[e] || goalOwners[e] != -1 || boxes[e] || e == startPlayers[0])
+			{
+				continue;
+			}
+			int stamp = e + 1;
+			stamps[e] = stamp;
+			int count = fill(goals[0][0], stamps, stamp, queue);
+			if(count >= bestCount || !isRoom(queue, count, stamps, stamp, boxes, e))
+			{
+				continue;
+			}
+			best = e;
+			bestCount = count;
+		}
+		if(best != -1)
+		{
+			int stamp = size + 1;
+			stamps[best] = stamp;
+			int count = fill(goals[0][0], stamps, stamp, queue);
+			for(int i = 0; i < count; i++)
+			{
+				room[queue[i]] = true;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @param queue: The cells of the area filled
+	 * @param count: The number of cells filled
+	 * @param stamps: The stamps of the filled cells
+	 * @param stamp: The stamp of the filled cells
+	 * @param boxes: Marks the cells of the boxes at the start
+	 * @param e: The cell left out of the fill
+	 * @return: True if the area holds every goal, no box and not the player, and borders the cell left out
+	 */
+	private boolean isRoom(int[] queue, int count, int[] stamps, int stamp, boolean[] boxes, int e)
+	{
+		for(int goal : goals[0])
+		{
+			if(stamps[goal] != stamp)
+			{
+				return false;
+			}
+		}
+		for(int i = 0; i < count; i++)
+		{
+			if(boxes[queue[i]] || queue[i] == startPlayers[0])
+			{
+				return false;
+			}
+		}
+		for(int d = 0; d < DIRECTIONS.length; d++)
+		{
+			int next = neighbours[d][e];
+			if(next != -1 && stamps[next] == stamp && next != e)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Stamps the cells that can be walked to from a cell without crossing walls or cells already stamped
+	 * @param start: The cell to start from
+	 * @param stamps: The array to stamp
+	 * @param stamp: The value to stamp with
+	 * @param queue: Array the cells stamped are written to, in the order they were reached
+	 * @return: The number of cells stamped
+	 */
+	private int fill(int start, int[] stamps, int stamp, int[] queue)
+	{
+		int head = 0;
+		int tail = 0;
+		stamps[start] = stamp;
+		queue[tail++] = start;
+		while(head < tail)
+		{
+			int cell = queue[head++];
+			for(int d = 0; d < DIRECTIONS.length; d++)
+			{
+				int next = neighbours[d][cell];
+				if(next != -1 && !walls[next] && stamps[next] != stamp)
+				{
+					stamps[next] = stamp;
+					queue[tail++] = next;
+				}
+			}
+		}
+		return tail;
+	}
+
+	/**
+	 * Works out the order the goals of the room are filled in by emptying a full room backwards,
+	 * each time pulling out the box that leaves through the entrance in the fewest pulls
+	 * @return: The goals in the order they are filled, or null if some box can never be pulled out
+	 */
+	private int[] findPackingOrder()
+	{
+		int[] roomGoals = goals[0];
+		boolean[] boxes = new boolean[size];
+		for(int goal : roomGoals)
+		{
+			boxes[goal] = true;
+		}
+		int outside = -1;
+		for(int d = 0; d < DIRECTIONS.length; d++)
+		{
+			int next = neighbours[d][entrance];
+			if(next != -1 && !walls[next] && !room[next])
+			{
+				outside = next;
+			}
+		}
+		if(outside == -1)
+		{
+			return null;
+		}
+
+		int[] order = new int[roomGoals.length];
+		for(int filled = roomGoals.length - 1; filled >= 0; filled--)
+		{
+			int best = -1;
+			int bestPulls = UNREACHABLE;
+			for(int goal : roomGoals)
+			{
+				if(!boxes[goal])
+				{
+					continue;
+				}
+				int pulls = pullsOut(goal, outside, boxes);
+				if(pulls < bestPulls)
+				{
+					best = goal;
+					bestPulls = pulls;
+				}
+			}
+			if(best == -1)
+			{
+				return null;
+			}
+			order[filled] = best;
+			boxes[best] = false;
+		}
+		return order;
+	}
+
+	/**
+	 * Finds the fewest pulls that take one box of a full or part full room out through the
+	 * entrance, with the player starting outside the room and the other boxes staying put
+	 * @param goal: The cell of the box
+	 * @param outside: The cell outside the room next to the entrance, where the player starts
+	 * @param boxes: Marks the cells of the boxes in the room
+	 * @return: The number of pulls, or UNREACHABLE if the box cannot be pulled out
+	 */
+	private int pullsOut(int goal, int outside, boolean[] boxes)
+	{
+		int sides = DIRECTIONS.length;
+		int[] pulls = new int[size*sides];
+		Arrays.fill(pulls, -1);
+		int[] states = new int[size*sides];
+		int[] stamps = new int[size];
+		int[] queue = new int[size];
+		int head = 0;
+		int tail = 0;
+
+		boxes[goal] = false;
+		int reached = walk(outside, goal, boxes, stamps, 1, queue);
+		for(int d = 0; d < sides; d++)
+		{
+			int side = neighbours[d][goal];
+			if(side != -1 && stamps[side] == 1)
+			{
+				pulls[goal*sides + d] = 0;
+				states[tail++] = goal*sides + d;
+			}
+		}
+		int stamp = 1;
+		int result = UNREACHABLE;
+		while(head < tail && result == UNREACHABLE && reached > 0)
+		{
+			int state = states[head++];
+			int box = state / sides;
+			walk(neighbours[state % sides][box], box, boxes, stamps, ++stamp, queue);
+			for(int d = 0; d < sides; d++)
+			{
+				int player = neighbours[d][box];
+				int behind = player == -1 ? -1 : neighbours[d][player];
+				if(player == -1 || stamps[player] != stamp || behind == -1 || walls[behind] || boxes[behind])
+				{
+					continue;
+				}
+				if(player == entrance && !room[behind])
+				{
+					result = pulls[state] + 1;
+					break;
+				}
+				if(!room[player] || pulls[player*sides + d] != -1)
+				{
+					continue;
+				}
+				pulls[player*sides + d] = pulls[state] + 1;
+				states[tail++] = player*sides + d;
+			}
+		}
+		boxes[goal] = true;
+		return result;
+	}
+
+	/**
+	 * Stamps the cells the player can walk to around the boxes of the room and one more box
+	 * @param start: The cell of the player
+	 * @param box: The cell of the box being pulled
+	 * @param boxes: Marks the cells of the other boxes
+	 * @param stamps: The array to stamp
+	 * @param stamp: The value to stamp with
+	 * @param queue: Array used to hold the cells waiting
+	 * @return: The number of cells stamped
+	 */
+	private int walk(int start, int box, boolean[] boxes, int[] stamps, int stamp, int[] queue)
+	{
+		if(start == box || boxes[start])
+		{
+			return 0;
+		}
+		int head = 0;
+		int tail = 0;
+		stamps[start] = stamp;
+		queue[tail++] = start;
+		while(head < tail)
+		{
+			int cell = queue[head++];
+			for(int d = 0; d < DIRECTIONS.length; d++)
+			{
+				int next = neighbours[d][cell];
+				if(next != -1 && next != box && !walls[next] && !boxes[next] && stamps[next] != stamp)
+				{
+					stamps[next] = stamp;
+					queue[tail++] = next;
+				}
+			}
+		}
+		return tail;
+	}
+
+	/**
+	 * Works out how many pushes it takes to get a box from every cell to a goal by pulling a box
+	 * backwards away from the goal. A pull needs the cell the box moves to and the cell behind
+	 * that, where the player would stand, to be free of walls.
+	 * @param goal: The goal cell
+	 * @return: The push distance from every cell, or UNREACHABLE
+	 */
+	private int[] pullDistances(int goal)
+	{
+		int[] distance = new int[size];
+		Arrays.fill(distance, UNREACHABLE);
+		int[] queue = new int[size];
+		int head = 0;
+		int tail = 0;
+		distance[goal] = 0;
+		queue[tail++] = goal;
+		while(head < tail)
+		{
+			int cell = queue[head++];
+			for(Direction d : DIRECTIONS)
+			{
+				int from = neighbours[d.ordinal()][cell];
+				int player = from == -1 ? -1 : neighbours[d.ordinal()][from];
+				if(player == -1 || walls[from] || walls[player] || distance[from] != UNREACHABLE)
+				{
+					continue;
+				}
+				distance[from] = distance[cell] + 1;
+				queue[tail++] = from;
+			}
+		}
+		return distance;
+	}
+}
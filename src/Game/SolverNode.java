@@ -0,0 +1,58 @@
+package Game;
+
+import java.util.Arrays;
+
+/**
+ * A state reached by the PuzzleSolver. Two nodes are equal when they have the same boxes and the
+ * same players, where for single player searches the player is normalized to the top left most
+ * cell it can walk to, so states that only differ by where the player wandered are merged.
+ * @field boxes: The encoded boxes, sorted
+ * @field players: The cell of each player, normalized in single player searches
+ * @field boxHash: Zobrist hash of the boxes
+ * @field hash: Zobrist hash of the boxes and players
+ * @field g: The number of pushes or moves taken to reach this state
+ * @field f: The cost used to order the open list, g plus the weighted heuristic
+ * @field estimated: boolean for if f is only a lower bound taken from the parent, with the heuristic not worked out yet
+ * @field parent: The node this state was reached from, or null for the start state
+ * @field step: The encoded step taken from the parent to reach this state
+ */
+public class SolverNode
+{
+	final int[] boxes;
+	final int[] players;
+	final long boxHash;
+	final long hash;
+	final int g;
+	int f;
+	boolean estimated;
+	final SolverNode parent;
+	final int step;
+
+	SolverNode(int[] boxes, int[] players, long boxHash, long hash, int g, SolverNode parent, int step)
+	{
+		this.boxes = boxes;
+		this.players = players;
+		this.boxHash = boxHash;
+		this.hash = hash;
+		this.g = g;
+		this.parent = parent;
+		this.step = step;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return (int)(hash ^ (hash >>> 32));
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if(!(o instanceof SolverNode))
+		{
+			return false;
+		}
+		SolverNode other = (SolverNode)o;
+		return hash == other.hash && Arrays.equals(boxes, other.boxes) && Arrays.equals(players, other.players);
+	}
+}
@@ -0,0 +1,135 @@
+package Game;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import Game.ImageFactory.Type;
+
+/**
+ * A single image holding every puzzle sprite side by side in Type ordinal order, in a format
+ * compatible with the screen so that drawing a tile is a straight copy without any conversion.
+ * Built from the sprites of the SpriteCache for one tile size and screen scale factor. Sizes are
+ * given as laid out, the image itself holds scale times as many pixels so a scaled screen draws it
+ * one pixel to one pixel.
+ * @field CACHED_ATLASES: The number of atlases kept for reuse
+ * @field atlases: The atlases most recently asked for, by tile size and scale
+ * @field image: The image holding all of the sprites
+ * @field tileWidth: The width of a single tile as laid out
+ * @field tileHeight: The height of a single tile as laid out
+ * @field pixelWidth: The width of a single tile in the image
+ * @field pixelHeight: The height of a single tile in the image
+ */
+public class SpriteAtlas
+{
+	private static final int CACHED_ATLASES = 4;
+	private static final LinkedHashMap<String, SpriteAtlas> atlases = new LinkedHashMap<String, SpriteAtlas>(8, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, SpriteAtlas> eldest)
+		{
+			return size() > CACHED_ATLASES;
+		}
+	};
+	private final BufferedImage image;
+	private final int tileWidth;
+	private final int tileHeight;
+	private final int pixelWidth;
+	private final int pixelHeight;
+
+	/**
+	 * Copies the sprites of a tile size into a new atlas. Each sprite is placed at the left of its
+	 * tile and centred vertically, the same way a JLabel showing only an icon would place it.
+	 * @param tileSize: The height of a tile as laid out
+	 * @param scale: The scale factor of the screen
+	 */
+	public SpriteAtlas(int tileSize, double scale)
+	{
+		Type[] types = Type.values();
+		BufferedImage[] sprites = new BufferedImage[types.length];
+		int width = 1;
+		int height = 1;
+		for(int i = 0; i < types.length; i++)
+		{
+			sprites[i] = SpriteCache.getDefault().getSprite(types[i], tileSize, scale);
+			width = Math.max(width, sprites[i].getWidth());
+			height = Math.max(height, sprites[i].getHeight());
+		}
+		this.pixelWidth = width;
+		this.pixelHeight = height;
+		this.tileHeight = tileSize;
+		this.tileWidth = Math.max(1, (int)Math.round(width/scale));
+		this.image = SpriteCache.createCompatibleImage(width*types.length, height);
+
+		Graphics2D g = image.createGraphics();
+		for(int i = 0; i < sprites.length; i++)
+		{
+			g.drawImage(sprites[i], i*width, (height - sprites[i].getHeight())/2, null);
+		}
+		g.dispose();
+	}
+
+	/**
+	 * @param tileSize: The height of a tile as laid out
+	 * @param scale: The scale factor of the screen
+	 * @return: An atlas of the puzzle sprites at the size, shared by every board component using it
+	 */
+	public static synchronized SpriteAtlas get(int tileSize, double scale)
+	{
+		String key = tileSize + "@" + scale;
+		SpriteAtlas atlas = atlases.get(key);
+		if(atlas == null)
+		{
+			atlas = new SpriteAtlas(tileSize, scale);
+			atlases.put(key, atlas);
+		}
+		return atlas;
+	}
+
+	/**
+	 * @return: The atlas of the puzzle sprites at ImageFactory.DESIRED_HEIGHT on an unscaled screen
+	 */
+	public static SpriteAtlas getDefault()
+	{
+		return get(ImageFactory.DESIRED_HEIGHT, 1.0);
+	}
+
+	public int getTileWidth()
+	{
+		return tileWidth;
+	}
+
+	public int getTileHeight()
+	{
+		return tileHeight;
+	}
+
+	/**
+	 * Draws the sprite of a type with its top left corner at a point
+	 * @param g: The graphics to draw with
+	 * @param type: The ordinal of the Type to draw
+	 * @param x: The x coordinate to draw at
+	 * @param y: The y coordinate to draw at
+	 */
+	public void draw(Graphics g, int type, int x, int y)
+	{
+		int sx = type*pixelWidth;
+		g.drawImage(image, x, y, x + tileWidth, y + tileHeight, sx, 0, sx + pixelWidth, pixelHeight, null);
+	}
+
+	/**
+	 * Draws the sprite of a type with its top left corner at a point
+	 * @param g: The graphics to draw with
+	 * @param type: The Type to draw
+	 * @param x: The x coordinate to draw at
+	 * @param y: The y coordinate to draw at
+	 */
+	public void draw(Graphics g, Type type, int x, int y)
+	{
+		draw(g, type.ordinal(), x, y);
+	}
+}
@@ -0,0 +1,213 @@
+package Game;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import Game.ImageFactory.Type;
+
+/**
+ * Cache of tile sprites scaled to each size they are drawn at. A sprite is keyed by its Type, the
+ * tile size it is drawn at and the scale factor of the screen, and is rendered once from the full
+ * size image in a format compatible with the screen, with high quality scaling, so drawing it is a
+ * straight copy. On a screen scaled for HiDPI the sprite holds tile size times scale pixels, so it
+ * is drawn one pixel to one pixel instead of being stretched. The width keeps the aspect ratio of
+ * the full size image. Once the sprites take up more than the byte cap the least recently used are
+ * dropped.
+ * @field DEFAULT_BYTE_CAP: The byte cap of the shared cache
+ * @field defaultCache: The cache shared by every view, created on first use
+ * @field byteCap: The number of bytes of sprites kept before the least recently used are dropped
+ * @field sprites: The sprites by key, in order from least to most recently used
+ * @field bytes: The number of bytes the sprites take up
+ */
+public class SpriteCache
+{
+	private static final long DEFAULT_BYTE_CAP = 32L << 20;
+	private static SpriteCache defaultCache;
+	private final long byteCap;
+	private final LinkedHashMap<Long, BufferedImage> sprites = new LinkedHashMap<Long, BufferedImage>(64, 0.75f, true);
+	private long bytes;
+
+	/**
+	 * @param byteCap: The number of bytes of sprites kept before the least recently used are dropped
+	 */
+	public SpriteCache(long byteCap)
+	{
+		this.byteCap = byteCap;
+	}
+
+	/**
+	 * @return: The cache shared by every view
+	 */
+	public static synchronized SpriteCache getDefault()
+	{
+		if(defaultCache == null)
+		{
+			defaultCache = new SpriteCache(DEFAULT_BYTE_CAP);
+		}
+		return defaultCache;
+	}
+
+	public synchronized int size()
+	{
+		return sprites.size();
+	}
+
+	public synchronized long getBytes()
+	{
+		return bytes;
+	}
+
+	/**
+	 * Gets the sprite of a type at a size, rendering it from the full size image if it is not cached
+	 * @param type: The type of the tile
+	 * @param tileSize: The height of the tile as it is laid out
+	 * @param scale: The scale factor of the screen
+	 * @return: The sprite, which is tileSize times scale pixels high
+	 */
+	public BufferedImage getSprite(Type type, int tileSize, double scale)
+	{
+		BufferedImage sprite;
+		synchronized(this)
+		{
+			sprite = sprites.get(key(type, tileSize, scale));
+		}
+		if(sprite == null)
+		{
+			sprite = prepare(type, ImageFactory.getSource(type), tileSize, scale);
+		}
+		return sprite;
+	}
+
+	/**
+	 * Renders the sprite of a type at a size from its full size image and caches it, unless it
+	 * is already cached. The rendering is done outside of the lock so several can be rendered at once.
+	 * Without a full size image a blank sprite is returned and not cached, so the tile is rendered
+	 * properly once its image can be loaded.
+	 * @param type: The type of the tile
+	 * @param source: The full size image of the tile, or null if it could not be loaded
+	 * @param tileSize: The height of the tile as it is laid out
+	 * @param scale: The scale factor of the screen
+	 * @return: The sprite
+	 */
+	public BufferedImage prepare(Type type, BufferedImage source, int tileSize, double scale)
+	{
+		if(source == null)
+		{
+			return render(null, Math.max(1, (int)Math.round(tileSize*scale)));
+		}
+		long key = key(type, tileSize, scale);
+		synchronized(this)
+		{
+			BufferedImage sprite = sprites.get(key);
+			if(sprite != null)
+			{
+				return sprite;
+			}
+		}
+		BufferedImage sprite = render(source, Math.max(1, (int)Math.round(tileSize*scale)));
+		synchronized(this)
+		{
+			BufferedImage existing = sprites.get(key);
+			if(existing != null)
+			{
+				return existing;
+			}
+			sprites.put(key, sprite);
+			bytes += bytesOf(sprite);
+			evict(key);
+		}
+		return sprite;
+	}
+
+	/**
+	 * Drops the least recently used sprites until the cache is within its byte cap, always keeping
+	 * the sprite just added
+	 * @param keep: The key of the sprite just added
+	 */
+	private void evict(long keep)
+	{
+		Iterator<Map.Entry<Long, BufferedImage>> entries = sprites.entrySet().iterator();
+		while(bytes > byteCap && entries.hasNext())
+		{
+			Map.Entry<Long, BufferedImage> entry = entries.next();
+			if(entry.getKey() != keep)
+			{
+				bytes -= bytesOf(entry.getValue());
+				entries.remove();
+			}
+		}
+	}
+
+	/**
+	 * Scales an image to a height, keeping its aspect ratio. Shrinking is done in steps of at most
+	 * half with bilinear filtering before a last bicubic step, which keeps the detail a single
+	 * step would lose.
+	 * @param source: The full size image, or null for a blank sprite
+	 * @param height: The height in pixels
+	 * @return: The scaled image in the format of the screen
+	 */
+	private static BufferedImage render(BufferedImage source, int height)
+	{
+		if(source == null)
+		{
+			return createCompatibleImage(height, height);
+		}
+		int width = Math.max(1, (int)Math.round(height*(double)source.getWidth()/source.getHeight()));
+		BufferedImage current = source;
+		while(current.getHeight()/2 >= height && current.getWidth()/2 >= width)
+		{
+			current = scale(current, current.getWidth()/2, current.getHeight()/2, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		}
+		return scale(current, width, height, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+	}
+
+	private static BufferedImage scale(BufferedImage image, int width, int height, Object interpolation)
+	{
+		BufferedImage scaled = createCompatibleImage(width, height);
+		Graphics2D g = scaled.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+		g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+		g.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
+		g.drawImage(image, 0, 0, width, height, null);
+		g.dispose();
+		return scaled;
+	}
+
+	/**
+	 * Creates a translucent image in the format of the default screen, or a plain ARGB image
+	 * when there is no screen
+	 * @param width: The width of the image
+	 * @param height: The height of the image
+	 * @return: The new image
+	 */
+	static BufferedImage createCompatibleImage(int width, int height)
+	{
+		if(!GraphicsEnvironment.isHeadless())
+		{
+			GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+			return config.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+		}
+		return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+	}
+
+	private static long bytesOf(BufferedImage image)
+	{
+		return image.getWidth()*(long)image.getHeight()*4;
+	}
+
+	/**
+	 * Packs a key into a long: the Type ordinal in the top byte, the tile size in the next three
+	 * and the bits of the scale factor as a float in the low four
+	 */
+	private static long key(Type type, int tileSize, double scale)
+	{
+		return (long)type.ordinal() << 56 | (long)(tileSize & 0xFFFFFF) << 32 | Float.floatToIntBits((float)scale) & 0xFFFFFFFFL;
+	}
+}
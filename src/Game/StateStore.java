@@ -0,0 +1,320 @@
+package Game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compact set of search states for searches too large to keep every state as an object. Each
+ * state is a fixed number of key words, as packed by SolverLevel.encode, followed by one word of
+ * data for the search, and gets an id in the order it was added. The states are written one after
+ * another into chunks of longs, so adding a state never moves the ones before it and ids stay
+ * valid, and an open addressing index of ids finds a state from its key. A single player state of
+ * a level with up to about 50 floor cells takes two words, so around 21 bytes with the index.
+ * Once the chunks and the index reach the byte cap the SpillPolicy decides what happens: ABORT
+ * refuses new states, SPILL keeps going with chunks mapped from a temporary file, leaving only the
+ * index on the heap.
+ * @field CHUNK_LONGS: The number of longs in each chunk
+ * @field INITIAL_INDEX: The number of slots in the index to begin with
+ * @field keyWords: The number of longs in each key
+ * @field stride: The number of longs each state takes, the key and the data word
+ * @field perChunk: The number of states that fit in a chunk
+ * @field byteCap: The number of bytes of heap the store may use
+ * @field policy: What to do once the byte cap is reached
+ * @field chunks: The chunks the states are written to
+ * @field chunkCount: The number of chunks in use
+ * @field heapChunks: The number of chunks on the heap
+ * @field index: Open addressing table holding the id plus one of each state, or 0 for an empty slot
+ * @field size: The number of states added
+ * @field full: boolean for if a state was refused because of the byte cap
+ * @field spillFile: The temporary file chunks are mapped from once they spill, or null
+ * @field spillChannel: The channel of the spill file, or null
+ */
+public class StateStore
+{
+	private static final int CHUNK_LONGS = 1 << 16;
+	private static final int INITIAL_INDEX = 1 << 12;
+
+	/**
+	 * What a StateStore does once it reaches its byte cap
+	 */
+	public static enum SpillPolicy
+	{
+		ABORT,
+		SPILL,
+	}
+
+	private final int keyWords;
+	private final int stride;
+	private final int perChunk;
+	private final long byteCap;
+	private final SpillPolicy policy;
+	private LongBuffer[] chunks = new LongBuffer[16];
+	private int chunkCount;
+	private int heapChunks;
+	private int[] index = new int[INITIAL_INDEX];
+	private int size;
+	private boolean full;
+	private File spillFile;
+	private FileChannel spillChannel;
+
+	/**
+	 * @param keyWords: The number of longs in each key
+	 * @param byteCap: The number of bytes of heap the store may use
+	 * @param policy: What to do once the byte cap is reached
+	 */
+	public StateStore(int keyWords, long byteCap, SpillPolicy policy)
+	{
+		this.keyWords = keyWords;
+		this.stride = keyWords + 1;
+		this.perChunk = CHUNK_LONGS / stride;
+		this.byteCap = byteCap;
+		this.policy = policy;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return: True if a state was refused because the store reached its byte cap
+	 */
+	public boolean isFull()
+	{
+		return full;
+	}
+
+	/**
+	 * @return: True if some chunks are mapped from the spill file
+	 */
+	public boolean isSpilled()
+	{
+		return chunkCount > heapChunks;
+	}
+
+	/**
+	 * @return: The number of bytes of heap the chunks and the index take up
+	 */
+	public long getHeapBytes()
+	{
+		return heapChunks*(long)CHUNK_LONGS*8 + index.length*4L;
+	}
+
+	/**
+	 * @return: The number of bytes taken up by the chunks and the index, on and off the heap
+	 */
+	public long getBytesUsed()
+	{
+		return chunkCount*(long)CHUNK_LONGS*8 + index.length*4L;
+	}
+
+	/**
+	 * @param key: The key of the state
+	 * @return: The id of the state, or -1 if it has not been added
+	 */
+	public int find(long[] key)
+	{
+		int mask = index.length - 1;
+		for(int slot = hash(key) & mask; index[slot] != 0; slot = (slot + 1) & mask)
+		{
+			if(keyEquals(index[slot] - 1, key))
+			{
+				return index[slot] - 1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds a state that has not been added before
+	 * @precondition: find(key) == -1
+	 * @param key: The key of the state
+	 * @param data: The data word of the state
+	 * @return: The id of the new state, or -1 if the byte cap was reached and the policy is ABORT
+	 */
+	public int add(long[] key, long data)
+	{
+		if((size + 1)*4L > index.length*3L && !growIndex())
+		{
+			return -1;
+		}
+		if(size == chunkCount*perChunk && !addChunk())
+		{
+			return -1;
+		}
+
+		int id = size++;
+		LongBuffer chunk = chunks[id / perChunk];
+		int offset = (id % perChunk)*stride;
+		for(int i = 0; i < keyWords; i++)
+		{
+			chunk.put(offset + i, key[i]);
+		}
+		chunk.put(offset + keyWords, data);
+		insert(id, hash(key));
+		return id;
+	}
+
+	/**
+	 * @param id: The id of a state
+	 * @return: The data word of the state
+	 */
+	public long getData(int id)
+	{
+		return chunks[id / perChunk].get((id % perChunk)*stride + keyWords);
+	}
+
+	/**
+	 * @param id: The id of a state
+	 * @param data: The new data word of the state
+	 */
+	public void setData(int id, long data)
+	{
+		chunks[id / perChunk].put((id % perChunk)*stride + keyWords, data);
+	}
+
+	/**
+	 * @param id: The id of a state
+	 * @param key: Array the key of the state is copied into
+	 */
+	public void getKey(int id, long[] key)
+	{
+		LongBuffer chunk = chunks[id / perChunk];
+		int offset = (id % perChunk)*stride;
+		for(int i = 0; i < keyWords; i++)
+		{
+			key[i] = chunk.get(offset + i);
+		}
+	}
+
+	/**
+	 * Lets go of every chunk and deletes the spill file, if there is one
+	 */
+	public void close()
+	{
+		Arrays.fill(chunks, null);
+		chunkCount = 0;
+		heapChunks = 0;
+		index = new int[INITIAL_INDEX];
+		size = 0;
+		if(spillChannel != null)
+		{
+			try
+			{
+				spillChannel.close();
+			}
+			catch(IOException e)
+			{
+				Logger.getLogger(StateStore.class.getName()).log(Level.SEVERE, null, e);
+			}
+			spillFile.delete();
+			spillChannel = null;
+			spillFile = null;
+		}
+	}
+
+	private boolean keyEquals(int id, long[] key)
+	{
+		LongBuffer chunk = chunks[id / perChunk];
+		int offset = (id % perChunk)*stride;
+		for(int i = 0; i < keyWords; i++)
+		{
+			if(chunk.get(offset + i) != key[i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void insert(int id, int hash)
+	{
+		int mask = index.length - 1;
+		int slot = hash & mask;
+		while(index[slot] != 0)
+		{
+			slot = (slot + 1) & mask;
+		}
+		index[slot] = id + 1;
+	}
+
+	/**
+	 * Doubles the index and puts every state back into it
+	 * @return: False if the byte cap was reached and the policy is ABORT
+	 */
+	private boolean growIndex()
+	{
+		long bytes = getHeapBytes() + index.length*4L;
+		if(bytes > byteCap && policy == SpillPolicy.ABORT || index.length == 1 << 30)
+		{
+			full = true;
+			return false;
+		}
+		index = new int[index.length*2];
+		long[] key = new long[keyWords];
+		for(int id = 0; id < size; id++)
+		{
+			getKey(id, key);
+			insert(id, hash(key));
+		}
+		return true;
+	}
+
+	/**
+	 * Adds a chunk on the heap, or mapped from the spill file once the heap has reached the byte cap
+	 * @return: False if the byte cap was reached and the policy is ABORT
+	 */
+	private boolean addChunk()
+	{
+		if(chunkCount == chunks.length)
+		{
+			chunks = Arrays.copyOf(chunks, chunkCount*2);
+		}
+		if(getHeapBytes() + CHUNK_LONGS*8L <= byteCap && !isSpilled())
+		{
+			chunks[chunkCount++] = LongBuffer.wrap(new long[CHUNK_LONGS]);
+			heapChunks++;
+			return true;
+		}
+		if(policy == SpillPolicy.ABORT)
+		{
+			full = true;
+			return false;
+		}
+
+		try
+		{
+			if(spillChannel == null)
+			{
+				spillFile = File.createTempFile("warehouseboss-states", ".bin");
+				spillFile.deleteOnExit();
+				spillChannel = new RandomAccessFile(spillFile, "rw").getChannel();
+			}
+			long position = (chunkCount - heapChunks)*(long)CHUNK_LONGS*8;
+			chunks[chunkCount++] = spillChannel.map(FileChannel.MapMode.READ_WRITE, position, CHUNK_LONGS*8L).asLongBuffer();
+			return true;
+		}
+		catch(IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private int hash(long[] key)
+	{
+		long h = 0;
+		for(int i = 0; i < keyWords; i++)
+		{
+			h = (h ^ key[i])*0x9E3779B97F4A7C15L;
+			h ^= h >>> 29;
+		}
+		return (int)(h ^ (h >>> 32));
+	}
+}
@@ -14,6 +14,8 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.border.EtchedBorder;
 
+import Game.ImageFactory.Media;
+
 /**
  * JPanel class for displaying the Tutorial section
  * @field serialVersionID: needed to prevent bugs when extending JComponents
@@ -41,7 +43,7 @@ public class TutorialPanel extends JPanel
 	private void populateComponents(Game g, int page)
 	{
 		JPanel topWall = new JPanel(new BorderLayout());
-		JLabel topWallLabel = new JLabel(ImageFactory.topWall, JLabel.CENTER);
+		JLabel topWallLabel = new JLabel(ImageFactory.getMedia(Media.TOP_WALL), JLabel.CENTER);
 		topWall.setBackground(ImageFactory.Colors.customOrange);
 		topWall.add(topWallLabel);
 		
@@ -63,7 +65,7 @@ public class TutorialPanel extends JPanel
 		});
 			
 		JPanel bottomWall = new JPanel(new BorderLayout());
-		JLabel bottomWallLabel = new JLabel("", ImageFactory.bottomWall, JLabel.CENTER);
+		JLabel bottomWallLabel = new JLabel("", ImageFactory.getMedia(Media.BOTTOM_WALL), JLabel.CENTER);
 		bottomWall.setBackground(ImageFactory.Colors.customOrange);
 		bottomWall.add(bottomWallLabel);
 		bottomWall.setVisible(true);
@@ -108,7 +110,7 @@ public class TutorialPanel extends JPanel
 			JLabel rules = addText(rulesString);
 			
 			JPanel gamePlay = new JPanel(new BorderLayout());
-			JLabel gamePlayLabel = new JLabel(ImageFactory.tutorialGif, JLabel.CENTER);
+			JLabel gamePlayLabel = new JLabel(ImageFactory.getMedia(Media.TUTORIAL), JLabel.CENTER);
 			gamePlayLabel.setBorder(new EtchedBorder(EtchedBorder.RAISED));
 			gamePlay.setBackground(ImageFactory.Colors.customOrange);
 			gamePlay.add(gamePlayLabel);
@@ -124,11 +126,12 @@ public class TutorialPanel extends JPanel
 		{
 			
 			String undoRules = "If you make a mistake and want to undo a move, simply press the on-screen undo "
-					+ " button or hit the 'U' key on your keyboard: ";
+					+ " button or hit the 'U' key on your keyboard. To take back an undo, press the on-screen redo"
+					+ " button or hit the 'Y' key: ";
 			JLabel undo = addText(undoRules);
 					
 			JPanel undoEx = new JPanel(new BorderLayout());
-			JLabel undoExample = new JLabel(ImageFactory.undoGif, JLabel.CENTER);
+			JLabel undoExample = new JLabel(ImageFactory.getMedia(Media.UNDO), JLabel.CENTER);
 			undoExample.setBorder(new EtchedBorder(EtchedBorder.RAISED));
 			undoEx.setBackground(ImageFactory.Colors.customOrange);
 			undoEx.add(undoExample);
@@ -145,7 +148,7 @@ public class TutorialPanel extends JPanel
 			JLabel reset = addText(resetRules);
 							
 			JPanel resetEx = new JPanel(new BorderLayout());
-			JLabel resetExample = new JLabel(ImageFactory.resetGif, JLabel.CENTER);
+			JLabel resetExample = new JLabel(ImageFactory.getMedia(Media.RESET), JLabel.CENTER);
 			resetExample.setBorder(new EtchedBorder(EtchedBorder.RAISED));
 			resetEx.setBackground(ImageFactory.Colors.customOrange);
 			resetEx.add(resetExample);
@@ -162,7 +165,7 @@ public class TutorialPanel extends JPanel
 			JLabel shadow1 = addText(shadowRules1);
 			
 			JPanel shadowEx1 = new JPanel(new BorderLayout());
-			JLabel shadowExample1 = new JLabel(ImageFactory.shadowGif1, JLabel.CENTER);
+			JLabel shadowExample1 = new JLabel(ImageFactory.getMedia(Media.SHADOW_ONE), JLabel.CENTER);
 			shadowExample1.setBorder(new EtchedBorder(EtchedBorder.RAISED));
 			shadowEx1.setBackground(ImageFactory.Colors.customOrange);
 			shadowEx1.add(shadowExample1);
@@ -177,7 +180,7 @@ public class TutorialPanel extends JPanel
 			JLabel shadow2 = addText(shadowRules2);
 			
 			JPanel shadowEx2 = new JPanel(new BorderLayout());
-			JLabel shadowExample2 = new JLabel(ImageFactory.shadowGif2, JLabel.CENTER);
+			JLabel shadowExample2 = new JLabel(ImageFactory.getMedia(Media.SHADOW_TWO), JLabel.CENTER);
 			shadowExample2.setBorder(new EtchedBorder(EtchedBorder.RAISED));
 			shadowEx2.setBackground(ImageFactory.Colors.customOrange);
 			shadowEx2.add(shadowExample2);
@@ -200,7 +203,7 @@ public class TutorialPanel extends JPanel
 			JLabel rules = addText(rulesString);
 					
 			JPanel gamePlay = new JPanel(new BorderLayout());
-			JLabel gamePlayLabel = new JLabel(ImageFactory.multiplayerGif, JLabel.CENTER);
+			JLabel gamePlayLabel = new JLabel(ImageFactory.getMedia(Media.MULTIPLAYER), JLabel.CENTER);
 			gamePlayLabel.setBorder(new EtchedBorder(EtchedBorder.RAISED));
 			gamePlay.setBackground(ImageFactory.Colors.customOrange);
 			gamePlay.add(gamePlayLabel);
@@ -16,6 +16,8 @@ import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 
+import Game.ImageFactory.Media;
+
 /**
  * JPanel class for displaying the win panel screen. Populates the panel with various JComponents
  * The win panel is displayed after the level has been completed and allows players to progress to the next screen,
@@ -54,7 +56,7 @@ public class WinPanel extends JPanel
 	private void populateComponents(Game g, int levelNumber, int numLevels, PuzzleGrid grid, boolean multiplayer)
 	{
 		JPanel topWall = new JPanel(new BorderLayout());
-		JLabel topWallLabel = new JLabel(ImageFactory.topWall, JLabel.CENTER);
+		JLabel topWallLabel = new JLabel(ImageFactory.getMedia(Media.TOP_WALL), JLabel.CENTER);
 		topWall.setBackground(ImageFactory.Colors.customOrange);
 		topWall.add(topWallLabel);
 
@@ -94,18 +96,18 @@ public class WinPanel extends JPanel
 		});
 		
 		JCheckBox checkBox = new JCheckBox("Shadow Mode");
-		checkBox.setSelected(PuzzleGridGenerator.shadowMode);
+		checkBox.setSelected(g.isShadowMode());
 		checkBox.addItemListener(new ItemListener() 
 		{
 		    public void itemStateChanged(ItemEvent e) 
 		    {
-	            PuzzleGridGenerator.shadowMode = checkBox.isSelected();
+	            g.setShadowMode(checkBox.isSelected());
 		    }
 		});
 		checkBox.setFocusable(false);
 			
 		JPanel bottomWall = new JPanel(new BorderLayout());
-		JLabel bottomWallLabel = new JLabel("", ImageFactory.bottomWall, JLabel.CENTER);
+		JLabel bottomWallLabel = new JLabel("", ImageFactory.getMedia(Media.BOTTOM_WALL), JLabel.CENTER);
 		bottomWall.setBackground(ImageFactory.Colors.customOrange);
 		bottomWall.add(bottomWallLabel);
 		bottomWall.setVisible(true);